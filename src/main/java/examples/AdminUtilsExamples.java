@@ -1,11 +1,16 @@
 package examples;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Properties;
 
 import io.vertx.core.Vertx;
 import io.vertx.docgen.Source;
 import io.vertx.kafka.admin.AdminUtils;
+import io.vertx.kafka.admin.KafkaAdminClient;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.NewTopic;
 
 @Source
 public class AdminUtilsExamples {
@@ -60,4 +65,27 @@ public class AdminUtilsExamples {
           result.cause().getLocalizedMessage());
     });
   }
+
+  public void adminClient(Vertx vertx) {
+    Properties config = new Properties();
+    config.put(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, "localhost:9092");
+    KafkaAdminClient adminClient = KafkaAdminClient.create(vertx, config);
+
+    // Create two topics in a single request
+    adminClient.createTopics(Arrays.asList(
+      new NewTopic("orders", 4, (short) 1),
+      new NewTopic("payments", 4, (short) 1)), ar -> {
+      if (ar.succeeded()) {
+        adminClient.describeTopics(Arrays.asList("orders", "payments"), ar2 -> {
+          if (ar2.succeeded()) {
+            ar2.result().forEach((name, description) -> {
+              System.out.println("Topic " + name + " has " + description.partitions().size() + " partitions");
+            });
+          }
+        });
+      } else {
+        System.out.println("Topic creation failed: " + ar.cause().getMessage());
+      }
+    });
+  }
 }
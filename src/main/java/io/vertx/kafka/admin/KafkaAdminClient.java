@@ -0,0 +1,148 @@
+/*
+ * Copyright 2018 Red Hat Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.kafka.admin;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.kafka.admin.impl.KafkaAdminClientImpl;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.Config;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.apache.kafka.common.config.ConfigResource;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Vert.x wrapper around the Kafka {@link AdminClient}.
+ * <p>
+ * Unlike {@link AdminUtils}, it talks to the brokers and not to ZooKeeper: each operation is a single
+ * (possibly batched) request and the result is delivered to the handler on the Vert.x context when the
+ * response arrives, no worker thread is held while waiting for it.
+ */
+public interface KafkaAdminClient {
+
+  /**
+   * Create a new KafkaAdminClient instance
+   *
+   * @param vertx Vert.x instance to use
+   * @param config Kafka admin client configuration
+   * @return an instance of the KafkaAdminClient
+   */
+  static KafkaAdminClient create(Vertx vertx, Properties config) {
+    return create(vertx, AdminClient.create(config));
+  }
+
+  /**
+   * Create a new KafkaAdminClient instance
+   *
+   * @param vertx Vert.x instance to use
+   * @param config Kafka admin client configuration
+   * @return an instance of the KafkaAdminClient
+   */
+  static KafkaAdminClient create(Vertx vertx, Map<String, Object> config) {
+    return create(vertx, AdminClient.create(config));
+  }
+
+  /**
+   * Create a new KafkaAdminClient instance from a native {@link AdminClient}
+   *
+   * @param vertx Vert.x instance to use
+   * @param adminClient native Kafka admin client instance
+   * @return an instance of the KafkaAdminClient
+   */
+  static KafkaAdminClient create(Vertx vertx, AdminClient adminClient) {
+    return new KafkaAdminClientImpl(vertx.getOrCreateContext(), adminClient);
+  }
+
+  /**
+   * Create a batch of topics in a single request.
+   *
+   * @param topics the topics to create
+   * @param completionHandler handler called on operation completed, it fails if any of the topics could not be created
+   */
+  void createTopics(Collection<NewTopic> topics, Handler<AsyncResult<Void>> completionHandler);
+
+  /**
+   * Create a batch of topics and wait until every partition of every topic has a leader, so that clients
+   * can use them right away without hitting metadata errors.
+   * <p>
+   * All the topics are created with a single request, topics that already exist are not an error. The
+   * topics are then described with an exponential backoff until all their partitions have a leader.
+   *
+   * @param topics the topics to provision
+   * @param timeout the maximum time in milliseconds to wait for the topics to be ready
+   * @param completionHandler handler called when all the topics are ready, it fails with a
+   *                          {@link org.apache.kafka.common.errors.TimeoutException} if they are not ready in time
+   */
+  void provisionTopics(Collection<NewTopic> topics, long timeout, Handler<AsyncResult<Void>> completionHandler);
+
+  /**
+   * Delete a batch of topics in a single request.
+   *
+   * @param topicNames the names of the topics to delete
+   * @param completionHandler handler called on operation completed, it fails if any of the topics could not be deleted
+   */
+  void deleteTopics(Collection<String> topicNames, Handler<AsyncResult<Void>> completionHandler);
+
+  /**
+   * Describe a batch of topics in a single request.
+   *
+   * @param topicNames the names of the topics to describe
+   * @param completionHandler handler called on operation completed with the descriptions keyed by topic name
+   */
+  void describeTopics(Collection<String> topicNames, Handler<AsyncResult<Map<String, TopicDescription>>> completionHandler);
+
+  /**
+   * Get the configuration of a batch of resources (topics or brokers) in a single request.
+   *
+   * @param resources the resources to describe
+   * @param completionHandler handler called on operation completed with the configurations keyed by resource
+   */
+  void describeConfigs(Collection<ConfigResource> resources, Handler<AsyncResult<Map<ConfigResource, Config>>> completionHandler);
+
+  /**
+   * List the names of the topics available in the cluster, internal topics excluded.
+   *
+   * @param completionHandler handler called on operation completed
+   */
+  void listTopics(Handler<AsyncResult<Set<String>>> completionHandler);
+
+  /**
+   * Close the admin client
+   *
+   * @param completionHandler handler called on operation completed
+   */
+  void close(Handler<AsyncResult<Void>> completionHandler);
+
+  /**
+   * Close the admin client
+   *
+   * @param timeout timeout to wait for closing
+   * @param completionHandler handler called on operation completed
+   */
+  void close(long timeout, Handler<AsyncResult<Void>> completionHandler);
+
+  /**
+   * @return the underlying admin client
+   */
+  AdminClient unwrap();
+}
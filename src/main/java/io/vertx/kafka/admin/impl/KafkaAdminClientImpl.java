@@ -0,0 +1,197 @@
+/*
+ * Copyright 2018 Red Hat Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.kafka.admin.impl;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.kafka.admin.KafkaAdminClient;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.Config;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.apache.kafka.common.KafkaFuture;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.TopicPartitionInfo;
+import org.apache.kafka.common.config.ConfigResource;
+import org.apache.kafka.common.errors.RetriableException;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.apache.kafka.common.errors.TopicExistsException;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Kafka admin client implementation
+ */
+public class KafkaAdminClientImpl implements KafkaAdminClient {
+
+  private static final long PROVISION_INITIAL_BACKOFF = 50L;
+  private static final long PROVISION_MAX_BACKOFF = 1000L;
+
+  private final Context context;
+  private final AdminClient adminClient;
+
+  public KafkaAdminClientImpl(Context context, AdminClient adminClient) {
+    this.context = context;
+    this.adminClient = adminClient;
+  }
+
+  /**
+   * Complete the handler on the Vert.x context when the Kafka future completes: the callback runs on the
+   * admin client network thread, so no thread is blocked waiting for the broker response.
+   */
+  private <T> void whenComplete(KafkaFuture<T> future, Handler<AsyncResult<T>> handler) {
+    future.whenComplete((result, err) -> {
+      if (handler != null) {
+        this.context.runOnContext(v -> {
+          if (err != null) {
+            handler.handle(Future.failedFuture(err));
+          } else {
+            handler.handle(Future.succeededFuture(result));
+          }
+        });
+      }
+    });
+  }
+
+  /**
+   * Wait for all the per-key futures of a batched request and deliver their outcomes at once on the Vert.x context.
+   */
+  private <T> void whenAllComplete(Map<String, KafkaFuture<T>> futures, Handler<Map<String, AsyncResult<T>>> handler) {
+    if (futures.isEmpty()) {
+      this.context.runOnContext(v -> handler.handle(Collections.emptyMap()));
+      return;
+    }
+    Map<String, AsyncResult<T>> results = new ConcurrentHashMap<>();
+    AtomicInteger remaining = new AtomicInteger(futures.size());
+    futures.forEach((key, future) -> future.whenComplete((result, err) -> {
+      results.put(key, err != null ? Future.failedFuture(err) : Future.succeededFuture(result));
+      if (remaining.decrementAndGet() == 0) {
+        this.context.runOnContext(v -> handler.handle(results));
+      }
+    }));
+  }
+
+  @Override
+  public void createTopics(Collection<NewTopic> topics, Handler<AsyncResult<Void>> completionHandler) {
+    this.whenComplete(this.adminClient.createTopics(topics).all(), completionHandler);
+  }
+
+  @Override
+  public void provisionTopics(Collection<NewTopic> topics, long timeout, Handler<AsyncResult<Void>> completionHandler) {
+    long deadline = System.currentTimeMillis() + timeout;
+    this.whenAllComplete(this.adminClient.createTopics(topics).values(), results -> {
+      for (AsyncResult<Void> result : results.values()) {
+        if (result.failed() && !(result.cause() instanceof TopicExistsException)) {
+          completionHandler.handle(Future.failedFuture(result.cause()));
+          return;
+        }
+      }
+      this.awaitLeaders(new HashSet<>(results.keySet()), deadline, PROVISION_INITIAL_BACKOFF, completionHandler);
+    });
+  }
+
+  private void awaitLeaders(Set<String> pending, long deadline, long backoff, Handler<AsyncResult<Void>> completionHandler) {
+    if (pending.isEmpty()) {
+      completionHandler.handle(Future.succeededFuture());
+      return;
+    }
+    // only the topics that are not ready yet are described again
+    this.whenAllComplete(this.adminClient.describeTopics(pending).values(), results -> {
+      for (Map.Entry<String, AsyncResult<TopicDescription>> entry : results.entrySet()) {
+        AsyncResult<TopicDescription> result = entry.getValue();
+        if (result.succeeded()) {
+          if (hasLeaders(result.result())) {
+            pending.remove(entry.getKey());
+          }
+        } else if (!(result.cause() instanceof RetriableException)) {
+          // a freshly created topic may be unknown to the broker answering the request for a while
+          completionHandler.handle(Future.failedFuture(result.cause()));
+          return;
+        }
+      }
+      if (pending.isEmpty()) {
+        completionHandler.handle(Future.succeededFuture());
+      } else if (System.currentTimeMillis() + backoff > deadline) {
+        completionHandler.handle(Future.failedFuture(new TimeoutException("Topics " + pending + " have partitions without leader")));
+      } else {
+        this.context.owner().setTimer(backoff, id ->
+          this.awaitLeaders(pending, deadline, Math.min(backoff * 2, PROVISION_MAX_BACKOFF), completionHandler));
+      }
+    });
+  }
+
+  private static boolean hasLeaders(TopicDescription description) {
+    for (TopicPartitionInfo partition : description.partitions()) {
+      Node leader = partition.leader();
+      if (leader == null || leader.isEmpty()) {
+        return false;
+      }
+    }
+    return !description.partitions().isEmpty();
+  }
+
+  @Override
+  public void deleteTopics(Collection<String> topicNames, Handler<AsyncResult<Void>> completionHandler) {
+    this.whenComplete(this.adminClient.deleteTopics(topicNames).all(), completionHandler);
+  }
+
+  @Override
+  public void describeTopics(Collection<String> topicNames, Handler<AsyncResult<Map<String, TopicDescription>>> completionHandler) {
+    this.whenComplete(this.adminClient.describeTopics(topicNames).all(), completionHandler);
+  }
+
+  @Override
+  public void describeConfigs(Collection<ConfigResource> resources, Handler<AsyncResult<Map<ConfigResource, Config>>> completionHandler) {
+    this.whenComplete(this.adminClient.describeConfigs(resources).all(), completionHandler);
+  }
+
+  @Override
+  public void listTopics(Handler<AsyncResult<Set<String>>> completionHandler) {
+    this.whenComplete(this.adminClient.listTopics().names(), completionHandler);
+  }
+
+  @Override
+  public void close(Handler<AsyncResult<Void>> completionHandler) {
+    this.close(0, completionHandler);
+  }
+
+  @Override
+  public void close(long timeout, Handler<AsyncResult<Void>> completionHandler) {
+    this.context.executeBlocking(future -> {
+      if (timeout > 0) {
+        this.adminClient.close(timeout, TimeUnit.MILLISECONDS);
+      } else {
+        this.adminClient.close();
+      }
+      future.complete();
+    }, completionHandler);
+  }
+
+  @Override
+  public AdminClient unwrap() {
+    return this.adminClient;
+  }
+}
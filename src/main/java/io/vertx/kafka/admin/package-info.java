@@ -71,6 +71,20 @@
  * ----
  * {@link examples.AdminUtilsExamples#topicExists()}
  * ----
+ *
+ * ifdef::java[]
+ * == Using the KafkaAdminClient
+ *
+ * The {@link io.vertx.kafka.admin.KafkaAdminClient} wraps the Kafka {@link org.apache.kafka.clients.admin.AdminClient}:
+ * it talks to the brokers instead of ZooKeeper and does not hold a worker thread while waiting for the responses.
+ * Topics can be created, deleted and described in batches, as well as the configuration of topics and brokers,
+ * each batch being sent as a single request.
+ *
+ * [source,$lang]
+ * ----
+ * {@link examples.AdminUtilsExamples#adminClient(io.vertx.core.Vertx)}
+ * ----
+ * endif::[]
  */
 @Document(fileName = "adminUtils.adoc")
 @ModuleGen(name = "vertx-kafka-client", groupPackage = "io.vertx")
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2018 Red Hat Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.kafka.client.common;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of positive long values with logarithmic buckets, each power of two being split in eight buckets:
+ * the percentiles are approximated within 12.5% of the recorded values. Recording is lock free, a histogram can
+ * be recorded and read from any thread.
+ */
+public final class KafkaHistogram {
+
+  private static final int SUB_BUCKET_BITS = 3;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+  private final AtomicLong count = new AtomicLong();
+  private final AtomicLong sum = new AtomicLong();
+  private final AtomicLong max = new AtomicLong();
+
+  private static int index(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    int msb = 63 - Long.numberOfLeadingZeros(value);
+    return (msb - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + (int) ((value >>> (msb - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1));
+  }
+
+  private static long lowerBound(int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+    int msb = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+    return (1L << msb) + ((long) (index % SUB_BUCKETS) << (msb - SUB_BUCKET_BITS));
+  }
+
+  /**
+   * Record a value, negative values are recorded as {@code 0}.
+   *
+   * @param value the value
+   */
+  public void record(long value) {
+    long v = Math.max(0, value);
+    this.buckets.incrementAndGet(index(v));
+    this.count.incrementAndGet();
+    this.sum.addAndGet(v);
+    long current;
+    while (v > (current = this.max.get()) && !this.max.compareAndSet(current, v)) {
+      // retry
+    }
+  }
+
+  /**
+   * @return the number of recorded values
+   */
+  public long count() {
+    return this.count.get();
+  }
+
+  /**
+   * @return the mean of the recorded values, {@code 0} when empty
+   */
+  public double mean() {
+    long count = this.count.get();
+    return count == 0 ? 0 : this.sum.get() / (double) count;
+  }
+
+  /**
+   * @return the largest recorded value, {@code 0} when empty
+   */
+  public long max() {
+    return this.max.get();
+  }
+
+  /**
+   * Estimate a percentile of the recorded values.
+   *
+   * @param percentile the percentile between {@code 0} and {@code 100}
+   * @return the lower bound of the bucket containing the percentile, {@code 0} when empty
+   */
+  public long percentile(double percentile) {
+    long count = this.count.get();
+    if (count == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(count * Math.min(100, Math.max(0, percentile)) / 100));
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += this.buckets.get(i);
+      if (seen >= rank) {
+        return Math.min(lowerBound(i), this.max.get());
+      }
+    }
+    return this.max.get();
+  }
+
+  /**
+   * Clear the recorded values, values recorded concurrently may be partially cleared.
+   */
+  public void reset() {
+    for (int i = 0; i < BUCKETS; i++) {
+      this.buckets.set(i, 0);
+    }
+    this.count.set(0);
+    this.sum.set(0);
+    this.max.set(0);
+  }
+
+  @Override
+  public String toString() {
+
+    return "KafkaHistogram{" +
+      "count=" + this.count() +
+      ", mean=" + this.mean() +
+      ", p50=" + this.percentile(50) +
+      ", p99=" + this.percentile(99) +
+      ", max=" + this.max() +
+      "}";
+  }
+}
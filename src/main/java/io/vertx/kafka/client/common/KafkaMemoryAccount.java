@@ -0,0 +1,55 @@
+/*
+ * Copyright 2018 Red Hat Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.kafka.client.common;
+
+/**
+ * The bytes buffered by a consumer, drawn from the budget of a {@link KafkaMemoryGovernor}. An account is thread
+ * safe, acquiring or releasing bytes once it is closed is a no-op.
+ */
+public interface KafkaMemoryAccount {
+
+  /**
+   * Add bytes buffered by the consumer.
+   *
+   * @param bytes the number of bytes
+   */
+  void acquire(long bytes);
+
+  /**
+   * Remove bytes delivered by the consumer.
+   *
+   * @param bytes the number of bytes
+   */
+  void release(long bytes);
+
+  /**
+   * @return whether the consumer must stop fetching: the budget is exceeded and the account holds more than its
+   * share of it
+   */
+  boolean isOverBudget();
+
+  /**
+   * Record whether the consumer of this account is throttled.
+   *
+   * @param throttled whether the fetching is paused
+   */
+  void throttled(boolean throttled);
+
+  /**
+   * Give back the bytes of the account to the budget.
+   */
+  void close();
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2018 Red Hat Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.kafka.client.common;
+
+import io.vertx.codegen.annotations.GenIgnore;
+import io.vertx.codegen.annotations.VertxGen;
+import io.vertx.core.Vertx;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.kafka.client.common.impl.SharedMemoryGovernor;
+
+/**
+ * A memory budget shared by the consumers it is set on, bounding the bytes of the records they fetched and did not
+ * deliver yet. The byte size of a record is its serialized key and value size.
+ * <p>
+ * While the records buffered by all the consumers exceed the budget, the consumers holding more than their share
+ * of the budget pause the fetching of their partitions. They go on delivering their buffered records, and
+ * resume fetching once these are drained. The other consumers are not affected, so a consumer catching up does not
+ * starve the others.
+ * <p>
+ * The records buffered by the native consumers are not accounted, {@code max.partition.fetch.bytes} and
+ * {@code fetch.max.bytes} still bound them. A governor is thread safe.
+ */
+@VertxGen
+public interface KafkaMemoryGovernor {
+
+  /**
+   * Create a new KafkaMemoryGovernor instance
+   *
+   * @param budget the budget in bytes
+   * @return an instance of the KafkaMemoryGovernor
+   */
+  static KafkaMemoryGovernor create(long budget) {
+    return new SharedMemoryGovernor(budget);
+  }
+
+  /**
+   * Get the governor shared by all the consumers of a Vert.x instance, it is created with the given budget by the
+   * first call, the following calls return the same governor.
+   *
+   * @param vertx Vert.x instance to use
+   * @param budget the budget in bytes
+   * @return the shared KafkaMemoryGovernor
+   */
+  static KafkaMemoryGovernor shared(Vertx vertx, long budget) {
+    LocalMap<String, SharedMemoryGovernor> map = vertx.sharedData().getLocalMap(SharedMemoryGovernor.SHARED_MAP);
+    SharedMemoryGovernor governor = map.get(SharedMemoryGovernor.SHARED_MAP);
+    if (governor == null) {
+      SharedMemoryGovernor created = new SharedMemoryGovernor(budget);
+      governor = map.putIfAbsent(SharedMemoryGovernor.SHARED_MAP, created);
+      if (governor == null) {
+        governor = created;
+      }
+    }
+    return governor;
+  }
+
+  /**
+   * @return the budget in bytes
+   */
+  long budget();
+
+  /**
+   * @return the bytes of the records buffered by the consumers
+   */
+  long used();
+
+  /**
+   * @return the number of consumers whose fetching is paused
+   */
+  int throttled();
+
+  /**
+   * Open the account of a consumer drawing from this budget, the account is closed by the consumer.
+   *
+   * @return a new account
+   */
+  @GenIgnore
+  KafkaMemoryAccount register();
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2018 Red Hat Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.kafka.client.common;
+
+import io.vertx.codegen.annotations.VertxGen;
+import io.vertx.kafka.client.common.impl.TokenBucketRateLimiter;
+
+/**
+ * A token bucket rate limiter capping the records and the bytes per second consumed or produced by the streams
+ * it is set on. A limiter is thread safe, a single instance can be shared by streams of different verticles to
+ * share a quota.
+ * <p>
+ * Each bucket holds up to one second of tokens. Acquiring tokens always succeeds but may leave the bucket in debt:
+ * the stream then waits for the debt to be repaid before going on. A consumer stream pauses the fetching of its
+ * partitions meanwhile and keeps polling to stay in its group.
+ */
+@VertxGen
+public interface KafkaRateLimiter {
+
+  /**
+   * Create a new KafkaRateLimiter instance
+   *
+   * @param recordsPerSecond the maximum number of records per second, zero or negative for no limit
+   * @param bytesPerSecond the maximum number of bytes per second, zero or negative for no limit
+   * @return an instance of the KafkaRateLimiter
+   */
+  static KafkaRateLimiter create(long recordsPerSecond, long bytesPerSecond) {
+    return new TokenBucketRateLimiter(recordsPerSecond, bytesPerSecond);
+  }
+
+  /**
+   * Take tokens from the buckets.
+   *
+   * @param records the number of records
+   * @param bytes the number of bytes
+   * @return the delay in milliseconds before the buckets are out of debt, 0 when they are not in debt
+   */
+  long acquire(long records, long bytes);
+
+  /**
+   * @return the delay in milliseconds before the buckets are out of debt, 0 when they are not in debt
+   */
+  long delay();
+}
@@ -18,16 +18,19 @@ package io.vertx.kafka.client.common.impl;
 
 import io.vertx.core.Handler;
 import io.vertx.kafka.client.common.Node;
+import io.vertx.kafka.client.common.PartitionInfo;
 import io.vertx.kafka.client.consumer.OffsetAndTimestamp;
 import io.vertx.kafka.client.common.TopicPartition;
 import io.vertx.kafka.client.consumer.OffsetAndMetadata;
 import io.vertx.kafka.client.producer.RecordMetadata;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 /**
  * Helper class for mapping native and Vert.x Kafka objects
@@ -37,6 +40,24 @@ public class Helper {
   private Helper() {
   }
 
+  /**
+   * @return the initial capacity of a hash map or set that holds {@code size} entries without rehashing
+   */
+  private static int capacity(int size) {
+    return size < 3 ? size + 1 : (int) (size / 0.75f + 1.0f);
+  }
+
+  /**
+   * Get the native topic partition.
+   *
+   * @param topic the topic
+   * @param partition the partition
+   * @return the native topic partition
+   */
+  public static org.apache.kafka.common.TopicPartition to(String topic, int partition) {
+    return new org.apache.kafka.common.TopicPartition(topic, partition);
+  }
+
   public static <T> Set<T> toSet(Collection<T> collection) {
     if (collection instanceof Set) {
       return (Set<T>) collection;
@@ -46,25 +67,31 @@ public class Helper {
   }
 
   public static org.apache.kafka.common.TopicPartition to(TopicPartition topicPartition) {
-    return new org.apache.kafka.common.TopicPartition(topicPartition.getTopic(), topicPartition.getPartition());
+    return to(topicPartition.getTopic(), topicPartition.getPartition());
   }
 
   public static Set<org.apache.kafka.common.TopicPartition> to(Set<TopicPartition> topicPartitions) {
-    return topicPartitions.stream().map(Helper::to).collect(Collectors.toSet());
+    Set<org.apache.kafka.common.TopicPartition> set = new HashSet<>(capacity(topicPartitions.size()));
+    for (TopicPartition topicPartition : topicPartitions) {
+      set.add(to(topicPartition));
+    }
+    return set;
   }
 
   public static Map<org.apache.kafka.common.TopicPartition, org.apache.kafka.clients.consumer.OffsetAndMetadata> to(Map<TopicPartition, OffsetAndMetadata> offsets) {
-    return offsets.entrySet().stream().collect(Collectors.toMap(
-      e -> new org.apache.kafka.common.TopicPartition(e.getKey().getTopic(), e.getKey().getPartition()),
-      e -> new org.apache.kafka.clients.consumer.OffsetAndMetadata(e.getValue().getOffset(), e.getValue().getMetadata()))
-    );
+    Map<org.apache.kafka.common.TopicPartition, org.apache.kafka.clients.consumer.OffsetAndMetadata> map = new HashMap<>(capacity(offsets.size()));
+    for (Map.Entry<TopicPartition, OffsetAndMetadata> e : offsets.entrySet()) {
+      map.put(to(e.getKey()), new org.apache.kafka.clients.consumer.OffsetAndMetadata(e.getValue().getOffset(), e.getValue().getMetadata()));
+    }
+    return map;
   }
 
   public static Map<TopicPartition, OffsetAndMetadata> from(Map<org.apache.kafka.common.TopicPartition, org.apache.kafka.clients.consumer.OffsetAndMetadata> offsets) {
-    return offsets.entrySet().stream().collect(Collectors.toMap(
-      e -> new TopicPartition(e.getKey().topic(), e.getKey().partition()),
-      e -> new OffsetAndMetadata(e.getValue().offset(), e.getValue().metadata()))
-    );
+    Map<TopicPartition, OffsetAndMetadata> map = new HashMap<>(capacity(offsets.size()));
+    for (Map.Entry<org.apache.kafka.common.TopicPartition, org.apache.kafka.clients.consumer.OffsetAndMetadata> e : offsets.entrySet()) {
+      map.put(from(e.getKey()), new OffsetAndMetadata(e.getValue().offset(), e.getValue().metadata()));
+    }
+    return map;
   }
 
   public static TopicPartition from(org.apache.kafka.common.TopicPartition topicPartition) {
@@ -72,7 +99,11 @@ public class Helper {
   }
 
   public static Set<TopicPartition> from(Collection<org.apache.kafka.common.TopicPartition> topicPartitions) {
-    return topicPartitions.stream().map(Helper::from).collect(Collectors.toSet());
+    Set<TopicPartition> set = new HashSet<>(capacity(topicPartitions.size()));
+    for (org.apache.kafka.common.TopicPartition topicPartition : topicPartitions) {
+      set.add(from(topicPartition));
+    }
+    return set;
   }
 
   public static Handler<Set<org.apache.kafka.common.TopicPartition>> adaptHandler(Handler<Set<TopicPartition>> handler) {
@@ -88,6 +119,32 @@ public class Helper {
       node.isEmpty(), node.port(), node.rack());
   }
 
+  public static List<Node> from(org.apache.kafka.common.Node[] nodes) {
+    List<Node> list = new ArrayList<>(nodes.length);
+    for (org.apache.kafka.common.Node node : nodes) {
+      list.add(from(node));
+    }
+    return list;
+  }
+
+  public static PartitionInfo from(org.apache.kafka.common.PartitionInfo partitionInfo) {
+    org.apache.kafka.common.Node leader = partitionInfo.leader();
+    return new PartitionInfo()
+      .setInSyncReplicas(from(partitionInfo.inSyncReplicas()))
+      .setLeader(leader != null ? from(leader) : null)
+      .setPartition(partitionInfo.partition())
+      .setReplicas(from(partitionInfo.replicas()))
+      .setTopic(partitionInfo.topic());
+  }
+
+  public static List<PartitionInfo> from(List<org.apache.kafka.common.PartitionInfo> partitionInfos) {
+    List<PartitionInfo> list = new ArrayList<>(partitionInfos.size());
+    for (org.apache.kafka.common.PartitionInfo partitionInfo : partitionInfos) {
+      list.add(from(partitionInfo));
+    }
+    return list;
+  }
+
   public static RecordMetadata from(org.apache.kafka.clients.producer.RecordMetadata metadata) {
     return new RecordMetadata(metadata.checksum(), metadata.offset(),
       metadata.partition(), metadata.timestamp(), metadata.topic());
@@ -106,25 +163,28 @@ public class Helper {
   }
 
   public static Map<TopicPartition, Long> fromTopicPartitionOffsets(Map<org.apache.kafka.common.TopicPartition, Long> offsets) {
-    return offsets.entrySet().stream().collect(Collectors.toMap(
-      e -> new TopicPartition(e.getKey().topic(), e.getKey().partition()),
-      Map.Entry::getValue)
-    );
+    Map<TopicPartition, Long> map = new HashMap<>(capacity(offsets.size()));
+    for (Map.Entry<org.apache.kafka.common.TopicPartition, Long> e : offsets.entrySet()) {
+      map.put(from(e.getKey()), e.getValue());
+    }
+    return map;
   }
 
   public static Map<org.apache.kafka.common.TopicPartition, Long> toTopicPartitionTimes(Map<TopicPartition, Long> topicPartitionTimes) {
-    return topicPartitionTimes.entrySet().stream().collect(Collectors.toMap(
-      e -> new org.apache.kafka.common.TopicPartition(e.getKey().getTopic(), e.getKey().getPartition()),
-      Map.Entry::getValue)
-    );
+    Map<org.apache.kafka.common.TopicPartition, Long> map = new HashMap<>(capacity(topicPartitionTimes.size()));
+    for (Map.Entry<TopicPartition, Long> e : topicPartitionTimes.entrySet()) {
+      map.put(to(e.getKey()), e.getValue());
+    }
+    return map;
   }
 
   public static Map<TopicPartition, OffsetAndTimestamp> fromTopicPartitionOffsetAndTimestamp(Map<org.apache.kafka.common.TopicPartition, org.apache.kafka.clients.consumer.OffsetAndTimestamp> topicPartitionOffsetAndTimestamps) {
-    return topicPartitionOffsetAndTimestamps.entrySet().stream()
-      .filter(e-> e.getValue() != null)
-      .collect(Collectors.toMap(
-        e -> new TopicPartition(e.getKey().topic(), e.getKey().partition()),
-        e ->new OffsetAndTimestamp(e.getValue().offset(), e.getValue().timestamp()))
-      );
+    Map<TopicPartition, OffsetAndTimestamp> map = new HashMap<>(capacity(topicPartitionOffsetAndTimestamps.size()));
+    for (Map.Entry<org.apache.kafka.common.TopicPartition, org.apache.kafka.clients.consumer.OffsetAndTimestamp> e : topicPartitionOffsetAndTimestamps.entrySet()) {
+      if (e.getValue() != null) {
+        map.put(from(e.getKey()), new OffsetAndTimestamp(e.getValue().offset(), e.getValue().timestamp()));
+      }
+    }
+    return map;
   }
 }
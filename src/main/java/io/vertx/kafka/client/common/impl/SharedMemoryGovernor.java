@@ -0,0 +1,120 @@
+/*
+ * Copyright 2018 Red Hat Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.kafka.client.common.impl;
+
+import io.vertx.core.shareddata.Shareable;
+import io.vertx.kafka.client.common.KafkaMemoryAccount;
+import io.vertx.kafka.client.common.KafkaMemoryGovernor;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Memory governor implementation, each consumer draws from the budget with its own account.
+ */
+public class SharedMemoryGovernor implements KafkaMemoryGovernor, Shareable {
+
+  public static final String SHARED_MAP = "__vertx.kafka.memoryGovernor";
+
+  private final long budget;
+  private final AtomicLong used = new AtomicLong();
+  private final AtomicInteger accounts = new AtomicInteger();
+  private final AtomicInteger throttled = new AtomicInteger();
+
+  public SharedMemoryGovernor(long budget) {
+    if (budget < 1) {
+      throw new IllegalArgumentException("Budget must be positive");
+    }
+    this.budget = budget;
+  }
+
+  @Override
+  public Account register() {
+    this.accounts.incrementAndGet();
+    return new Account();
+  }
+
+  @Override
+  public long budget() {
+    return this.budget;
+  }
+
+  @Override
+  public long used() {
+    return this.used.get();
+  }
+
+  @Override
+  public int throttled() {
+    return this.throttled.get();
+  }
+
+  /**
+   * The bytes buffered by a consumer.
+   */
+  public class Account implements KafkaMemoryAccount {
+
+    // the bytes of a closed account, acquiring or releasing is then a no-op
+    private static final long CLOSED = Long.MIN_VALUE;
+
+    private final AtomicLong bytes = new AtomicLong();
+    private volatile boolean throttled;
+
+    @Override
+    public void acquire(long bytes) {
+      while (true) {
+        long current = this.bytes.get();
+        if (current == CLOSED) {
+          return;
+        }
+        if (this.bytes.compareAndSet(current, current + bytes)) {
+          SharedMemoryGovernor.this.used.addAndGet(bytes);
+          return;
+        }
+      }
+    }
+
+    @Override
+    public void release(long bytes) {
+      this.acquire(-bytes);
+    }
+
+    @Override
+    public boolean isOverBudget() {
+      if (SharedMemoryGovernor.this.used.get() <= SharedMemoryGovernor.this.budget) {
+        return false;
+      }
+      return this.bytes.get() > SharedMemoryGovernor.this.budget / Math.max(1, SharedMemoryGovernor.this.accounts.get());
+    }
+
+    @Override
+    public synchronized void throttled(boolean throttled) {
+      if (this.throttled != throttled && this.bytes.get() != CLOSED) {
+        this.throttled = throttled;
+        SharedMemoryGovernor.this.throttled.addAndGet(throttled ? 1 : -1);
+      }
+    }
+
+    @Override
+    public synchronized void close() {
+      if (this.bytes.get() != CLOSED) {
+        this.throttled(false);
+        SharedMemoryGovernor.this.used.addAndGet(-this.bytes.getAndSet(CLOSED));
+        SharedMemoryGovernor.this.accounts.decrementAndGet();
+      }
+    }
+  }
+}
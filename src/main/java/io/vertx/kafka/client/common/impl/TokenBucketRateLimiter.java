@@ -0,0 +1,98 @@
+/*
+ * Copyright 2018 Red Hat Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.kafka.client.common.impl;
+
+import io.vertx.kafka.client.common.KafkaRateLimiter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rate limiter with a bucket of records and a bucket of bytes, refilled continuously.
+ */
+public class TokenBucketRateLimiter implements KafkaRateLimiter {
+
+  /**
+   * A bucket holding up to one second of tokens
+   */
+  private static class Bucket {
+
+    private final double ratePerNano;
+    private final double capacity;
+    private double tokens;
+
+    Bucket(long ratePerSecond) {
+      this.ratePerNano = ratePerSecond / (double) TimeUnit.SECONDS.toNanos(1);
+      this.capacity = ratePerSecond;
+      this.tokens = ratePerSecond;
+    }
+
+    void refill(long elapsedNanos) {
+      this.tokens = Math.min(this.capacity, this.tokens + elapsedNanos * this.ratePerNano);
+    }
+
+    long delayNanos() {
+      return this.tokens >= 0 ? 0 : (long) Math.ceil(-this.tokens / this.ratePerNano);
+    }
+  }
+
+  private final Bucket records;
+  private final Bucket bytes;
+  private long lastRefill = System.nanoTime();
+
+  public TokenBucketRateLimiter(long recordsPerSecond, long bytesPerSecond) {
+    this.records = recordsPerSecond > 0 ? new Bucket(recordsPerSecond) : null;
+    this.bytes = bytesPerSecond > 0 ? new Bucket(bytesPerSecond) : null;
+  }
+
+  @Override
+  public synchronized long acquire(long records, long bytes) {
+    this.refill();
+    if (this.records != null) {
+      this.records.tokens -= records;
+    }
+    if (this.bytes != null) {
+      this.bytes.tokens -= bytes;
+    }
+    return this.delayMillis();
+  }
+
+  @Override
+  public synchronized long delay() {
+    this.refill();
+    return this.delayMillis();
+  }
+
+  private void refill() {
+    long now = System.nanoTime();
+    long elapsed = now - this.lastRefill;
+    this.lastRefill = now;
+    if (this.records != null) {
+      this.records.refill(elapsed);
+    }
+    if (this.bytes != null) {
+      this.bytes.refill(elapsed);
+    }
+  }
+
+  private long delayMillis() {
+    long delay = Math.max(
+      this.records != null ? this.records.delayNanos() : 0,
+      this.bytes != null ? this.bytes.delayNanos() : 0);
+    // round up so that waiting the delay is enough
+    return delay == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(delay + TimeUnit.MILLISECONDS.toNanos(1) - 1);
+  }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2018 Red Hat Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.kafka.client.common.impl;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.kafka.client.common.PartitionInfo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiConsumer;
+
+/**
+ * Cache of the partitions of the topics used by a client.
+ * <p>
+ * The partitions of a topic are loaded from the native client on first use and then served from memory: once
+ * an entry is older than the TTL the stale partitions are still returned while a single background refresh
+ * replaces them. With a TTL of zero each lookup loads the partitions. Concurrent first lookups of the same topic share the same load. After a failed load the topic
+ * is not loaded again before a backoff, the lookups of a topic never loaded fail meanwhile with the same error.
+ * <p>
+ * The native partitions are cached, each lookup gets its own copy of the Vert.x partitions.
+ */
+public class TopicMetadataCache {
+
+  /**
+   * Default time in milliseconds after which the partitions of a topic are refreshed
+   */
+  public static final long DEFAULT_TTL = 30000L;
+
+  /**
+   * Default time in milliseconds before a failed load is tried again
+   */
+  public static final long DEFAULT_RETRY_BACKOFF = 1000L;
+
+  private static final class Entry {
+
+    // immutable list, null until the first load completed
+    volatile List<org.apache.kafka.common.PartitionInfo> partitions;
+    volatile long loadedAt;
+    // the failure of the last load and the time before which it is not tried again
+    volatile Throwable failure;
+    volatile long retryAt;
+    // guarded by this entry
+    boolean loading;
+    List<Handler<AsyncResult<List<org.apache.kafka.common.PartitionInfo>>>> waiters;
+  }
+
+  private final BiConsumer<String, Handler<AsyncResult<List<org.apache.kafka.common.PartitionInfo>>>> loader;
+  private volatile long ttl;
+  private final long retryBackoff;
+  private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+  /**
+   * @param loader function fetching the native partitions of a topic
+   * @param ttl time in milliseconds after which an entry is refreshed
+   * @param retryBackoff time in milliseconds before a failed load is tried again
+   */
+  public TopicMetadataCache(BiConsumer<String, Handler<AsyncResult<List<org.apache.kafka.common.PartitionInfo>>>> loader,
+                            long ttl, long retryBackoff) {
+    this.loader = loader;
+    this.ttl = ttl;
+    this.retryBackoff = retryBackoff;
+  }
+
+  public TopicMetadataCache(BiConsumer<String, Handler<AsyncResult<List<org.apache.kafka.common.PartitionInfo>>>> loader) {
+    this(loader, DEFAULT_TTL, DEFAULT_RETRY_BACKOFF);
+  }
+
+  /**
+   * Set the time in milliseconds after which an entry is refreshed, zero to load the partitions on each lookup.
+   *
+   * @param ttl the TTL in milliseconds
+   */
+  public void ttl(long ttl) {
+    this.ttl = Math.max(0, ttl);
+  }
+
+  /**
+   * Get the partitions of a topic, the handler is called right away when they are cached.
+   *
+   * @param topic the topic
+   * @param handler handler called with a copy of the partitions
+   */
+  public void partitionsFor(String topic, Handler<AsyncResult<List<PartitionInfo>>> handler) {
+    Entry entry = this.entries.computeIfAbsent(topic, t -> new Entry());
+    List<org.apache.kafka.common.PartitionInfo> partitions = entry.partitions;
+    if (partitions != null && this.ttl > 0) {
+      this.refreshIfStale(topic, entry);
+      handler.handle(Future.succeededFuture(Helper.from(partitions)));
+    } else if (entry.failure != null && System.currentTimeMillis() < entry.retryAt) {
+      handler.handle(Future.failedFuture(entry.failure));
+    } else {
+      this.load(topic, entry, ar -> {
+        if (ar.succeeded()) {
+          handler.handle(Future.succeededFuture(Helper.from(ar.result())));
+        } else {
+          handler.handle(Future.failedFuture(ar.cause()));
+        }
+      });
+    }
+  }
+
+  /**
+   * Get the cached native partitions of a topic without loading them, a refresh is still triggered for a stale entry.
+   *
+   * @param topic the topic
+   * @return the unmodifiable partitions list or {@code null} if the topic is not cached yet
+   */
+  public List<org.apache.kafka.common.PartitionInfo> getIfPresent(String topic) {
+    Entry entry = this.entries.get(topic);
+    if (entry == null) {
+      return null;
+    }
+    List<org.apache.kafka.common.PartitionInfo> partitions = entry.partitions;
+    if (partitions != null) {
+      this.refreshIfStale(topic, entry);
+    }
+    return partitions;
+  }
+
+  /**
+   * Drop the cached partitions of a topic, for example after a metadata error, so that the next lookup reloads them.
+   *
+   * @param topic the topic
+   */
+  public void invalidate(String topic) {
+    this.entries.remove(topic);
+  }
+
+  private void refreshIfStale(String topic, Entry entry) {
+    long now = System.currentTimeMillis();
+    if (now - entry.loadedAt >= this.ttl && now >= entry.retryAt) {
+      this.load(topic, entry, null);
+    }
+  }
+
+  private void load(String topic, Entry entry, Handler<AsyncResult<List<org.apache.kafka.common.PartitionInfo>>> handler) {
+    synchronized (entry) {
+      if (handler != null) {
+        if (entry.waiters == null) {
+          entry.waiters = new ArrayList<>(1);
+        }
+        entry.waiters.add(handler);
+      }
+      if (entry.loading) {
+        return;
+      }
+      entry.loading = true;
+    }
+    this.loader.accept(topic, ar -> {
+      List<Handler<AsyncResult<List<org.apache.kafka.common.PartitionInfo>>>> waiters;
+      AsyncResult<List<org.apache.kafka.common.PartitionInfo>> result;
+      if (ar.succeeded()) {
+        List<org.apache.kafka.common.PartitionInfo> partitions = Collections.unmodifiableList(new ArrayList<>(ar.result()));
+        entry.loadedAt = System.currentTimeMillis();
+        entry.partitions = partitions;
+        entry.failure = null;
+        result = Future.succeededFuture(partitions);
+      } else {
+        // the stale partitions, if any, are served until the next try
+        entry.failure = ar.cause();
+        entry.retryAt = System.currentTimeMillis() + this.retryBackoff;
+        result = Future.failedFuture(ar.cause());
+      }
+      synchronized (entry) {
+        entry.loading = false;
+        waiters = entry.waiters;
+        entry.waiters = null;
+      }
+      if (waiters != null) {
+        for (Handler<AsyncResult<List<org.apache.kafka.common.PartitionInfo>>> waiter : waiters) {
+          waiter.handle(result);
+        }
+      }
+    });
+  }
+}
@@ -23,6 +23,8 @@ import io.vertx.core.AsyncResult;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
 import io.vertx.core.streams.ReadStream;
+import io.vertx.kafka.client.common.KafkaMemoryGovernor;
+import io.vertx.kafka.client.common.KafkaRateLimiter;
 import io.vertx.kafka.client.common.PartitionInfo;
 import io.vertx.kafka.client.common.TopicPartition;
 import io.vertx.kafka.client.consumer.impl.KafkaConsumerImpl;
@@ -117,6 +119,24 @@ public interface KafkaConsumer<K, V> extends ReadStream<KafkaConsumerRecord<K, V
     return new KafkaConsumerImpl<>(stream).registerCloseHook();
   }
 
+  /**
+   * Create a new KafkaConsumer instance only delivering the records accepted by a filter, the filter is
+   * evaluated against the raw key and the headers of each record before it gets deserialized.
+   *
+   * @param vertx Vert.x instance to use
+   * @param config Kafka consumer configuration
+   * @param keyType class type for the key deserialization
+   * @param valueType class type for the value deserialization
+   * @param filter the filter selecting the records to deliver
+   * @return  an instance of the KafkaConsumer
+   */
+  @GenIgnore
+  static <K, V> KafkaConsumer<K, V> create(Vertx vertx, Map<String, String> config,
+                                           Class<K> keyType, Class<V> valueType, KafkaRecordFilter filter) {
+    KafkaReadStream<K, V> stream = KafkaReadStream.create(vertx, new HashMap<>(config), keyType, valueType, filter);
+    return new KafkaConsumerImpl<>(stream).registerCloseHook();
+  }
+
   @Fluent
   @Override
   KafkaConsumer<K, V> exceptionHandler(Handler<Throwable> handler);
@@ -133,6 +153,17 @@ public interface KafkaConsumer<K, V> extends ReadStream<KafkaConsumerRecord<K, V
   @Override
   KafkaConsumer<K, V> resume();
 
+  /**
+   * Fetch the specified {@code amount} of records. The consumer delivers at most the requested amount of records to
+   * the handler and then stops, polling included, until more records are requested. Calling {@link #pause()} resets
+   * the amount to zero and {@link #resume()} lets the records flow again without limit.
+   *
+   * @param amount the number of records to add to the current demand
+   * @return current KafkaConsumer instance
+   */
+  @Fluent
+  KafkaConsumer<K, V> fetch(long amount);
+
   @Fluent
   @Override
   KafkaConsumer<K, V> endHandler(Handler<Void> endHandler);
@@ -380,6 +411,46 @@ public interface KafkaConsumer<K, V> extends ReadStream<KafkaConsumerRecord<K, V
   @Fluent
   KafkaConsumer<K, V> seek(TopicPartition topicPartition, long offset, Handler<AsyncResult<Void>> completionHandler);
 
+  /**
+   * Overrides the fetch offsets of several partitions at once, in a single consumer operation.
+   *
+   * @param offsets  the offset to seek of each topic partition
+   * @return  current KafkaConsumer instance
+   */
+  @GenIgnore
+  KafkaConsumer<K, V> seek(Map<TopicPartition, Long> offsets);
+
+  /**
+   * Overrides the fetch offsets of several partitions at once, in a single consumer operation.
+   *
+   * @param offsets  the offset to seek of each topic partition
+   * @param completionHandler handler called on operation completed
+   * @return  current KafkaConsumer instance
+   */
+  @GenIgnore
+  KafkaConsumer<K, V> seek(Map<TopicPartition, Long> offsets, Handler<AsyncResult<Void>> completionHandler);
+
+  /**
+   * Seek all the assigned partitions to the earliest offset whose timestamp is greater than or equal to the given
+   * timestamp, or to the end of the partitions having no such offset.
+   *
+   * @param timestamp  the timestamp in milliseconds
+   * @return  current KafkaConsumer instance
+   */
+  @Fluent
+  KafkaConsumer<K, V> seekToTimestamp(long timestamp);
+
+  /**
+   * Seek all the assigned partitions to the earliest offset whose timestamp is greater than or equal to the given
+   * timestamp, or to the end of the partitions having no such offset.
+   *
+   * @param timestamp  the timestamp in milliseconds
+   * @param completionHandler handler called on operation completed
+   * @return  current KafkaConsumer instance
+   */
+  @Fluent
+  KafkaConsumer<K, V> seekToTimestamp(long timestamp, Handler<AsyncResult<Void>> completionHandler);
+
   /**
    * Seek to the first offset for each of the given partition.
    *
@@ -494,7 +565,7 @@ public interface KafkaConsumer<K, V> extends ReadStream<KafkaConsumerRecord<K, V
   void committed(TopicPartition topicPartition, Handler<AsyncResult<OffsetAndMetadata>> handler);
 
   /**
-   * Get metadata about the partitions for a given topic.
+   * Get metadata about the partitions for a given topic, served from the partitions cached by the consumer.
    *
    * @param topic topic partition for which getting partitions info
    * @param handler handler called on operation completed
@@ -503,6 +574,16 @@ public interface KafkaConsumer<K, V> extends ReadStream<KafkaConsumerRecord<K, V
   @Fluent
   KafkaConsumer<K, V> partitionsFor(String topic, Handler<AsyncResult<List<PartitionInfo>>> handler);
 
+  /**
+   * Set the time after which the cached partitions of a topic are refreshed in the background, the stale partitions
+   * are served meanwhile. Defaults to 30 seconds.
+   *
+   * @param ttl the time in milliseconds, {@code 0} to load the partitions on each {@link #partitionsFor} call
+   * @return current KafkaConsumer instance
+   */
+  @Fluent
+  KafkaConsumer<K, V> metadataCacheTtl(long ttl);
+
   /**
    * Set the handler to be used when batches of messages are fetched
    * from the Kafka server. Batch handlers need to take care not to block
@@ -609,4 +690,26 @@ public interface KafkaConsumer<K, V> extends ReadStream<KafkaConsumerRecord<K, V
    * else returns empty. Must not be negative.
    */
   KafkaConsumer<K, V> pollTimeout(long timeout);
+
+  /**
+   * Set a rate limiter capping the records and bytes delivered by this consumer: while the limiter is in debt the
+   * fetching of the partitions is paused and the consumer keeps polling, so that it stays in its group. A limiter can
+   * be shared by several consumers and producers.
+   *
+   * @param rateLimiter the rate limiter, {@code null} for no limit
+   * @return current KafkaConsumer instance
+   */
+  @Fluent
+  KafkaConsumer<K, V> rateLimiter(KafkaRateLimiter rateLimiter);
+
+  /**
+   * Set a memory governor bounding the bytes of the records buffered by this consumer and the other consumers
+   * sharing it, the consumer pauses the fetching of its partitions while it holds more than its share of an
+   * exceeded budget. It must be set before the consumer is subscribed or assigned.
+   *
+   * @param governor the memory governor, {@code null} for no budget
+   * @return current KafkaConsumer instance
+   */
+  @Fluent
+  KafkaConsumer<K, V> memoryGovernor(KafkaMemoryGovernor governor);
 }
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2018 Red Hat Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.kafka.client.consumer;
+
+import io.vertx.core.Handler;
+import io.vertx.kafka.client.consumer.impl.KafkaDeduplicatorImpl;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+
+import java.util.Set;
+import java.util.function.ToLongFunction;
+
+/**
+ * Drops the records already delivered, to avoid duplicate side effects when records are consumed again after
+ * a seek, a retry or a failed commit.
+ * <p>
+ * A record is identified by a 64 bits identifier, its offset or a key extracted from it. Each partition remembers
+ * the identifiers of its last delivered records, up to a capacity: a duplicate arriving after more than this
+ * number of records is not detected. The identifiers are kept as primitive longs, about 24 bytes per record.
+ * <p>
+ * The state of a partition is evicted when it is revoked, its new owner cannot know which records were delivered
+ * here. A deduplicator is not thread safe, it must be used on the context of the stream.
+ */
+public interface KafkaDeduplicator<K, V> {
+
+  /**
+   * Create a deduplicator identifying the records by their offset.
+   *
+   * @param capacity the number of offsets remembered per partition
+   * @return an instance of the KafkaDeduplicator
+   */
+  static <K, V> KafkaDeduplicator<K, V> byOffset(int capacity) {
+    return new KafkaDeduplicatorImpl<>(ConsumerRecord::offset, capacity);
+  }
+
+  /**
+   * Create a deduplicator identifying the records by a key extracted from them, for instance a hash of
+   * a business identifier.
+   *
+   * @param keyExtractor the function extracting the identifier of a record
+   * @param capacity the number of identifiers remembered per partition
+   * @return an instance of the KafkaDeduplicator
+   */
+  static <K, V> KafkaDeduplicator<K, V> byKey(ToLongFunction<ConsumerRecord<K, V>> keyExtractor, int capacity) {
+    return new KafkaDeduplicatorImpl<>(keyExtractor, capacity);
+  }
+
+  /**
+   * Record the delivery of a record.
+   *
+   * @param record the record
+   * @return true if the record must be delivered, false if it is a duplicate
+   */
+  boolean accept(ConsumerRecord<K, V> record);
+
+  /**
+   * Evict the state of partitions.
+   *
+   * @param partitions the partitions
+   */
+  void evict(Set<TopicPartition> partitions);
+
+  /**
+   * @return the number of duplicates dropped so far
+   */
+  long duplicates();
+
+  /**
+   * Set the record handler of a stream so that only the accepted records are given to {@code handler}, and chain
+   * to its partitions revoked handler so that the revoked partitions are evicted before it is called. A revoked
+   * handler set on the stream afterwards must be chained the same way or call {@link #evict}.
+   *
+   * @param stream the stream to deduplicate
+   * @param handler the handler of the accepted records
+   * @return current KafkaDeduplicator instance
+   */
+  KafkaDeduplicator<K, V> install(KafkaReadStream<K, V> stream, Handler<ConsumerRecord<K, V>> handler);
+}
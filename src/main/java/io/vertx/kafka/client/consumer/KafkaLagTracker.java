@@ -0,0 +1,77 @@
+/*
+ * Copyright 2018 Red Hat Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.kafka.client.consumer;
+
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.TopicPartition;
+
+import java.util.Map;
+
+/**
+ * The lag of a {@link KafkaReadStream}, the number of records between the position of the last record delivered
+ * and the end of each assigned partition.
+ * <p>
+ * The end offsets of all the assigned partitions are refreshed together at a fixed interval, in a single request.
+ * The positions are tracked from the delivered records, so reading the lag never calls the broker. The refresh
+ * seeds the position of a partition which did not deliver a record yet, e.g newly assigned or seeked, with the
+ * position of the native consumer, the first delivered record then replaces it. The lag of a partition is as old
+ * as the last refresh of its end offset.
+ * <p>
+ * The tracker can be read from any thread.
+ */
+public interface KafkaLagTracker {
+
+  /**
+   * @return the interval between two refreshes of the end offsets in milliseconds
+   */
+  long interval();
+
+  /**
+   * @param partition the partition
+   * @return the lag of the partition, or {@code -1} when its end offset or its position is not known yet
+   */
+  long lag(TopicPartition partition);
+
+  /**
+   * @return the lag of the assigned partitions whose end offset and position are known
+   */
+  Map<TopicPartition, Long> lags();
+
+  /**
+   * @return the sum of the lag of the assigned partitions whose end offset and position are known
+   */
+  long totalLag();
+
+  /**
+   * Get the lag as Kafka metrics of the {@code vertx-kafka-lag-tracker} group, for reporting them along with the
+   * metrics of the native consumer: {@code records-lag-total} and a {@code records-lag} metric per assigned
+   * partition tagged with its {@code topic} and {@code partition}. The values are read when the metrics are.
+   *
+   * @return the lag metrics
+   */
+  Map<MetricName, ? extends Metric> metrics();
+
+  /**
+   * @return the end offsets of the last refresh
+   */
+  Map<TopicPartition, Long> endOffsets();
+
+  /**
+   * @return the time of the last refresh of the end offsets in milliseconds, or {@code 0} before the first one
+   */
+  long lastRefresh();
+}
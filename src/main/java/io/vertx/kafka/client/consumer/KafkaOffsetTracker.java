@@ -0,0 +1,120 @@
+/*
+ * Copyright 2018 Red Hat Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.kafka.client.consumer;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.kafka.client.consumer.impl.KafkaOffsetTrackerImpl;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tracks the records processed asynchronously or in parallel, completing in any order, to commit the offsets
+ * below which all the records of a partition are completed.
+ * <p>
+ * The offsets of each partition are kept in a sliding window of bits, about one bit per record in flight: the
+ * window is allocated with the given capacity, grows when the offsets in flight of a partition span more than it
+ * and shrinks back once they span less. A record that never completes keeps its partition window growing: pausing
+ * a partition while it is {@link #full full} bounds the memory. The committed offset advances in amortized constant
+ * time.
+ * <p>
+ * A record older than the last record received on its partition is a duplicate and is ignored. The state of a
+ * partition must be evicted when it is revoked or seeked, so that its tracking restarts from the next record
+ * received. A tracker is not thread safe, it must be used on the context of the stream.
+ */
+public interface KafkaOffsetTracker {
+
+  int DEFAULT_CAPACITY = 4096;
+
+  /**
+   * Create a new KafkaOffsetTracker instance
+   *
+   * @param capacity the number of offsets in flight per partition tracked without growing the window
+   * @return an instance of the KafkaOffsetTracker
+   */
+  static KafkaOffsetTracker create(int capacity) {
+    return new KafkaOffsetTrackerImpl(capacity);
+  }
+
+  /**
+   * Create a new KafkaOffsetTracker instance with the {@link #DEFAULT_CAPACITY}
+   *
+   * @return an instance of the KafkaOffsetTracker
+   */
+  static KafkaOffsetTracker create() {
+    return create(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Record the reception of a record, before its processing starts. A record older than the last received record
+   * of its partition is ignored.
+   *
+   * @param record the record
+   */
+  void received(ConsumerRecord<?, ?> record);
+
+  /**
+   * Record the completion of a record.
+   *
+   * @param record the record
+   */
+  void completed(ConsumerRecord<?, ?> record);
+
+  /**
+   * @param partition the partition
+   * @return the offset below which all the received records of the partition are completed, or {@code -1}
+   */
+  long watermark(TopicPartition partition);
+
+  /**
+   * @return the number of records received and not completed
+   */
+  int pending();
+
+  /**
+   * @param partition the partition
+   * @return true when the offsets in flight of the partition span the capacity, receiving more records grows its
+   *         window
+   */
+  boolean full(TopicPartition partition);
+
+  /**
+   * Evict the state of partitions, e.g when they are revoked or seeked.
+   *
+   * @param partitions the partitions
+   */
+  void evict(Set<TopicPartition> partitions);
+
+  /**
+   * Get the offsets to commit, the watermarks which advanced since the last successful {@link #commit commit}.
+   *
+   * @return the offsets to commit
+   */
+  Map<TopicPartition, OffsetAndMetadata> committable();
+
+  /**
+   * Commit the {@link #committable()} offsets with a stream, nothing is committed when no watermark advanced. The
+   * committed offsets are recorded once the commit succeeded, a failed commit is retried by the next one.
+   *
+   * @param stream the stream consuming the records
+   * @param completionHandler handler called on operation completed
+   */
+  void commit(KafkaReadStream<?, ?> stream, Handler<AsyncResult<Map<TopicPartition, OffsetAndMetadata>>> completionHandler);
+}
@@ -20,6 +20,10 @@ import io.vertx.core.AsyncResult;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
 import io.vertx.core.streams.ReadStream;
+import io.vertx.kafka.client.common.KafkaHistogram;
+import io.vertx.kafka.client.common.KafkaMemoryGovernor;
+import io.vertx.kafka.client.common.KafkaRateLimiter;
+import io.vertx.kafka.client.consumer.impl.FilteringDeserializers;
 import io.vertx.kafka.client.consumer.impl.KafkaReadStreamImpl;
 import io.vertx.kafka.client.serialization.VertxSerdes;
 import org.apache.kafka.clients.consumer.Consumer;
@@ -99,6 +103,40 @@ public interface KafkaReadStream<K, V> extends ReadStream<ConsumerRecord<K, V>>
     return create(vertx, new org.apache.kafka.clients.consumer.KafkaConsumer<>(config, keyDeserializer, valueDeserializer));
   }
 
+  /**
+   * Create a new KafkaReadStream instance only delivering the records accepted by a filter, the filter is
+   * evaluated against the raw key and the headers of each record before it gets deserialized.
+   *
+   * @param vertx Vert.x instance to use
+   * @param config  Kafka consumer configuration
+   * @param keyType class type for the key deserialization
+   * @param valueType class type for the value deserialization
+   * @param filter the filter selecting the records to deliver
+   * @return  an instance of the KafkaReadStream
+   */
+  static <K, V> KafkaReadStream<K, V> create(Vertx vertx, Map<String, Object> config, Class<K> keyType, Class<V> valueType, KafkaRecordFilter filter) {
+    Deserializer<K> keyDeserializer = VertxSerdes.serdeFrom(keyType).deserializer();
+    Deserializer<V> valueDeserializer = VertxSerdes.serdeFrom(valueType).deserializer();
+    return create(vertx, config, keyDeserializer, valueDeserializer, filter);
+  }
+
+  /**
+   * Create a new KafkaReadStream instance only delivering the records accepted by a filter, the filter is
+   * evaluated against the raw key and the headers of each record before it gets deserialized.
+   *
+   * @param vertx Vert.x instance to use
+   * @param config  Kafka consumer configuration
+   * @param keyDeserializer the key deserializer
+   * @param valueDeserializer the value deserializer
+   * @param filter the filter selecting the records to deliver
+   * @return  an instance of the KafkaReadStream
+   */
+  static <K, V> KafkaReadStream<K, V> create(Vertx vertx, Map<String, Object> config, Deserializer<K> keyDeserializer, Deserializer<V> valueDeserializer, KafkaRecordFilter filter) {
+    FilteringDeserializers<K, V> deserializers = new FilteringDeserializers<>(filter, keyDeserializer, valueDeserializer);
+    Consumer<K, V> consumer = new org.apache.kafka.clients.consumer.KafkaConsumer<>(config, deserializers.keyDeserializer(), deserializers.valueDeserializer());
+    return new KafkaReadStreamImpl<>(vertx.getOrCreateContext(), consumer, true);
+  }
+
   /**
    * Create a new KafkaReadStream instance
    *
@@ -119,7 +157,8 @@ public interface KafkaReadStream<K, V> extends ReadStream<ConsumerRecord<K, V>>
   void committed(TopicPartition topicPartition, Handler<AsyncResult<OffsetAndMetadata>> handler);
 
   /**
-   * Suspend fetching from the requested partitions.
+   * Suspend fetching from the requested partitions. The records of these partitions already fetched are not
+   * delivered anymore, they are kept and delivered when the partitions are resumed.
    *
    * @param topicPartitions topic partition from which suspend fetching
    * @return  current KafkaReadStream instance
@@ -194,7 +233,8 @@ public interface KafkaReadStream<K, V> extends ReadStream<ConsumerRecord<K, V>>
   KafkaReadStream<K, V> seekToBeginning(Set<TopicPartition> topicPartitions, Handler<AsyncResult<Void>> completionHandler);
 
   /**
-   * Overrides the fetch offsets that the consumer will use on the next poll.
+   * Overrides the fetch offsets that the consumer will use on the next poll. The records of the partition
+   * already fetched are dropped, the records of the other partitions are still delivered.
    *
    * @param topicPartition  topic partition for which seek
    * @param offset  offset to seek inside the topic partition
@@ -212,6 +252,44 @@ public interface KafkaReadStream<K, V> extends ReadStream<ConsumerRecord<K, V>>
    */
   KafkaReadStream<K, V> seek(TopicPartition topicPartition, long offset, Handler<AsyncResult<Void>> completionHandler);
 
+  /**
+   * Overrides the fetch offsets of several partitions at once, in a single consumer operation.
+   *
+   * @param offsets  the offset to seek of each topic partition
+   * @return  current KafkaReadStream instance
+   */
+  KafkaReadStream<K, V> seek(Map<TopicPartition, Long> offsets);
+
+  /**
+   * Overrides the fetch offsets of several partitions at once, in a single consumer operation.
+   *
+   * @param offsets  the offset to seek of each topic partition
+   * @param completionHandler handler called on operation completed
+   * @return  current KafkaReadStream instance
+   */
+  KafkaReadStream<K, V> seek(Map<TopicPartition, Long> offsets, Handler<AsyncResult<Void>> completionHandler);
+
+  /**
+   * Seek all the assigned partitions to the earliest offset whose timestamp is greater than or equal to the given
+   * timestamp, or to the end of the partitions having no such offset. The offsets are looked up and applied in
+   * a single consumer operation.
+   *
+   * @param timestamp  the timestamp in milliseconds
+   * @return  current KafkaReadStream instance
+   */
+  KafkaReadStream<K, V> seekToTimestamp(long timestamp);
+
+  /**
+   * Seek all the assigned partitions to the earliest offset whose timestamp is greater than or equal to the given
+   * timestamp, or to the end of the partitions having no such offset. The offsets are looked up and applied in
+   * a single consumer operation.
+   *
+   * @param timestamp  the timestamp in milliseconds
+   * @param completionHandler handler called on operation completed
+   * @return  current KafkaReadStream instance
+   */
+  KafkaReadStream<K, V> seekToTimestamp(long timestamp, Handler<AsyncResult<Void>> completionHandler);
+
   /**
    * Set the handler called when topic partitions are revoked to the consumer
    *
@@ -220,6 +298,11 @@ public interface KafkaReadStream<K, V> extends ReadStream<ConsumerRecord<K, V>>
    */
   KafkaReadStream<K, V> partitionsRevokedHandler(Handler<Set<TopicPartition>> handler);
 
+  /**
+   * @return the handler called when topic partitions are revoked to the consumer, for chaining another one to it
+   */
+  Handler<Set<TopicPartition>> partitionsRevokedHandler();
+
   /**
    * Set the handler called when topic partitions are assigned to the consumer
    *
@@ -228,6 +311,11 @@ public interface KafkaReadStream<K, V> extends ReadStream<ConsumerRecord<K, V>>
    */
   KafkaReadStream<K, V> partitionsAssignedHandler(Handler<Set<TopicPartition>> handler);
 
+  /**
+   * @return the handler called when topic partitions are assigned to the consumer, for chaining another one to it
+   */
+  Handler<Set<TopicPartition>> partitionsAssignedHandler();
+
   /**
    * Subscribe to the given list of topics to get dynamically assigned partitions.
    *
@@ -410,6 +498,16 @@ public interface KafkaReadStream<K, V> extends ReadStream<ConsumerRecord<K, V>>
    */
   Consumer<K, V> unwrap();
 
+  /**
+   * Fetch the specified {@code amount} of records. The stream delivers at most the requested amount of records to
+   * the handler and then stops, polling included, until more records are requested. Calling {@link #pause()} resets
+   * the amount to zero and {@link #resume()} lets the records flow again without limit.
+   *
+   * @param amount the number of records to add to the current demand
+   * @return current KafkaReadStream instance
+   */
+  KafkaReadStream<K, V> fetch(long amount);
+
   /**
    * Set the handler that will be called when a new batch of records is
    * returned from Kafka. Batch handlers need to take care not to block
@@ -432,4 +530,66 @@ public interface KafkaReadStream<K, V> extends ReadStream<ConsumerRecord<K, V>>
    * else returns empty. Must not be negative.
    */
   KafkaReadStream<K, V> pollTimeout(long timeout);
+
+  /**
+   * Set a rate limiter capping the records and bytes delivered by this stream: while the limiter is in debt the
+   * fetching of the partitions is paused and the stream keeps polling, so that it stays in its group. The byte size
+   * of a record is its serialized key and value size.
+   *
+   * @param rateLimiter the rate limiter, {@code null} for no limit
+   * @return current KafkaReadStream instance
+   */
+  KafkaReadStream<K, V> rateLimiter(KafkaRateLimiter rateLimiter);
+
+  /**
+   * Set a memory governor bounding the bytes of the records buffered by this stream and the other streams sharing
+   * it, the stream pauses the fetching of its partitions while it holds more than its share of an exceeded budget.
+   * It must be set before the stream is subscribed or assigned.
+   *
+   * @param governor the memory governor, {@code null} for no budget
+   * @return current KafkaReadStream instance
+   */
+  KafkaReadStream<K, V> memoryGovernor(KafkaMemoryGovernor governor);
+
+  /**
+   * Time each invocation of the record handler and of the batch handler, and call {@code handler} for those taking
+   * longer than the threshold. A slow handler delays the delivery of the records of all the partitions.
+   *
+   * @param threshold the threshold in milliseconds, negative to stop timing the handlers
+   * @param handler the handler called with the slow invocations
+   * @return current KafkaReadStream instance
+   */
+  KafkaReadStream<K, V> slowHandlerDetection(long threshold, Handler<KafkaSlowHandlerEvent> handler);
+
+  /**
+   * When enabled with the {@link #slowHandlerDetection(long, Handler)}, a partition whose record handler exceeds the
+   * threshold is switched to a worker thread: its records are then delivered one at a time on a thread dedicated to
+   * the stream while the other partitions go on being delivered on the context. The offloaded records are handled in
+   * order, one at a time across all the offloaded partitions, and the fetching of an offloaded partition is paused
+   * until its buffered records are handled. Enabling it opts into concurrent handling: the record handler is called
+   * on the context and on the worker thread at the same time, it must then be thread safe.
+   *
+   * @param offload whether slow partitions are switched to a worker thread
+   * @return current KafkaReadStream instance
+   */
+  KafkaReadStream<K, V> offloadSlowPartitions(boolean offload);
+
+  /**
+   * @return the time spent in the record handler per topic in nanoseconds, recorded while slow handlers are detected
+   */
+  Map<String, KafkaHistogram> handlerTime();
+
+  /**
+   * @return the time spent in the batch handler in nanoseconds, recorded while slow handlers are detected
+   */
+  KafkaHistogram batchHandlerTime();
+
+  /**
+   * Get the lag tracker of this stream, the lag is tracked from the first call of this method which refreshes the
+   * end offsets of the assigned partitions at the given interval. The following calls return the same tracker.
+   *
+   * @param interval the interval between two refreshes of the end offsets in milliseconds
+   * @return the lag tracker
+   */
+  KafkaLagTracker lagTracker(long interval);
 }
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2018 Red Hat Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.kafka.client.consumer;
+
+import org.apache.kafka.common.header.Headers;
+
+/**
+ * A predicate selecting the records delivered by a {@link KafkaReadStream}, evaluated on the raw record
+ * before its key and value are deserialized.
+ * <p>
+ * The filter is called by the consumer while polling, on the consumer thread: it must be fast and must not block.
+ * The records it rejects are never deserialized nor delivered, their offsets are still consumed and committed
+ * like the ones of the delivered records.
+ */
+@FunctionalInterface
+public interface KafkaRecordFilter {
+
+  /**
+   * @param topic the topic of the record
+   * @param headers the headers of the record
+   * @param key the raw key of the record, {@code null} when the record has no key
+   * @return true to deliver the record, false to skip it
+   */
+  boolean test(String topic, Headers headers, byte[] key);
+}
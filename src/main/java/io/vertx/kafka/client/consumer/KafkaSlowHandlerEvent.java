@@ -0,0 +1,85 @@
+/*
+ * Copyright 2018 Red Hat Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.kafka.client.consumer;
+
+/**
+ * A record or batch handler invocation of a {@link KafkaReadStream}, or a write completion handler invocation of a
+ * {@link io.vertx.kafka.client.producer.KafkaWriteStream}, which took longer than the threshold.
+ */
+public final class KafkaSlowHandlerEvent {
+
+  private final String topic;
+  private final int partition;
+  private final long offset;
+  private final long duration;
+  private final boolean offloaded;
+
+  public KafkaSlowHandlerEvent(String topic, int partition, long offset, long duration, boolean offloaded) {
+    this.topic = topic;
+    this.partition = partition;
+    this.offset = offset;
+    this.duration = duration;
+    this.offloaded = offloaded;
+  }
+
+  /**
+   * @return the topic of the record, {@code null} for the batch handler
+   */
+  public String topic() {
+    return this.topic;
+  }
+
+  /**
+   * @return the partition of the record, {@code -1} for the batch handler and the failed writes
+   */
+  public int partition() {
+    return this.partition;
+  }
+
+  /**
+   * @return the offset of the record, {@code -1} for the batch handler and the failed writes
+   */
+  public long offset() {
+    return this.offset;
+  }
+
+  /**
+   * @return the duration of the invocation in nanoseconds
+   */
+  public long duration() {
+    return this.duration;
+  }
+
+  /**
+   * @return whether the records of the partition are delivered on a worker thread from now on, always false for
+   * the write completion handlers
+   */
+  public boolean offloaded() {
+    return this.offloaded;
+  }
+
+  @Override
+  public String toString() {
+
+    return "KafkaSlowHandlerEvent{" +
+      "topic=" + this.topic +
+      ", partition=" + this.partition +
+      ", offset=" + this.offset +
+      ", duration=" + this.duration +
+      ", offloaded=" + this.offloaded +
+      "}";
+  }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2018 Red Hat Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.kafka.client.consumer.impl;
+
+import io.vertx.kafka.client.consumer.KafkaRecordFilter;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.ExtendedDeserializer;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Key and value deserializers applying a {@link KafkaRecordFilter} before deserializing a record.
+ * <p>
+ * The consumer deserializes the key then the value of a record with the same headers instance, on the polling
+ * thread: the key deserializer evaluates the filter and the value deserializer reuses its outcome. A rejected
+ * record gets the {@link #SKIPPED} marker as key or value instead of being deserialized, the read stream then
+ * removes it from the polled records with {@link #removeSkipped(ConsumerRecords)}.
+ * <p>
+ * The consumer does not call the deserializers for a record without key nor value, such a record is always
+ * delivered.
+ */
+public class FilteringDeserializers<K, V> {
+
+  /**
+   * Marker replacing the key or the value of a rejected record
+   */
+  static final Object SKIPPED = new Object();
+
+  private final KafkaRecordFilter filter;
+  private final ExtendedDeserializer<K> keyDeserializer;
+  private final ExtendedDeserializer<V> valueDeserializer;
+  // outcome of the filter for the record whose key was last deserialized, only accessed by the polling thread
+  private Headers filteredHeaders;
+  private boolean accepted;
+
+  public FilteringDeserializers(KafkaRecordFilter filter, Deserializer<K> keyDeserializer, Deserializer<V> valueDeserializer) {
+    this.filter = filter;
+    this.keyDeserializer = ExtendedDeserializer.Wrapper.ensureExtended(keyDeserializer);
+    this.valueDeserializer = ExtendedDeserializer.Wrapper.ensureExtended(valueDeserializer);
+  }
+
+  /**
+   * @return the key deserializer to give to the consumer
+   */
+  public Deserializer<K> keyDeserializer() {
+    return new ExtendedDeserializer<K>() {
+      @Override
+      public void configure(Map<String, ?> configs, boolean isKey) {
+        keyDeserializer.configure(configs, isKey);
+      }
+
+      @Override
+      @SuppressWarnings("unchecked")
+      public K deserialize(String topic, Headers headers, byte[] data) {
+        filteredHeaders = headers;
+        accepted = filter.test(topic, headers, data);
+        return accepted ? keyDeserializer.deserialize(topic, headers, data) : (K) SKIPPED;
+      }
+
+      @Override
+      public K deserialize(String topic, byte[] data) {
+        return keyDeserializer.deserialize(topic, data);
+      }
+
+      @Override
+      public void close() {
+        keyDeserializer.close();
+      }
+    };
+  }
+
+  /**
+   * @return the value deserializer to give to the consumer
+   */
+  public Deserializer<V> valueDeserializer() {
+    return new ExtendedDeserializer<V>() {
+      @Override
+      public void configure(Map<String, ?> configs, boolean isKey) {
+        valueDeserializer.configure(configs, isKey);
+      }
+
+      @Override
+      @SuppressWarnings("unchecked")
+      public V deserialize(String topic, Headers headers, byte[] data) {
+        boolean accept;
+        if (filteredHeaders == headers) {
+          accept = accepted;
+        } else {
+          // the record has no key, the key deserializer was not called
+          accept = filter.test(topic, headers, null);
+        }
+        filteredHeaders = null;
+        return accept ? valueDeserializer.deserialize(topic, headers, data) : (V) SKIPPED;
+      }
+
+      @Override
+      public V deserialize(String topic, byte[] data) {
+        return valueDeserializer.deserialize(topic, data);
+      }
+
+      @Override
+      public void close() {
+        valueDeserializer.close();
+      }
+    };
+  }
+
+  private static boolean skipped(ConsumerRecord<?, ?> record) {
+    return record.key() == SKIPPED || record.value() == SKIPPED;
+  }
+
+  /**
+   * Remove the records rejected by the filter.
+   *
+   * @param records the polled records
+   * @return the accepted records, {@code records} itself when none was rejected
+   */
+  static <K, V> ConsumerRecords<K, V> removeSkipped(ConsumerRecords<K, V> records) {
+    boolean any = false;
+    for (ConsumerRecord<K, V> record : records) {
+      if (skipped(record)) {
+        any = true;
+        break;
+      }
+    }
+    if (!any) {
+      return records;
+    }
+    Map<TopicPartition, List<ConsumerRecord<K, V>>> accepted = new LinkedHashMap<>();
+    for (TopicPartition partition : records.partitions()) {
+      List<ConsumerRecord<K, V>> list = records.records(partition);
+      List<ConsumerRecord<K, V>> kept = new ArrayList<>(list.size());
+      for (ConsumerRecord<K, V> record : list) {
+        if (!skipped(record)) {
+          kept.add(record);
+        }
+      }
+      if (!kept.isEmpty()) {
+        accepted.put(partition, kept);
+      }
+    }
+    return new ConsumerRecords<>(accepted);
+  }
+}
@@ -24,6 +24,9 @@ import io.vertx.core.Vertx;
 import io.vertx.kafka.client.consumer.OffsetAndTimestamp;
 import io.vertx.kafka.client.common.impl.CloseHandler;
 import io.vertx.kafka.client.common.impl.Helper;
+import io.vertx.kafka.client.common.impl.TopicMetadataCache;
+import io.vertx.kafka.client.common.KafkaMemoryGovernor;
+import io.vertx.kafka.client.common.KafkaRateLimiter;
 import io.vertx.kafka.client.common.PartitionInfo;
 import io.vertx.kafka.client.common.TopicPartition;
 import io.vertx.kafka.client.consumer.KafkaConsumer;
@@ -33,15 +36,11 @@ import io.vertx.kafka.client.consumer.KafkaReadStream;
 import io.vertx.kafka.client.consumer.OffsetAndMetadata;
 import org.apache.kafka.clients.consumer.Consumer;
 
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 /**
  * Vert.x Kafka consumer implementation
@@ -50,10 +49,12 @@ public class KafkaConsumerImpl<K, V> implements KafkaConsumer<K, V> {
 
   private final KafkaReadStream<K, V> stream;
   private final CloseHandler closeHandler;
+  private final TopicMetadataCache metadataCache;
 
   public KafkaConsumerImpl(KafkaReadStream<K, V> stream) {
     this.stream = stream;
     this.closeHandler = new CloseHandler((timeout, ar) -> stream.close(ar));
+    this.metadataCache = new TopicMetadataCache(stream::partitionsFor);
   }
 
   public synchronized KafkaConsumerImpl<K, V> registerCloseHook() {
@@ -93,6 +94,12 @@ public class KafkaConsumerImpl<K, V> implements KafkaConsumer<K, V> {
     return this;
   }
 
+  @Override
+  public KafkaConsumer<K, V> fetch(long amount) {
+    this.stream.fetch(amount);
+    return this;
+  }
+
   @Override
   public KafkaConsumer<K, V> pause(Set<TopicPartition> topicPartitions) {
     return this.pause(topicPartitions, null);
@@ -210,31 +217,9 @@ public class KafkaConsumerImpl<K, V> implements KafkaConsumer<K, V> {
     this.stream.listTopics(done -> {
 
       if (done.succeeded()) {
-        // TODO: use Helper class and stream approach
         Map<String,List<PartitionInfo>> topics = new HashMap<>();
-
         for (Map.Entry<String,List<org.apache.kafka.common.PartitionInfo>> topicEntry: done.result().entrySet()) {
-
-          List<PartitionInfo> partitions = new ArrayList<>();
-
-          for (org.apache.kafka.common.PartitionInfo kafkaPartitionInfo: topicEntry.getValue()) {
-
-            PartitionInfo partitionInfo = new PartitionInfo();
-
-            partitionInfo
-              .setInSyncReplicas(
-                Stream.of(kafkaPartitionInfo.inSyncReplicas()).map(Helper::from).collect(Collectors.toList()))
-              .setLeader(Helper.from(kafkaPartitionInfo.leader()))
-              .setPartition(kafkaPartitionInfo.partition())
-              .setReplicas(
-                Stream.of(kafkaPartitionInfo.replicas()).map(Helper::from).collect(Collectors.toList()))
-              .setTopic(kafkaPartitionInfo.topic());
-
-            partitions.add(partitionInfo);
-
-          }
-
-          topics.put(topicEntry.getKey(), partitions);
+          topics.put(topicEntry.getKey(), Helper.from(topicEntry.getValue()));
         }
         handler.handle(Future.succeededFuture(topics));
       } else {
@@ -290,6 +275,28 @@ public class KafkaConsumerImpl<K, V> implements KafkaConsumer<K, V> {
     return this;
   }
 
+  @Override
+  public KafkaConsumer<K, V> seek(Map<TopicPartition, Long> offsets) {
+    return this.seek(offsets, null);
+  }
+
+  @Override
+  public KafkaConsumer<K, V> seek(Map<TopicPartition, Long> offsets, Handler<AsyncResult<Void>> completionHandler) {
+    this.stream.seek(Helper.toTopicPartitionTimes(offsets), completionHandler);
+    return this;
+  }
+
+  @Override
+  public KafkaConsumer<K, V> seekToTimestamp(long timestamp) {
+    return this.seekToTimestamp(timestamp, null);
+  }
+
+  @Override
+  public KafkaConsumer<K, V> seekToTimestamp(long timestamp, Handler<AsyncResult<Void>> completionHandler) {
+    this.stream.seekToTimestamp(timestamp, completionHandler);
+    return this;
+  }
+
   @Override
   public KafkaConsumer<K, V> seekToBeginning(TopicPartition topicPartition) {
     return this.seekToBeginning(Collections.singleton(topicPartition));
@@ -376,32 +383,13 @@ public class KafkaConsumerImpl<K, V> implements KafkaConsumer<K, V> {
 
   @Override
   public KafkaConsumer<K, V> partitionsFor(String topic, Handler<AsyncResult<List<PartitionInfo>>> handler) {
+    this.metadataCache.partitionsFor(topic, handler);
+    return this;
+  }
 
-    this.stream.partitionsFor(topic, done -> {
-
-      if (done.succeeded()) {
-        // TODO: use Helper class and stream approach
-        List<PartitionInfo> partitions = new ArrayList<>();
-        for (org.apache.kafka.common.PartitionInfo kafkaPartitionInfo: done.result()) {
-
-          PartitionInfo partitionInfo = new PartitionInfo();
-
-          partitionInfo
-            .setInSyncReplicas(
-              Stream.of(kafkaPartitionInfo.inSyncReplicas()).map(Helper::from).collect(Collectors.toList()))
-            .setLeader(Helper.from(kafkaPartitionInfo.leader()))
-            .setPartition(kafkaPartitionInfo.partition())
-            .setReplicas(
-              Stream.of(kafkaPartitionInfo.replicas()).map(Helper::from).collect(Collectors.toList()))
-            .setTopic(kafkaPartitionInfo.topic());
-
-          partitions.add(partitionInfo);
-        }
-        handler.handle(Future.succeededFuture(partitions));
-      } else {
-        handler.handle(Future.failedFuture(done.cause()));
-      }
-    });
+  @Override
+  public KafkaConsumer<K, V> metadataCacheTtl(long ttl) {
+    this.metadataCache.ttl(ttl);
     return this;
   }
 
@@ -468,19 +456,7 @@ public class KafkaConsumerImpl<K, V> implements KafkaConsumer<K, V> {
 
   @Override
   public void beginningOffsets(TopicPartition topicPartition, Handler<AsyncResult<Long>> handler) {
-    Set<TopicPartition> beginningOffsets = new HashSet<>();
-    beginningOffsets.add(topicPartition);
-    this.stream.beginningOffsets(Helper.to(beginningOffsets), done -> {
-      if(done.succeeded()) {
-        // We know that this will result in exactly one iteration
-        for(long beginningOffset : done.result().values()) {
-          handler.handle(Future.succeededFuture(beginningOffset));
-          break;
-        }
-      } else {
-        handler.handle(Future.failedFuture(done.cause()));
-      }
-    });
+    this.stream.beginningOffsets(Helper.to(topicPartition), handler);
   }
 
   @Override
@@ -496,18 +472,7 @@ public class KafkaConsumerImpl<K, V> implements KafkaConsumer<K, V> {
 
   @Override
   public void endOffsets(TopicPartition topicPartition, Handler<AsyncResult<Long>> handler) {
-    Set<TopicPartition> topicPartitions = new HashSet<>();
-    topicPartitions.add(topicPartition);
-    this.stream.endOffsets(Helper.to(topicPartitions), done -> {
-      if(done.succeeded()) {
-        for(long endOffset : done.result().values()) {
-          handler.handle(Future.succeededFuture(endOffset));
-          break;
-        }
-      } else {
-        handler.handle(Future.failedFuture(done.cause()));
-      }
-    });
+    this.stream.endOffsets(Helper.to(topicPartition), handler);
   }
 
   @Override
@@ -522,9 +487,13 @@ public class KafkaConsumerImpl<K, V> implements KafkaConsumer<K, V> {
 
   @Override
   public KafkaConsumer<K, V> batchHandler(Handler<KafkaConsumerRecords<K, V>> handler) {
-    stream.batchHandler(records -> {
-      handler.handle(new KafkaConsumerRecordsImpl<>(records));
-    });
+    if (handler != null) {
+      stream.batchHandler(records -> {
+        handler.handle(new KafkaConsumerRecordsImpl<>(records));
+      });
+    } else {
+      stream.batchHandler(null);
+    }
     return this;
   }
 
@@ -533,4 +502,16 @@ public class KafkaConsumerImpl<K, V> implements KafkaConsumer<K, V> {
     this.stream.pollTimeout(timeout);
     return this;
   }
+
+  @Override
+  public KafkaConsumer<K, V> rateLimiter(KafkaRateLimiter rateLimiter) {
+    this.stream.rateLimiter(rateLimiter);
+    return this;
+  }
+
+  @Override
+  public KafkaConsumer<K, V> memoryGovernor(KafkaMemoryGovernor governor) {
+    this.stream.memoryGovernor(governor);
+    return this;
+  }
 }
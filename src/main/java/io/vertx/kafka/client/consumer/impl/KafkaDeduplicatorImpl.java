@@ -0,0 +1,92 @@
+/*
+ * Copyright 2018 Red Hat Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.kafka.client.consumer.impl;
+
+import io.vertx.core.Handler;
+import io.vertx.kafka.client.common.impl.Helper;
+import io.vertx.kafka.client.consumer.KafkaDeduplicator;
+import io.vertx.kafka.client.consumer.KafkaReadStream;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ToLongFunction;
+
+/**
+ * Kafka deduplicator implementation, with a window of identifiers per partition
+ */
+public class KafkaDeduplicatorImpl<K, V> implements KafkaDeduplicator<K, V> {
+
+  private final ToLongFunction<ConsumerRecord<K, V>> keyExtractor;
+  private final int capacity;
+  private final Map<TopicPartition, LongWindowSet> partitions = new HashMap<>();
+  private long duplicates;
+
+  public KafkaDeduplicatorImpl(ToLongFunction<ConsumerRecord<K, V>> keyExtractor, int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Capacity must be positive");
+    }
+    this.keyExtractor = keyExtractor;
+    this.capacity = capacity;
+  }
+
+  @Override
+  public boolean accept(ConsumerRecord<K, V> record) {
+    TopicPartition partition = Helper.to(record.topic(), record.partition());
+    LongWindowSet seen = this.partitions.get(partition);
+    if (seen == null) {
+      seen = new LongWindowSet(this.capacity);
+      this.partitions.put(partition, seen);
+    }
+    if (seen.add(this.keyExtractor.applyAsLong(record))) {
+      return true;
+    }
+    this.duplicates++;
+    return false;
+  }
+
+  @Override
+  public void evict(Set<TopicPartition> partitions) {
+    for (TopicPartition partition : partitions) {
+      this.partitions.remove(partition);
+    }
+  }
+
+  @Override
+  public long duplicates() {
+    return this.duplicates;
+  }
+
+  @Override
+  public KafkaDeduplicator<K, V> install(KafkaReadStream<K, V> stream, Handler<ConsumerRecord<K, V>> handler) {
+    Handler<Set<TopicPartition>> revokedHandler = stream.partitionsRevokedHandler();
+    stream.partitionsRevokedHandler(partitions -> {
+      this.evict(partitions);
+      if (revokedHandler != null) {
+        revokedHandler.handle(partitions);
+      }
+    });
+    stream.handler(record -> {
+      if (this.accept(record)) {
+        handler.handle(record);
+      }
+    });
+    return this;
+  }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2018 Red Hat Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.kafka.client.consumer.impl;
+
+import io.vertx.kafka.client.consumer.KafkaLagTracker;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.TopicPartition;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Kafka lag tracker implementation, the positions are recorded on the context and the end offsets on the
+ * consumer thread.
+ */
+public class KafkaLagTrackerImpl implements KafkaLagTracker {
+
+  private static final String METRIC_GROUP = "vertx-kafka-lag-tracker";
+
+  private static class LagMetric implements Metric {
+
+    private final MetricName name;
+    private final LongSupplier lag;
+
+    LagMetric(MetricName name, LongSupplier lag) {
+      this.name = name;
+      this.lag = lag;
+    }
+
+    @Override
+    public MetricName metricName() {
+      return this.name;
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public double value() {
+      return this.lag.getAsLong();
+    }
+
+    @Override
+    public Object metricValue() {
+      return (double) this.lag.getAsLong();
+    }
+  }
+
+  private final long interval;
+  // the offset following the last delivered record
+  private final ConcurrentMap<TopicPartition, AtomicLong> positions = new ConcurrentHashMap<>();
+  private volatile Map<TopicPartition, Long> endOffsets = Collections.emptyMap();
+  private volatile long lastRefresh;
+
+  KafkaLagTrackerImpl(long interval) {
+    if (interval < 1) {
+      throw new IllegalArgumentException("Interval must be positive");
+    }
+    this.interval = interval;
+  }
+
+  void delivered(TopicPartition partition, long offset) {
+    AtomicLong position = this.positions.get(partition);
+    if (position == null) {
+      position = this.positions.computeIfAbsent(partition, p -> new AtomicLong());
+    }
+    position.lazySet(offset + 1);
+  }
+
+  /**
+   * Forget the positions of partitions which are seeked or revoked, of all of them when the set is empty.
+   */
+  void forget(Set<TopicPartition> partitions) {
+    if (partitions.isEmpty()) {
+      this.positions.clear();
+    } else {
+      this.positions.keySet().removeAll(partitions);
+    }
+  }
+
+  /**
+   * Refresh the end offsets of the assigned partitions, must be called on the consumer thread.
+   */
+  void refresh(Consumer<?, ?> consumer) {
+    Set<TopicPartition> assignment = consumer.assignment();
+    this.positions.keySet().retainAll(assignment);
+    for (TopicPartition partition : assignment) {
+      if (!this.positions.containsKey(partition)) {
+        // a partition which did not deliver a record yet starts from the consumer position, a delivered record
+        // replaces it
+        try {
+          this.positions.putIfAbsent(partition, new AtomicLong(consumer.position(partition)));
+        } catch (KafkaException e) {
+          // left unknown until the next refresh
+        }
+      }
+    }
+    this.endOffsets = assignment.isEmpty() ? Collections.emptyMap() : new HashMap<>(consumer.endOffsets(assignment));
+    this.lastRefresh = System.currentTimeMillis();
+  }
+
+  @Override
+  public long interval() {
+    return this.interval;
+  }
+
+  @Override
+  public long lag(TopicPartition partition) {
+    Long end = this.endOffsets.get(partition);
+    AtomicLong position = this.positions.get(partition);
+    if (end == null || position == null) {
+      return -1;
+    }
+    return Math.max(0, end - position.get());
+  }
+
+  @Override
+  public Map<TopicPartition, Long> lags() {
+    Map<TopicPartition, Long> lags = new HashMap<>();
+    for (TopicPartition partition : this.endOffsets.keySet()) {
+      long lag = this.lag(partition);
+      if (lag != -1) {
+        lags.put(partition, lag);
+      }
+    }
+    return lags;
+  }
+
+  @Override
+  public long totalLag() {
+    long total = 0;
+    for (TopicPartition partition : this.endOffsets.keySet()) {
+      total += Math.max(0, this.lag(partition));
+    }
+    return total;
+  }
+
+  @Override
+  public Map<MetricName, ? extends Metric> metrics() {
+    Map<MetricName, Metric> metrics = new LinkedHashMap<>();
+    MetricName total = new MetricName("records-lag-total", METRIC_GROUP,
+      "The sum of the lag of the assigned partitions whose position is known", Collections.emptyMap());
+    metrics.put(total, new LagMetric(total, this::totalLag));
+    for (TopicPartition partition : this.endOffsets.keySet()) {
+      Map<String, String> tags = new LinkedHashMap<>();
+      tags.put("topic", partition.topic());
+      tags.put("partition", String.valueOf(partition.partition()));
+      MetricName name = new MetricName("records-lag", METRIC_GROUP,
+        "The lag of the partition, -1 when its position is not known", tags);
+      metrics.put(name, new LagMetric(name, () -> this.lag(partition)));
+    }
+    return metrics;
+  }
+
+  @Override
+  public Map<TopicPartition, Long> endOffsets() {
+    return Collections.unmodifiableMap(this.endOffsets);
+  }
+
+  @Override
+  public long lastRefresh() {
+    return this.lastRefresh;
+  }
+}
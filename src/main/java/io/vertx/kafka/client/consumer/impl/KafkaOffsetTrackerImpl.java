@@ -0,0 +1,151 @@
+/*
+ * Copyright 2018 Red Hat Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.kafka.client.consumer.impl;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.kafka.client.common.impl.Helper;
+import io.vertx.kafka.client.consumer.KafkaOffsetTracker;
+import io.vertx.kafka.client.consumer.KafkaReadStream;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Kafka offset tracker implementation, with a window of offsets per partition
+ */
+public class KafkaOffsetTrackerImpl implements KafkaOffsetTracker {
+
+  private static class PartitionState {
+
+    final OffsetWindow window;
+    long committed = -1;
+
+    PartitionState(int capacity) {
+      this.window = new OffsetWindow(capacity);
+    }
+  }
+
+  private final int capacity;
+  private final Map<TopicPartition, PartitionState> partitions = new HashMap<>();
+  private int pending;
+
+  public KafkaOffsetTrackerImpl(int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Capacity must be positive");
+    }
+    this.capacity = capacity;
+  }
+
+  @Override
+  public void received(ConsumerRecord<?, ?> record) {
+    TopicPartition partition = Helper.to(record.topic(), record.partition());
+    PartitionState state = this.partitions.get(partition);
+    if (state == null) {
+      state = new PartitionState(this.capacity);
+      // nothing to commit until a record is completed
+      state.committed = record.offset();
+      this.partitions.put(partition, state);
+    }
+    if (state.window.received(record.offset())) {
+      this.pending++;
+    }
+  }
+
+  @Override
+  public void completed(ConsumerRecord<?, ?> record) {
+    PartitionState state = this.partitions.get(Helper.to(record.topic(), record.partition()));
+    if (state != null) {
+      int before = state.window.pending();
+      state.window.completed(record.offset());
+      this.pending += state.window.pending() - before;
+    }
+  }
+
+  @Override
+  public long watermark(TopicPartition partition) {
+    PartitionState state = this.partitions.get(partition);
+    return state != null ? state.window.watermark() : -1;
+  }
+
+  @Override
+  public int pending() {
+    return this.pending;
+  }
+
+  @Override
+  public boolean full(TopicPartition partition) {
+    PartitionState state = this.partitions.get(partition);
+    return state != null && state.window.full();
+  }
+
+  @Override
+  public void evict(Set<TopicPartition> partitions) {
+    for (TopicPartition partition : partitions) {
+      PartitionState state = this.partitions.remove(partition);
+      if (state != null) {
+        this.pending -= state.window.pending();
+      }
+    }
+  }
+
+  @Override
+  public Map<TopicPartition, OffsetAndMetadata> committable() {
+    Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+    for (Map.Entry<TopicPartition, PartitionState> entry : this.partitions.entrySet()) {
+      PartitionState state = entry.getValue();
+      long watermark = state.window.watermark();
+      if (watermark != state.committed) {
+        offsets.put(entry.getKey(), new OffsetAndMetadata(watermark));
+      }
+    }
+    return offsets;
+  }
+
+  @Override
+  public void commit(KafkaReadStream<?, ?> stream, Handler<AsyncResult<Map<TopicPartition, OffsetAndMetadata>>> completionHandler) {
+    Map<TopicPartition, OffsetAndMetadata> offsets = this.committable();
+    if (offsets.isEmpty()) {
+      if (completionHandler != null) {
+        completionHandler.handle(Future.succeededFuture(offsets));
+      }
+      return;
+    }
+    // the states committed, a partition evicted in the meantime gets a new state
+    Map<TopicPartition, PartitionState> states = new HashMap<>();
+    for (TopicPartition partition : offsets.keySet()) {
+      states.put(partition, this.partitions.get(partition));
+    }
+    stream.commit(offsets, ar -> {
+      if (ar.succeeded()) {
+        for (Map.Entry<TopicPartition, OffsetAndMetadata> entry : offsets.entrySet()) {
+          PartitionState state = states.get(entry.getKey());
+          if (this.partitions.get(entry.getKey()) == state) {
+            state.committed = entry.getValue().offset();
+          }
+        }
+      }
+      if (completionHandler != null) {
+        completionHandler.handle(ar);
+      }
+    });
+  }
+}
@@ -20,8 +20,15 @@ import io.vertx.core.AsyncResult;
 import io.vertx.core.Context;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.kafka.client.common.KafkaRateLimiter;
+import io.vertx.kafka.client.common.KafkaHistogram;
+import io.vertx.kafka.client.common.KafkaMemoryAccount;
+import io.vertx.kafka.client.common.KafkaMemoryGovernor;
 import io.vertx.kafka.client.common.impl.Helper;
+import io.vertx.kafka.client.consumer.KafkaLagTracker;
 import io.vertx.kafka.client.consumer.KafkaReadStream;
+import io.vertx.kafka.client.consumer.KafkaSlowHandlerEvent;
 import org.apache.kafka.clients.consumer.Consumer;
 import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
@@ -33,17 +40,25 @@ import org.apache.kafka.common.PartitionInfo;
 import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.errors.WakeupException;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BiConsumer;
 
 /**
@@ -52,28 +67,63 @@ import java.util.function.BiConsumer;
 public class KafkaReadStreamImpl<K, V> implements KafkaReadStream<K, V> {
 
   private static final AtomicInteger threadCount = new AtomicInteger(0);
+  private static final long PARKED = -1L;
 
   private final Context context;
   private final AtomicBoolean closed = new AtomicBoolean(true);
   private final Consumer<K, V> consumer;
+  // whether the consumer deserializers filter records, see FilteringDeserializers
+  private final boolean filtering;
 
   private final AtomicBoolean consuming = new AtomicBoolean(false);
-  private final AtomicBoolean paused = new AtomicBoolean(false);
+  // number of records the handler can still be given, Long.MAX_VALUE when flowing; PARKED once the dispatch loop
+  // found no demand left and stopped (polling included), the fetch raising the demand again then restarts it
+  private final AtomicLong demand = new AtomicLong(Long.MAX_VALUE);
   private Handler<ConsumerRecord<K, V>> recordHandler;
   private Handler<Throwable> exceptionHandler;
-  private Iterator<ConsumerRecord<K, V>> current; // Accessed on event loop
+  // records polled and not delivered yet per partition, in poll order; accessed on event loop
+  private final Map<TopicPartition, ArrayDeque<ConsumerRecord<K, V>>> buffers = new LinkedHashMap<>();
+  // partitions whose buffered records are not delivered
+  private final Set<TopicPartition> pausedPartitions = ConcurrentHashMap.newKeySet();
   private Handler<ConsumerRecords<K, V>> batchHandler;
   private Handler<Set<TopicPartition>> partitionsRevokedHandler;
   private Handler<Set<TopicPartition>> partitionsAssignedHandler;
   private long pollTimeout = 1000L;
+  private volatile KafkaRateLimiter rateLimiter;
+  private volatile KafkaLagTrackerImpl lagTracker;
+  private volatile KafkaMemoryAccount memoryAccount;
+  private Set<TopicPartition> throttledPartitions = Collections.emptySet(); // Accessed on the consumer thread
+  private long lagTimerId = -1;
+  // slow handler detection
+  private volatile long slowHandlerThreshold = -1;
+  private volatile Handler<KafkaSlowHandlerEvent> slowHandler;
+  private volatile boolean offloadSlowPartitions;
+  private final ConcurrentMap<String, KafkaHistogram> handlerTime = new ConcurrentHashMap<>();
+  private final KafkaHistogram batchHandlerTime = new KafkaHistogram();
+  // partitions delivered on worker threads, and those with a record being handled; accessed on event loop
+  private final Set<TopicPartition> offloadedPartitions = new HashSet<>();
+  private final Set<TopicPartition> busyPartitions = new HashSet<>();
+  // offloaded partitions paused at the consumer until their buffered records are handled
+  private final Set<TopicPartition> heldPartitions = ConcurrentHashMap.newKeySet();
 
   private ExecutorService worker;
+  // the thread handling the records of the offloaded partitions, created on the first one; accessed on event loop
+  private ExecutorService offloader;
 
   private final ConsumerRebalanceListener rebalanceListener =  new ConsumerRebalanceListener() {
 
     @Override
     public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
 
+      // before the records of the poll in progress
+      Set<TopicPartition> revoked = Helper.toSet(partitions);
+      pausedPartitions.removeAll(revoked);
+      heldPartitions.removeAll(revoked);
+      context.runOnContext(v -> {
+        discard(revoked);
+        offloadedPartitions.removeAll(revoked);
+      });
+
       Handler<Set<TopicPartition>> handler = partitionsRevokedHandler;
       if (handler != null) {
         context.runOnContext(v -> {
@@ -95,8 +145,13 @@ public class KafkaReadStreamImpl<K, V> implements KafkaReadStream<K, V> {
   };
 
   public KafkaReadStreamImpl(Context context, Consumer<K, V> consumer) {
+    this(context, consumer, false);
+  }
+
+  public KafkaReadStreamImpl(Context context, Consumer<K, V> consumer, boolean filtering) {
     this.context = context;
     this.consumer = consumer;
+    this.filtering = filtering;
   }
 
   private <T> void start(java.util.function.BiConsumer<Consumer<K, V>, Future<T>> task, Handler<AsyncResult<T>> handler) {
@@ -133,11 +188,27 @@ public class KafkaReadStreamImpl<K, V> implements KafkaReadStream<K, V> {
     });
   }
 
-  private void pollRecords(Handler<ConsumerRecords<K, V>> handler) {
+  private void pollRecords(long timeout, Handler<ConsumerRecords<K, V>> handler) {
     this.worker.submit(() -> {
       if (!this.closed.get()) {
         try {
-          ConsumerRecords<K, V> records = this.consumer.poll(pollTimeout);
+          KafkaMemoryAccount account = this.memoryAccount;
+          KafkaRateLimiter limiter = this.rateLimiter;
+          if (account != null || limiter != null) {
+            // resume once the buffered records are drained and the limiter debt is repaid
+            this.throttle(account, limiter);
+          }
+          ConsumerRecords<K, V> polled = this.consumer.poll(timeout);
+          ConsumerRecords<K, V> records = this.filtering && polled != null ? FilteringDeserializers.removeSkipped(polled) : polled;
+          if (account != null && records != null && records.count() > 0) {
+            long bytes = 0;
+            for (ConsumerRecord<K, V> record : records) {
+              bytes += size(record);
+            }
+            account.acquire(bytes);
+            // stop the fetches of the native consumer while these records are delivered
+            this.throttle(account, limiter);
+          }
           if (records != null && records.count() > 0) {
             this.context.runOnContext(v -> handler.handle(records));
           } else {
@@ -154,9 +225,36 @@ public class KafkaReadStreamImpl<K, V> implements KafkaReadStream<K, V> {
     });
   }
 
+  /**
+   * Pause the fetching of the partitions not paused by the user while the account is over budget or the limiter is
+   * in debt, resume them otherwise. Must be called on the consumer thread.
+   */
+  private void throttle(KafkaMemoryAccount account, KafkaRateLimiter limiter) {
+    boolean overBudget = account != null && account.isOverBudget();
+    boolean throttled = overBudget || (limiter != null && limiter.delay() > 0);
+    if (throttled && this.throttledPartitions.isEmpty()) {
+      Set<TopicPartition> partitions = new HashSet<>(this.consumer.assignment());
+      partitions.removeAll(this.consumer.paused());
+      if (!partitions.isEmpty()) {
+        this.consumer.pause(partitions);
+        this.throttledPartitions = partitions;
+      }
+    } else if (!throttled && !this.throttledPartitions.isEmpty()) {
+      Set<TopicPartition> partitions = this.throttledPartitions;
+      partitions.retainAll(this.consumer.assignment());
+      partitions.removeAll(this.pausedPartitions);
+      partitions.removeAll(this.heldPartitions);
+      this.consumer.resume(partitions);
+      this.throttledPartitions = Collections.emptySet();
+    }
+    if (account != null) {
+      account.throttled(overBudget && !this.throttledPartitions.isEmpty());
+    }
+  }
+
   private void schedule(long delay) {
     if (this.consuming.get()
-        && !this.paused.get()
+        && this.demand.get() != PARKED
         && this.recordHandler != null) {
 
       Handler<ConsumerRecord<K, V>> handler = this.recordHandler;
@@ -177,14 +275,34 @@ public class KafkaReadStreamImpl<K, V> implements KafkaReadStream<K, V> {
       return;
     }
 
-    if (this.current == null || !this.current.hasNext()) {
+    Map.Entry<TopicPartition, ArrayDeque<ConsumerRecord<K, V>>> buffer = this.nextBuffer();
+    KafkaRateLimiter limiter = this.rateLimiter;
+    long debt = limiter != null ? limiter.delay() : 0;
+    if (buffer == null || debt > 0) {
 
-      this.pollRecords(records -> {
+      // don't poll more records than requested
+      if (!this.hasDemand()) {
+        return;
+      }
+
+      // while the limiter is in debt the partitions are paused at the consumer: the stream keeps polling to stay
+      // in its group and delivers the buffered records once the debt is repaid
+      this.pollRecords(debt > 0 ? Math.min(this.pollTimeout, debt) : this.pollTimeout, records -> {
 
         if (records != null && records.count() > 0) {
-          this.current = records.iterator();
+          for (TopicPartition partition : records.partitions()) {
+            this.buffers.computeIfAbsent(partition, p -> new ArrayDeque<>()).addAll(records.records(partition));
+          }
+          Handler<ConsumerRecords<K, V>> batchHandler = this.batchHandler;
           if (batchHandler != null) {
-            batchHandler.handle(records);
+            long threshold = this.slowHandlerThreshold;
+            if (threshold >= 0) {
+              long start = System.nanoTime();
+              batchHandler.handle(records);
+              this.batchHandled(System.nanoTime() - start, threshold);
+            } else {
+              batchHandler.handle(records);
+            }
           }
           this.schedule(0);
         } else {
@@ -195,21 +313,254 @@ public class KafkaReadStreamImpl<K, V> implements KafkaReadStream<K, V> {
     } else {
 
       int count = 0;
-      while (this.current.hasNext() && count++ < 10) {
+      while (buffer != null && count++ < 10) {
 
         // to honor the Vert.x ReadStream contract, handler should not be called if stream is paused
-        if (this.paused.get())
-          break;
+        if (!this.takeDemand()) {
+          return;
+        }
 
-        ConsumerRecord<K, V> next = this.current.next();
-        if (handler != null) {
-          handler.handle(next);
+        long delay = this.deliver(buffer.getKey(), buffer.getValue().poll(), handler);
+        if (delay > 0) {
+          // poll until the limiter debt is repaid
+          break;
         }
+        // the handler may have paused the partition
+        buffer = this.nextBuffer();
       }
       this.schedule(0);
     }
   }
 
+  /**
+   * Deliver a buffered record to the handler.
+   *
+   * @return the delay imposed by the rate limiter before the next record is delivered
+   */
+  private long deliver(TopicPartition partition, ConsumerRecord<K, V> record, Handler<ConsumerRecord<K, V>> handler) {
+    long delay = this.taken(partition, record);
+    if (handler != null) {
+      long threshold = this.slowHandlerThreshold;
+      if (threshold < 0) {
+        handler.handle(record);
+      } else if (this.offloadedPartitions.contains(partition)) {
+        this.offload(partition, record, handler, threshold, delay);
+      } else {
+        long start = System.nanoTime();
+        handler.handle(record);
+        this.handled(partition, record, System.nanoTime() - start, threshold);
+      }
+    }
+    return delay;
+  }
+
+  /**
+   * Account a record taken from its buffer.
+   *
+   * @return the delay imposed by the rate limiter before the next record is delivered
+   */
+  private long taken(TopicPartition partition, ConsumerRecord<K, V> record) {
+    KafkaLagTrackerImpl tracker = this.lagTracker;
+    if (tracker != null) {
+      tracker.delivered(partition, record.offset());
+    }
+    KafkaMemoryAccount account = this.memoryAccount;
+    if (account != null) {
+      account.release(size(record));
+    }
+    KafkaRateLimiter limiter = this.rateLimiter;
+    return limiter != null ? limiter.acquire(1, size(record)) : 0;
+  }
+
+  /**
+   * @return the buffer of the first partition not paused nor busy having records to deliver, or null
+   */
+  private Map.Entry<TopicPartition, ArrayDeque<ConsumerRecord<K, V>>> nextBuffer() {
+    Iterator<Map.Entry<TopicPartition, ArrayDeque<ConsumerRecord<K, V>>>> it = this.buffers.entrySet().iterator();
+    while (it.hasNext()) {
+      Map.Entry<TopicPartition, ArrayDeque<ConsumerRecord<K, V>>> entry = it.next();
+      if (entry.getValue().isEmpty()) {
+        it.remove();
+      } else if (!this.pausedPartitions.contains(entry.getKey()) && !this.busyPartitions.contains(entry.getKey())) {
+        return entry;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Deliver a record of an offloaded partition on the offloading thread of the stream, in order with the other
+   * offloaded records and without holding the ordered blocking tasks of the context. The partition is paused at the
+   * consumer and its next record is delivered once the record is handled.
+   */
+  private void offload(TopicPartition partition, ConsumerRecord<K, V> record, Handler<ConsumerRecord<K, V>> handler, long threshold, long delay) {
+    this.busyPartitions.add(partition);
+    if (this.heldPartitions.add(partition)) {
+      this.submitTaskWhenStarted((consumer, future) -> {
+        if (consumer.assignment().contains(partition)) {
+          consumer.pause(Collections.singleton(partition));
+        }
+      }, null);
+    }
+    if (this.offloader == null) {
+      this.offloader = Executors.newSingleThreadExecutor(r -> new Thread(r, "vert.x-kafka-offload-thread-" + threadCount.getAndIncrement()));
+    }
+    this.offloader.submit(() -> {
+      long start = System.nanoTime();
+      Throwable failure = null;
+      try {
+        handler.handle(record);
+      } catch (Throwable t) {
+        failure = t;
+      }
+      long duration = System.nanoTime() - start;
+      Throwable cause = failure;
+      this.context.runOnContext(v -> {
+        if (cause == null) {
+          this.handled(partition, record, duration, threshold);
+        } else if (this.exceptionHandler != null) {
+          this.exceptionHandler.handle(cause);
+        }
+        if (delay > 0) {
+          // the partition stays busy until the limiter debt is repaid
+          this.context.owner().setTimer(delay, id -> this.offloaded(partition, handler));
+        } else {
+          this.offloaded(partition, handler);
+        }
+      });
+    });
+  }
+
+  /**
+   * Deliver the next buffered record of an offloaded partition once its record is handled, without waiting for the
+   * poll in progress. The partition is resumed at the consumer once its buffer is drained.
+   */
+  private void offloaded(TopicPartition partition, Handler<ConsumerRecord<K, V>> handler) {
+    this.busyPartitions.remove(partition);
+    if (this.closed.get()) {
+      return;
+    }
+    ArrayDeque<ConsumerRecord<K, V>> buffer = this.buffers.get(partition);
+    long threshold = this.slowHandlerThreshold;
+    if (buffer != null && !buffer.isEmpty() && threshold >= 0 && this.offloadedPartitions.contains(partition)) {
+      // otherwise the dispatch loop delivers it once the partition is resumed or records are requested
+      if (!this.pausedPartitions.contains(partition) && this.takeDemand()) {
+        ConsumerRecord<K, V> next = buffer.poll();
+        long delay = this.taken(partition, next);
+        this.offload(partition, next, handler, threshold, delay);
+      }
+    } else if (this.heldPartitions.remove(partition)) {
+      this.submitTaskWhenStarted((consumer, future) -> {
+        if (consumer.assignment().contains(partition)
+            && !this.pausedPartitions.contains(partition)
+            && !this.throttledPartitions.contains(partition)) {
+          consumer.resume(Collections.singleton(partition));
+        }
+      }, null);
+    }
+  }
+
+  private void handled(TopicPartition partition, ConsumerRecord<K, V> record, long duration, long threshold) {
+    KafkaHistogram histogram = this.handlerTime.get(record.topic());
+    if (histogram == null) {
+      histogram = this.handlerTime.computeIfAbsent(record.topic(), t -> new KafkaHistogram());
+    }
+    histogram.record(duration);
+    if (duration > threshold) {
+      boolean offloaded = this.offloadSlowPartitions && this.offloadedPartitions.add(partition);
+      Handler<KafkaSlowHandlerEvent> handler = this.slowHandler;
+      if (handler != null) {
+        handler.handle(new KafkaSlowHandlerEvent(record.topic(), record.partition(), record.offset(), duration, offloaded));
+      }
+    }
+  }
+
+  private void batchHandled(long duration, long threshold) {
+    this.batchHandlerTime.record(duration);
+    Handler<KafkaSlowHandlerEvent> handler = this.slowHandler;
+    if (duration > threshold && handler != null) {
+      handler.handle(new KafkaSlowHandlerEvent(null, -1, -1, duration, false));
+    }
+  }
+
+  /**
+   * Run an action on the context, synchronously when called from it (e.g from the record handler) so that
+   * no buffered record is delivered in between.
+   */
+  private void onContext(Runnable action) {
+    if (Vertx.currentContext() == this.context) {
+      action.run();
+    } else {
+      this.context.runOnContext(v -> action.run());
+    }
+  }
+
+  /**
+   * Drop the buffered records of partitions, of all of them when the set is empty like the consumer seeks do.
+   */
+  private void discard(Set<TopicPartition> partitions) {
+    KafkaMemoryAccount account = this.memoryAccount;
+    Iterator<Map.Entry<TopicPartition, ArrayDeque<ConsumerRecord<K, V>>>> it = this.buffers.entrySet().iterator();
+    while (it.hasNext()) {
+      Map.Entry<TopicPartition, ArrayDeque<ConsumerRecord<K, V>>> entry = it.next();
+      if (partitions.isEmpty() || partitions.contains(entry.getKey())) {
+        if (account != null) {
+          long bytes = 0;
+          for (ConsumerRecord<K, V> record : entry.getValue()) {
+            bytes += size(record);
+          }
+          account.release(bytes);
+        }
+        it.remove();
+      }
+    }
+    KafkaLagTrackerImpl tracker = this.lagTracker;
+    if (tracker != null) {
+      // the positions are read again from the consumer
+      tracker.forget(partitions);
+    }
+  }
+
+  private static long size(ConsumerRecord<?, ?> record) {
+    return Math.max(0, record.serializedKeySize()) + Math.max(0, record.serializedValueSize());
+  }
+
+  /**
+   * @return true if records can be delivered, otherwise the dispatch loop is parked and must stop
+   */
+  private boolean hasDemand() {
+    while (true) {
+      long current = this.demand.get();
+      if (current > 0) {
+        return true;
+      }
+      if (current == PARKED || this.demand.compareAndSet(0, PARKED)) {
+        return false;
+      }
+    }
+  }
+
+  /**
+   * Consume one unit of demand to deliver a record.
+   *
+   * @return true if the record can be delivered, otherwise the dispatch loop is parked and must stop
+   */
+  private boolean takeDemand() {
+    while (true) {
+      long current = this.demand.get();
+      if (current == Long.MAX_VALUE) {
+        return true;
+      }
+      if (current > 0) {
+        if (this.demand.compareAndSet(current, current - 1)) {
+          return true;
+        }
+      } else if (current == PARKED || this.demand.compareAndSet(0, PARKED)) {
+        return false;
+      }
+    }
+  }
+
   protected <T> void submitTask(java.util.function.BiConsumer<Consumer<K, V>, Future<T>> task,
       Handler<AsyncResult<T>> handler) {
     if (this.closed.compareAndSet(true, false)) {
@@ -227,6 +578,8 @@ public class KafkaReadStreamImpl<K, V> implements KafkaReadStream<K, V> {
   @Override
   public KafkaReadStream<K, V> pause(Set<TopicPartition> topicPartitions, Handler<AsyncResult<Void>> completionHandler) {
 
+    // the buffered records of the partitions are kept until they are resumed
+    this.pausedPartitions.addAll(topicPartitions);
     this.submitTask((consumer, future) -> {
       consumer.pause(topicPartitions);
       if (future != null) {
@@ -256,8 +609,14 @@ public class KafkaReadStreamImpl<K, V> implements KafkaReadStream<K, V> {
   @Override
   public KafkaReadStream<K, V> resume(Set<TopicPartition> topicPartitions, Handler<AsyncResult<Void>> completionHandler) {
 
+    this.pausedPartitions.removeAll(topicPartitions);
     this.submitTask((consumer, future) -> {
-      consumer.resume(topicPartitions);
+      // the offloaded partitions are resumed once their buffered records are handled
+      Set<TopicPartition> partitions = new HashSet<>(topicPartitions);
+      partitions.removeAll(this.heldPartitions);
+      // the partitions throttled by the governor or the rate limiter are resumed by the poll loop
+      partitions.removeAll(this.throttledPartitions);
+      consumer.resume(partitions);
       if (future != null) {
         future.complete();
       }
@@ -284,11 +643,12 @@ public class KafkaReadStreamImpl<K, V> implements KafkaReadStream<K, V> {
 
   @Override
   public KafkaReadStream<K, V> seekToEnd(Set<TopicPartition> topicPartitions, Handler<AsyncResult<Void>> completionHandler) {
+    this.onContext(() -> this.discard(topicPartitions));
     this.context.runOnContext(r -> {
-      current = null;
-
       this.submitTask((consumer, future) -> {
         consumer.seekToEnd(topicPartitions);
+        // the polls completed before the seek may have buffered records meanwhile
+        this.context.runOnContext(v -> this.discard(topicPartitions));
         if (future != null) {
           future.complete();
         }
@@ -304,11 +664,11 @@ public class KafkaReadStreamImpl<K, V> implements KafkaReadStream<K, V> {
 
   @Override
   public KafkaReadStream<K, V> seekToBeginning(Set<TopicPartition> topicPartitions, Handler<AsyncResult<Void>> completionHandler) {
+    this.onContext(() -> this.discard(topicPartitions));
     this.context.runOnContext(r -> {
-      current = null;
-
       this.submitTask((consumer, future) -> {
         consumer.seekToBeginning(topicPartitions);
+        this.context.runOnContext(v -> this.discard(topicPartitions));
         if (future != null) {
           future.complete();
         }
@@ -324,11 +684,11 @@ public class KafkaReadStreamImpl<K, V> implements KafkaReadStream<K, V> {
 
   @Override
   public KafkaReadStream<K, V> seek(TopicPartition topicPartition, long offset, Handler<AsyncResult<Void>> completionHandler) {
+    this.onContext(() -> this.discard(Collections.singleton(topicPartition)));
     this.context.runOnContext(r -> {
-      current = null;
-
       this.submitTask((consumer, future) -> {
         consumer.seek(topicPartition, offset);
+        this.context.runOnContext(v -> this.discard(Collections.singleton(topicPartition)));
         if (future != null) {
           future.complete();
         }
@@ -338,18 +698,95 @@ public class KafkaReadStreamImpl<K, V> implements KafkaReadStream<K, V> {
     return this;
   }
 
+  @Override
+  public KafkaReadStream<K, V> seek(Map<TopicPartition, Long> offsets) {
+    return this.seek(offsets, null);
+  }
+
+  @Override
+  public KafkaReadStream<K, V> seek(Map<TopicPartition, Long> offsets, Handler<AsyncResult<Void>> completionHandler) {
+    Map<TopicPartition, Long> copy = new HashMap<>(offsets);
+    if (!copy.isEmpty()) {
+      this.onContext(() -> this.discard(copy.keySet()));
+    }
+    this.context.runOnContext(r -> {
+      this.submitTask((consumer, future) -> {
+        for (Map.Entry<TopicPartition, Long> offset : copy.entrySet()) {
+          consumer.seek(offset.getKey(), offset.getValue());
+        }
+        if (!copy.isEmpty()) {
+          this.context.runOnContext(v -> this.discard(copy.keySet()));
+        }
+        if (future != null) {
+          future.complete();
+        }
+      }, completionHandler);
+    });
+    return this;
+  }
+
+  @Override
+  public KafkaReadStream<K, V> seekToTimestamp(long timestamp) {
+    return this.seekToTimestamp(timestamp, null);
+  }
+
+  @Override
+  public KafkaReadStream<K, V> seekToTimestamp(long timestamp, Handler<AsyncResult<Void>> completionHandler) {
+    // all the assigned partitions are seeked
+    this.onContext(() -> this.discard(Collections.emptySet()));
+    this.context.runOnContext(r -> {
+      this.submitTask((consumer, future) -> {
+        Set<TopicPartition> assignment = consumer.assignment();
+        if (!assignment.isEmpty()) {
+          Map<TopicPartition, Long> timestamps = new HashMap<>();
+          for (TopicPartition partition : assignment) {
+            timestamps.put(partition, timestamp);
+          }
+          Map<TopicPartition, OffsetAndTimestamp> offsets = consumer.offsetsForTimes(timestamps);
+          List<TopicPartition> ends = new ArrayList<>();
+          for (TopicPartition partition : assignment) {
+            OffsetAndTimestamp offset = offsets.get(partition);
+            if (offset != null) {
+              consumer.seek(partition, offset.offset());
+            } else {
+              ends.add(partition);
+            }
+          }
+          if (!ends.isEmpty()) {
+            consumer.seekToEnd(ends);
+          }
+          this.context.runOnContext(v -> this.discard(Collections.emptySet()));
+        }
+        if (future != null) {
+          future.complete();
+        }
+      }, completionHandler);
+    });
+    return this;
+  }
+
   @Override
   public KafkaReadStream<K, V> partitionsRevokedHandler(Handler<Set<TopicPartition>> handler) {
     this.partitionsRevokedHandler = handler;
     return this;
   }
 
+  @Override
+  public Handler<Set<TopicPartition>> partitionsRevokedHandler() {
+    return this.partitionsRevokedHandler;
+  }
+
   @Override
   public KafkaReadStream<K, V> partitionsAssignedHandler(Handler<Set<TopicPartition>> handler) {
     this.partitionsAssignedHandler = handler;
     return this;
   }
 
+  @Override
+  public Handler<Set<TopicPartition>> partitionsAssignedHandler() {
+    return this.partitionsAssignedHandler;
+  }
+
   @Override
   public KafkaReadStream<K, V> subscribe(Set<String> topics) {
     return subscribe(topics, null);
@@ -520,16 +957,41 @@ public class KafkaReadStreamImpl<K, V> implements KafkaReadStream<K, V> {
 
   @Override
   public KafkaReadStreamImpl<K, V> pause() {
-    this.paused.set(true);
-    return this;
+    while (true) {
+      long current = this.demand.get();
+      if (current <= 0 || this.demand.compareAndSet(current, 0)) {
+        return this;
+      }
+    }
   }
 
   @Override
   public KafkaReadStreamImpl<K, V> resume() {
-    if (this.paused.compareAndSet(true, false)) {
-      this.schedule(0);
+    return this.fetch(Long.MAX_VALUE);
+  }
+
+  @Override
+  public KafkaReadStreamImpl<K, V> fetch(long amount) {
+    if (amount < 0) {
+      throw new IllegalArgumentException("Invalid amount: " + amount);
+    }
+    if (amount == 0) {
+      return this;
+    }
+    while (true) {
+      long current = this.demand.get();
+      long next = (current == PARKED ? 0 : current) + amount;
+      if (next < 0) {
+        next = Long.MAX_VALUE;
+      }
+      if (this.demand.compareAndSet(current, next)) {
+        // only a parked loop must be restarted, a running one sees the new demand by itself
+        if (current == PARKED) {
+          this.schedule(0);
+        }
+        return this;
+      }
     }
-    return this;
   }
 
   private KafkaReadStreamImpl<K, V> startConsuming() {
@@ -545,11 +1007,21 @@ public class KafkaReadStreamImpl<K, V> implements KafkaReadStream<K, V> {
 
   @Override
   public void close(Handler<AsyncResult<Void>> completionHandler) {
+    if (this.lagTimerId != -1) {
+      this.context.owner().cancelTimer(this.lagTimerId);
+    }
+    KafkaMemoryAccount account = this.memoryAccount;
+    if (account != null) {
+      account.close();
+    }
     if (this.closed.compareAndSet(false, true)) {
       this.worker.submit(() -> {
         this.consumer.close();
         this.context.runOnContext(v -> {
           this.worker.shutdownNow();
+          if (this.offloader != null) {
+            this.offloader.shutdownNow();
+          }
           if (completionHandler != null) {
             completionHandler.handle(Future.succeededFuture());
           }
@@ -611,9 +1083,7 @@ public class KafkaReadStreamImpl<K, V> implements KafkaReadStream<K, V> {
   @Override
   public void beginningOffsets(TopicPartition topicPartition, Handler<AsyncResult<Long>> handler) {
     this.submitTask((consumer, future) -> {
-      Set<TopicPartition> input = new HashSet<>();
-      input.add(topicPartition);
-      Map<TopicPartition, Long> beginningOffsets = this.consumer.beginningOffsets(input);
+      Map<TopicPartition, Long> beginningOffsets = this.consumer.beginningOffsets(Collections.singleton(topicPartition));
       if (future != null) {
         future.complete(beginningOffsets.get(topicPartition));
       }
@@ -633,9 +1103,7 @@ public class KafkaReadStreamImpl<K, V> implements KafkaReadStream<K, V> {
   @Override
   public void endOffsets(TopicPartition topicPartition, Handler<AsyncResult<Long>> handler) {
     this.submitTask((consumer, future) -> {
-      Set<TopicPartition> input = new HashSet<>();
-      input.add(topicPartition);
-      Map<TopicPartition, Long> endOffsets = this.consumer.endOffsets(input);
+      Map<TopicPartition, Long> endOffsets = this.consumer.endOffsets(Collections.singleton(topicPartition));
       if (future != null) {
         future.complete(endOffsets.get(topicPartition));
       }
@@ -657,4 +1125,58 @@ public class KafkaReadStreamImpl<K, V> implements KafkaReadStream<K, V> {
     this.pollTimeout = timeout;
     return this;
   }
+
+  @Override
+  public KafkaReadStream<K, V> rateLimiter(KafkaRateLimiter rateLimiter) {
+    this.rateLimiter = rateLimiter;
+    return this;
+  }
+
+  @Override
+  public KafkaReadStream<K, V> slowHandlerDetection(long threshold, Handler<KafkaSlowHandlerEvent> handler) {
+    this.slowHandler = handler;
+    this.slowHandlerThreshold = threshold >= 0 ? TimeUnit.MILLISECONDS.toNanos(threshold) : -1;
+    return this;
+  }
+
+  @Override
+  public KafkaReadStream<K, V> offloadSlowPartitions(boolean offload) {
+    this.offloadSlowPartitions = offload;
+    return this;
+  }
+
+  @Override
+  public Map<String, KafkaHistogram> handlerTime() {
+    return Collections.unmodifiableMap(this.handlerTime);
+  }
+
+  @Override
+  public KafkaHistogram batchHandlerTime() {
+    return this.batchHandlerTime;
+  }
+
+  @Override
+  public KafkaReadStream<K, V> memoryGovernor(KafkaMemoryGovernor governor) {
+    KafkaMemoryAccount account = this.memoryAccount;
+    if (account != null) {
+      account.close();
+    }
+    this.memoryAccount = governor != null ? governor.register() : null;
+    return this;
+  }
+
+  @Override
+  public KafkaLagTracker lagTracker(long interval) {
+    if (this.lagTracker == null) {
+      KafkaLagTrackerImpl tracker = new KafkaLagTrackerImpl(interval);
+      this.lagTracker = tracker;
+      this.lagTimerId = this.context.owner().setPeriodic(interval, id -> {
+        // a closed stream would be started again by a task
+        if (!this.closed.get()) {
+          this.submitTask((consumer, future) -> tracker.refresh(consumer), null);
+        }
+      });
+    }
+    return this.lagTracker;
+  }
 }
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2018 Red Hat Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.kafka.client.consumer.impl;
+
+import java.util.Arrays;
+
+/**
+ * A set of primitive longs holding the last added values only: once full, adding a value evicts the oldest one.
+ * <p>
+ * The values are kept in an open addressing hash table with linear probing, sized at twice the capacity, and
+ * in a ring recording the insertion order. Not thread safe.
+ */
+public class LongWindowSet {
+
+  private static final long FREE = Long.MIN_VALUE;
+
+  private final long[] table;
+  private final int mask;
+  private final long[] ring;
+  private int head;
+  private int size;
+  // FREE marks the empty slots of the table, this value is tracked apart
+  private boolean containsFree;
+
+  public LongWindowSet(int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Capacity must be positive");
+    }
+    int tableSize = Integer.highestOneBit(Math.max(2, capacity * 2 - 1)) << 1;
+    this.table = new long[tableSize];
+    Arrays.fill(this.table, FREE);
+    this.mask = tableSize - 1;
+    this.ring = new long[capacity];
+  }
+
+  /**
+   * @return the number of values in the set
+   */
+  public int size() {
+    return this.size;
+  }
+
+  public boolean contains(long value) {
+    if (value == FREE) {
+      return this.containsFree;
+    }
+    for (int i = this.slot(value); ; i = (i + 1) & this.mask) {
+      long current = this.table[i];
+      if (current == value) {
+        return true;
+      }
+      if (current == FREE) {
+        return false;
+      }
+    }
+  }
+
+  /**
+   * Add a value, evicting the oldest value when the set is full.
+   *
+   * @return true if the value was added, false if it was already in the set
+   */
+  public boolean add(long value) {
+    if (this.contains(value)) {
+      return false;
+    }
+    if (this.size == this.ring.length) {
+      this.remove(this.ring[this.head]);
+    } else {
+      this.size++;
+    }
+    this.ring[this.head] = value;
+    this.head = (this.head + 1) % this.ring.length;
+    if (value == FREE) {
+      this.containsFree = true;
+    } else {
+      int i = this.slot(value);
+      while (this.table[i] != FREE) {
+        i = (i + 1) & this.mask;
+      }
+      this.table[i] = value;
+    }
+    return true;
+  }
+
+  private void remove(long value) {
+    if (value == FREE) {
+      this.containsFree = false;
+      return;
+    }
+    int i = this.slot(value);
+    while (this.table[i] != value) {
+      i = (i + 1) & this.mask;
+    }
+    // shift back the following values of the probe sequence so that lookups never stop on the freed slot
+    int free = i;
+    for (int j = (i + 1) & this.mask; this.table[j] != FREE; j = (j + 1) & this.mask) {
+      int home = this.slot(this.table[j]);
+      if (((j - home) & this.mask) >= ((j - free) & this.mask)) {
+        this.table[free] = this.table[j];
+        free = j;
+      }
+    }
+    this.table[free] = FREE;
+  }
+
+  private int slot(long value) {
+    long h = value * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32)) & this.mask;
+  }
+}
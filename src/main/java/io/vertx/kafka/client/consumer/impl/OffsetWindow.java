@@ -0,0 +1,194 @@
+/*
+ * Copyright 2018 Red Hat Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.kafka.client.consumer.impl;
+
+import java.util.Arrays;
+
+/**
+ * The offsets of a partition being processed, completing in any order, and the watermark below which all the
+ * offsets are completed.
+ * <p>
+ * The offsets between the watermark and the last received offset are kept in a ring of bits, a set bit marks an
+ * offset received and not completed yet, the offsets never received (e.g compacted) are cleared bits. The
+ * watermark skips the cleared bits a word at a time, each offset is passed once so it advances in amortized
+ * constant time. The ring grows when the received offsets span more than its capacity and shrinks back towards its
+ * initial capacity once the span drops below a quarter of it, so a stuck offset only holds the memory while it is
+ * pending. Not thread safe.
+ */
+public class OffsetWindow {
+
+  private final int minWords;
+  private long[] words;
+  private long mask;
+  // all the offsets below are completed
+  private long watermark = -1;
+  // the offset following the last received one
+  private long next = -1;
+  private int pending;
+
+  public OffsetWindow(int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Capacity must be positive");
+    }
+    this.minWords = Math.max(1, Integer.highestOneBit(capacity * 2 - 1) >> 6);
+    this.words = new long[this.minWords];
+    this.mask = (this.words.length << 6) - 1;
+  }
+
+  /**
+   * @return the offset to commit, all the offsets below are completed, or -1 before any offset is received
+   */
+  public long watermark() {
+    return this.watermark;
+  }
+
+  /**
+   * @return the number of offsets received and not completed
+   */
+  public int pending() {
+    return this.pending;
+  }
+
+  /**
+   * @return the number of offsets the ring holds without growing
+   */
+  public int capacity() {
+    return this.words.length << 6;
+  }
+
+  /**
+   * @return true when the received offsets span the initial capacity, the ring grows with the next offset: the
+   *         caller can pause the reception until it is no longer full
+   */
+  public boolean full() {
+    return this.next - this.watermark >= this.minWords << 6;
+  }
+
+  /**
+   * Record the reception of an offset. An offset below the last received one is a duplicate, pending or already
+   * completed, and is ignored: the window must be {@link #reset() reset} to receive older offsets, e.g after a seek.
+   *
+   * @return false if the offset was ignored
+   */
+  public boolean received(long offset) {
+    if (offset < this.next) {
+      return false;
+    }
+    if (this.next == -1) {
+      this.watermark = offset;
+    } else if (this.pending == 0) {
+      // the offsets in between were never received
+      this.watermark = offset;
+    }
+    if (offset - this.watermark > this.mask) {
+      int size = this.words.length;
+      while ((long) size << 6 <= offset - this.watermark) {
+        size <<= 1;
+      }
+      this.resize(size);
+    }
+    int bit = (int) (offset & this.mask);
+    this.words[bit >>> 6] |= 1L << bit;
+    this.next = offset + 1;
+    this.pending++;
+    return true;
+  }
+
+  /**
+   * Record the completion of an offset, the offsets not pending are ignored.
+   *
+   * @return true if the watermark advanced
+   */
+  public boolean completed(long offset) {
+    if (offset < this.watermark || offset >= this.next) {
+      return false;
+    }
+    int bit = (int) (offset & this.mask);
+    long word = this.words[bit >>> 6];
+    if ((word & (1L << bit)) == 0) {
+      return false;
+    }
+    this.words[bit >>> 6] = word & ~(1L << bit);
+    this.pending--;
+    if (offset != this.watermark) {
+      return false;
+    }
+    this.advance();
+    if (this.words.length > this.minWords) {
+      this.shrink();
+    }
+    return true;
+  }
+
+  private void advance() {
+    if (this.pending == 0) {
+      this.watermark = this.next;
+      return;
+    }
+    // a pending offset remains, so the scan stops before next
+    long offset = this.watermark;
+    while (true) {
+      int bit = (int) (offset & this.mask);
+      long word = this.words[bit >>> 6] >>> (bit & 63);
+      if (word != 0) {
+        this.watermark = offset + Long.numberOfTrailingZeros(word);
+        return;
+      }
+      offset += 64 - (bit & 63);
+    }
+  }
+
+  private void shrink() {
+    // the ring is halved while the span fits in a quarter of it, so that it does not grow back right away
+    long span = this.next - this.watermark;
+    int size = this.words.length;
+    while (size > this.minWords && span << 2 <= (long) size << 6) {
+      size >>= 1;
+    }
+    if (size != this.words.length) {
+      this.resize(size);
+    }
+  }
+
+  private void resize(int size) {
+    long[] words = new long[size];
+    long mask = ((long) size << 6) - 1;
+    for (long offset = this.watermark; offset < this.next; offset++) {
+      int bit = (int) (offset & this.mask);
+      if ((this.words[bit >>> 6] & (1L << bit)) != 0) {
+        int to = (int) (offset & mask);
+        words[to >>> 6] |= 1L << to;
+      }
+    }
+    this.words = words;
+    this.mask = mask;
+  }
+
+  /**
+   * Forget all the offsets.
+   */
+  public void reset() {
+    if (this.words.length > this.minWords) {
+      this.words = new long[this.minWords];
+      this.mask = (this.words.length << 6) - 1;
+    } else {
+      Arrays.fill(this.words, 0);
+    }
+    this.watermark = -1;
+    this.next = -1;
+    this.pending = 0;
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2018 Red Hat Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.kafka.client.mirror;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.kafka.client.consumer.KafkaReadStream;
+import io.vertx.kafka.client.mirror.impl.KafkaMirrorImpl;
+import io.vertx.kafka.client.producer.KafkaWriteStream;
+
+import java.util.function.Function;
+
+/**
+ * Copies the records read by a {@link KafkaReadStream} to a {@link KafkaWriteStream} as raw bytes.
+ * <p>
+ * Each batch of records polled from the source is sent to the target producer as a whole, keeping the keys,
+ * timestamps and headers of the records and optionally their partitions. The source is paused while the size of
+ * the records not yet acknowledged by the target exceeds {@link #maxPendingBytes(long)}, and the source offsets are
+ * committed, in order, only once the target has acknowledged the records.
+ * <p>
+ * The source consumer must be created with auto commit disabled and subscribed to (or assigned) the topics
+ * to mirror by the application, the mirror takes over its record and batch handlers. The mirror should be created
+ * on the context of the streams, otherwise each batch is handed over to the context of the mirror.
+ */
+public interface KafkaMirror {
+
+  /**
+   * Default maximum size in bytes of the records sent to the target and not yet acknowledged
+   */
+  long DEFAULT_MAX_PENDING_BYTES = 16 * 1024 * 1024;
+
+  /**
+   * Create a new KafkaMirror instance
+   *
+   * @param vertx Vert.x instance to use
+   * @param source the stream reading the records to mirror
+   * @param target the stream writing the mirrored records
+   * @return an instance of the KafkaMirror
+   */
+  static KafkaMirror create(Vertx vertx, KafkaReadStream<byte[], byte[]> source, KafkaWriteStream<byte[], byte[]> target) {
+    return new KafkaMirrorImpl(vertx.getOrCreateContext(), source, target);
+  }
+
+  /**
+   * Set the function mapping a source topic to the target topic, by default records are written to a topic
+   * with the same name.
+   *
+   * @param topicMapper the topic mapping function
+   * @return current KafkaMirror instance
+   */
+  KafkaMirror topicMapper(Function<String, String> topicMapper);
+
+  /**
+   * Set whether records are written to the same partition number as the source record, otherwise the target
+   * producer partitioner decides. Defaults to {@code false}.
+   *
+   * @param preservePartitions whether to preserve partitions
+   * @return current KafkaMirror instance
+   */
+  KafkaMirror preservePartitions(boolean preservePartitions);
+
+  /**
+   * Set the maximum size in bytes of the records sent to the target and not yet acknowledged, above it the source
+   * is paused until half of them are acknowledged. Defaults to {@link #DEFAULT_MAX_PENDING_BYTES}.
+   *
+   * @param maxPendingBytes the maximum pending size
+   * @return current KafkaMirror instance
+   */
+  KafkaMirror maxPendingBytes(long maxPendingBytes);
+
+  /**
+   * Set an exception handler, called when a record cannot be written to the target (the mirror then stops)
+   * or when the source offsets cannot be committed.
+   *
+   * @param handler the exception handler
+   * @return current KafkaMirror instance
+   */
+  KafkaMirror exceptionHandler(Handler<Throwable> handler);
+
+  /**
+   * Start mirroring the records of the source.
+   *
+   * @return current KafkaMirror instance
+   */
+  KafkaMirror start();
+
+  /**
+   * Stop mirroring: the source is paused and the handler is called once the records already sent have been
+   * acknowledged and the commit of their offsets has been requested.
+   *
+   * @param completionHandler handler called on operation completed
+   */
+  void stop(Handler<AsyncResult<Void>> completionHandler);
+
+  /**
+   * @return the size in bytes of the records sent to the target and not yet acknowledged
+   */
+  long pendingBytes();
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright 2018 Red Hat Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.kafka.client.mirror.impl;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.kafka.client.common.impl.Helper;
+import io.vertx.kafka.client.consumer.KafkaReadStream;
+import io.vertx.kafka.client.mirror.KafkaMirror;
+import io.vertx.kafka.client.producer.KafkaWriteStream;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.record.TimestampType;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Kafka mirror implementation, its state is only accessed on the context.
+ */
+public class KafkaMirrorImpl implements KafkaMirror {
+
+  /**
+   * The records of a polled batch, sent to the target
+   */
+  private static class Batch {
+
+    final Map<TopicPartition, OffsetAndMetadata> offsets;
+    final long bytes;
+    int remaining;
+
+    Batch(Map<TopicPartition, OffsetAndMetadata> offsets, long bytes, int remaining) {
+      this.offsets = offsets;
+      this.bytes = bytes;
+      this.remaining = remaining;
+    }
+  }
+
+  private final Context context;
+  private final KafkaReadStream<byte[], byte[]> source;
+  private final KafkaWriteStream<byte[], byte[]> target;
+  // batches in poll order, the head is removed (and its offsets committed) once all its records are acknowledged
+  private final Deque<Batch> inflight = new ArrayDeque<>();
+  private Function<String, String> topicMapper = Function.identity();
+  private boolean preservePartitions;
+  private long maxPendingBytes = DEFAULT_MAX_PENDING_BYTES;
+  private Handler<Throwable> exceptionHandler;
+  private volatile long pendingBytes;
+  private boolean started;
+  private boolean paused;
+  private Throwable failure;
+  private Handler<AsyncResult<Void>> stopHandler;
+
+  public KafkaMirrorImpl(Context context, KafkaReadStream<byte[], byte[]> source, KafkaWriteStream<byte[], byte[]> target) {
+    this.context = context;
+    this.source = source;
+    this.target = target;
+  }
+
+  @Override
+  public KafkaMirror topicMapper(Function<String, String> topicMapper) {
+    this.topicMapper = topicMapper;
+    return this;
+  }
+
+  @Override
+  public KafkaMirror preservePartitions(boolean preservePartitions) {
+    this.preservePartitions = preservePartitions;
+    return this;
+  }
+
+  @Override
+  public KafkaMirror maxPendingBytes(long maxPendingBytes) {
+    this.maxPendingBytes = maxPendingBytes;
+    return this;
+  }
+
+  @Override
+  public KafkaMirror exceptionHandler(Handler<Throwable> handler) {
+    this.exceptionHandler = handler;
+    return this;
+  }
+
+  @Override
+  public KafkaMirror start() {
+    this.started = true;
+    this.failure = null;
+    this.inflight.clear();
+    this.pendingBytes = 0;
+    this.paused = false;
+    // records are sent by batch, the record handler only drains the records of the polled batches
+    this.source.handler(record -> {});
+    this.source.batchHandler(records -> {
+      if (Vertx.currentContext() == this.context) {
+        this.send(records);
+      } else {
+        this.context.runOnContext(v -> this.send(records));
+      }
+    });
+    this.source.resume();
+    return this;
+  }
+
+  @Override
+  public void stop(Handler<AsyncResult<Void>> completionHandler) {
+    this.started = false;
+    this.source.pause();
+    this.stopHandler = completionHandler;
+    if (this.failure != null || this.inflight.isEmpty()) {
+      this.stopped();
+    }
+  }
+
+  @Override
+  public long pendingBytes() {
+    return this.pendingBytes;
+  }
+
+  private static int size(ConsumerRecord<byte[], byte[]> record) {
+    return (record.key() != null ? record.key().length : 0) + (record.value() != null ? record.value().length : 0);
+  }
+
+  private void send(ConsumerRecords<byte[], byte[]> records) {
+    // batches polled before the mirror was stopped are still sent, their records are already consumed
+    if (this.failure != null) {
+      return;
+    }
+
+    List<ProducerRecord<byte[], byte[]>> producerRecords = new ArrayList<>(records.count());
+    Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+    long bytes = 0;
+    for (ConsumerRecord<byte[], byte[]> record : records) {
+      producerRecords.add(new ProducerRecord<>(
+        this.topicMapper.apply(record.topic()),
+        this.preservePartitions ? record.partition() : null,
+        record.timestampType() != TimestampType.NO_TIMESTAMP_TYPE ? record.timestamp() : null,
+        record.key(),
+        record.value(),
+        record.headers()));
+      bytes += size(record);
+      // records of a partition are ordered, the last one gives the offset to commit
+      offsets.put(Helper.to(record.topic(), record.partition()), new OffsetAndMetadata(record.offset() + 1));
+    }
+
+    Batch batch = new Batch(offsets, bytes, producerRecords.size());
+    this.inflight.add(batch);
+    this.pendingBytes += bytes;
+    if (!this.paused && this.pendingBytes > this.maxPendingBytes) {
+      this.paused = true;
+      this.source.pause();
+    }
+
+    Producer<byte[], byte[]> producer = this.target.unwrap();
+    // a single blocking task per batch, it only blocks when the producer buffer is full
+    this.context.executeBlocking(future -> {
+      for (ProducerRecord<byte[], byte[]> producerRecord : producerRecords) {
+        producer.send(producerRecord, (metadata, err) -> {
+          // callback from IO thread
+          this.context.runOnContext(v -> this.acknowledged(batch, err));
+        });
+      }
+      future.complete();
+    }, ar -> {
+      if (ar.failed()) {
+        this.fail(ar.cause());
+      }
+    });
+  }
+
+  private void acknowledged(Batch batch, Throwable err) {
+    if (err != null) {
+      this.fail(err);
+      return;
+    }
+    if (--batch.remaining > 0) {
+      return;
+    }
+    this.pendingBytes -= batch.bytes;
+
+    // commit the offsets of the acknowledged batches following the last committed one, a failed batch is
+    // never acknowledged so nothing after it gets committed
+    Map<TopicPartition, OffsetAndMetadata> offsets = null;
+    while (!this.inflight.isEmpty() && this.inflight.peek().remaining == 0) {
+      Batch acked = this.inflight.poll();
+      if (offsets == null) {
+        offsets = new HashMap<>(acked.offsets);
+      } else {
+        offsets.putAll(acked.offsets);
+      }
+    }
+    if (offsets != null) {
+      this.source.commit(offsets, ar -> {
+        if (ar.failed()) {
+          this.notifyException(ar.cause());
+        }
+      });
+    }
+
+    if (this.paused && this.pendingBytes <= this.maxPendingBytes / 2) {
+      this.paused = false;
+      if (this.started && this.failure == null) {
+        this.source.resume();
+      }
+    }
+
+    if (this.stopHandler != null && this.inflight.isEmpty()) {
+      this.stopped();
+    }
+  }
+
+  private void fail(Throwable err) {
+    if (this.failure != null) {
+      return;
+    }
+    this.failure = err;
+    this.source.pause();
+    this.notifyException(err);
+    if (this.stopHandler != null) {
+      this.stopped();
+    }
+  }
+
+  private void notifyException(Throwable err) {
+    Handler<Throwable> handler = this.exceptionHandler;
+    if (handler != null) {
+      handler.handle(err);
+    }
+  }
+
+  private void stopped() {
+    Handler<AsyncResult<Void>> handler = this.stopHandler;
+    this.stopHandler = null;
+    this.source.handler(null);
+    this.source.batchHandler(null);
+    if (handler != null) {
+      handler.handle(this.failure != null ? Future.failedFuture(this.failure) : Future.succeededFuture());
+    }
+  }
+}
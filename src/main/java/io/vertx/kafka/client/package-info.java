@@ -284,6 +284,31 @@
  * {@link examples.VertxKafkaClientExamples#exampleConsumerFlowControl}
  * ----
  *
+ * A consumer can also be given a precise amount of records with {@link io.vertx.kafka.client.consumer.KafkaConsumer#fetch}:
+ * it delivers at most this amount of records and then stops polling Kafka until more records are requested.
+ *
+ * The records and bytes per second delivered by a consumer or written by a producer can be capped with a
+ * {@link io.vertx.kafka.client.common.KafkaRateLimiter}, a single limiter can be shared by several consumers and
+ * producers. A consumer stops polling while the limiter is in debt and a producer reports its write queue as full.
+ *
+ * A producer hands over each record to the Kafka producer on its own unless it is given a
+ * {@link io.vertx.kafka.client.producer.KafkaBatchingController}: the records are then coalesced into batches whose
+ * size adapts to meet a latency target, the controller exposing its decisions and the observed latency and send rate.
+ *
+ * The {@link io.vertx.kafka.client.producer.KafkaWriteStream#metrics()} of a producer stream give per topic and
+ * partition histograms of the time records spend queued in the Vert.x layer, in the native producer and until
+ * their acknowledgement, the failures and the pending size, next to the metrics of the native producer.
+ *
+ * A consumer created with a {@link io.vertx.kafka.client.consumer.KafkaRecordFilter} only delivers the records accepted
+ * by the filter. The filter is evaluated against the topic, the headers and the raw key of each record before
+ * the record is deserialized, so the records it rejects cost no deserialization; their offsets are still committed.
+ *
+ * The deserialization of the records a handler does not read can also be deferred with a
+ * {@link io.vertx.kafka.client.serialization.LazyDeserializer}: the consumer then gives
+ * {@link io.vertx.kafka.client.serialization.Lazy} keys or values holding the raw bytes, deserialized on the first
+ * call to {@code get()}. The wrapped deserializer is then called from the threads reading the values, it must be
+ * thread safe and not be shared with the consumer.
+ *
  * == Closing a consumer
  *
  * Call close to close the consumer. Closing the consumer closes any open connections and releases all consumer resources.
@@ -349,6 +374,7 @@
  * ----
  *
  * The same resources (thread, connection) will be shared between the producer returned by this method.
+ * Producers are shared by name within a single Vert.x instance, two Vert.x instances never share a producer.
  *
  * When you are done with the producer, just close it, when all shared producers are closed, the resources will
  * be released for you.
@@ -440,6 +466,10 @@
  * ----
  * {@link examples.RxExamples#consumer(io.vertx.rxjava.kafka.client.consumer.KafkaConsumer)}
  * ----
+ *
+ * With RxJava 2, {@code io.vertx.reactivex.kafka.client.consumer.KafkaConsumerFlowable} turns a consumer into a
+ * {@code Flowable} of records or of polled batches whose downstream requests drive the consumer fetching, a slow
+ * subscriber does not make records pile up in memory.
  * endif::[]
  *
  * ifdef::java,groovy,kotlin[]
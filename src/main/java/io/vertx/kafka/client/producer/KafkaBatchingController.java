@@ -0,0 +1,108 @@
+/*
+ * Copyright 2018 Red Hat Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.kafka.client.producer;
+
+import io.vertx.codegen.annotations.VertxGen;
+import io.vertx.kafka.client.producer.impl.AimdBatchingController;
+
+/**
+ * A feedback controller coalescing the records written to a producer into batches handed over to the Kafka producer
+ * at once, sized to meet a latency target at the highest throughput.
+ * <p>
+ * The batch size follows an additive increase / multiplicative decrease: it grows by one record per batch while
+ * the smoothed latency between a write and its acknowledgement is below the target and is halved when it is above,
+ * at most once until the records sent before the previous decrease are acknowledged.
+ * A batch is sent when it is full or when its linger time expires: the linger time is the time needed to fill the
+ * batch at the observed send rate, capped to a quarter of the target, and is zero when less than a record is
+ * expected meanwhile so that a low load does not wait.
+ * <p>
+ * The decisions and observations of the controller are exposed by its accessors. A controller is thread safe but
+ * should only be set on a single producer.
+ */
+@VertxGen
+public interface KafkaBatchingController {
+
+  /**
+   * Default maximum number of records of a batch
+   */
+  int DEFAULT_MAX_BATCH_SIZE = 1000;
+
+  /**
+   * Create a new KafkaBatchingController instance
+   *
+   * @param latencyTarget the latency target in milliseconds
+   * @return an instance of the KafkaBatchingController
+   */
+  static KafkaBatchingController create(long latencyTarget) {
+    return new AimdBatchingController(latencyTarget, DEFAULT_MAX_BATCH_SIZE);
+  }
+
+  /**
+   * Create a new KafkaBatchingController instance
+   *
+   * @param latencyTarget the latency target in milliseconds
+   * @param maxBatchSize the maximum number of records of a batch
+   * @return an instance of the KafkaBatchingController
+   */
+  static KafkaBatchingController create(long latencyTarget, int maxBatchSize) {
+    return new AimdBatchingController(latencyTarget, maxBatchSize);
+  }
+
+  /**
+   * Report a batch handed over to the Kafka producer, the controller adjusts the batch size.
+   *
+   * @param records the number of records of the batch
+   */
+  void batchSent(int records);
+
+  /**
+   * Report the acknowledgement of a record.
+   *
+   * @param latencyNanos the time between the write of the record and its acknowledgement in nanoseconds
+   */
+  void acknowledged(long latencyNanos);
+
+  /**
+   * @return the latency target in milliseconds
+   */
+  long latencyTarget();
+
+  /**
+   * @return the current number of records of a batch
+   */
+  int batchSize();
+
+  /**
+   * @return the current linger time of a batch in milliseconds
+   */
+  long linger();
+
+  /**
+   * @return the smoothed latency between a write and its acknowledgement in milliseconds
+   */
+  double latency();
+
+  /**
+   * @return the smoothed number of records acknowledged per second
+   */
+  double sendRate();
+
+  /**
+   * @return the number of batches sent
+   */
+  long batches();
+}
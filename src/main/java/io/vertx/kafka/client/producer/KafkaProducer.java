@@ -25,6 +25,7 @@ import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
 import io.vertx.core.impl.VertxInternal;
 import io.vertx.core.streams.WriteStream;
+import io.vertx.kafka.client.common.KafkaRateLimiter;
 import io.vertx.kafka.client.common.PartitionInfo;
 import io.vertx.kafka.client.producer.impl.KafkaProducerImpl;
 import org.apache.kafka.clients.producer.Producer;
@@ -200,6 +201,42 @@ public interface KafkaProducer<K, V> extends WriteStream<KafkaProducerRecord<K,
   @Override
   KafkaProducer<K, V> drainHandler(Handler<Void> handler);
 
+  /**
+   * Set a rate limiter capping the records and bytes written by this producer: the write queue is full while the
+   * limiter is in debt and the drain handler is called once the debt is repaid. A record is counted when written
+   * and its serialized size once acknowledged. A limiter can be shared by several consumers and producers.
+   *
+   * @param rateLimiter the rate limiter, {@code null} for no limit
+   * @return current KafkaProducer instance
+   */
+  @Fluent
+  KafkaProducer<K, V> rateLimiter(KafkaRateLimiter rateLimiter);
+
+  /**
+   * Set a controller coalescing the records written into batches handed over to the Kafka producer at once, sized
+   * to meet the latency target of the controller. Without controller each record is handed over on its own.
+   *
+   * @param controller the batching controller, {@code null} for no batching
+   * @return current KafkaProducer instance
+   */
+  @Fluent
+  KafkaProducer<K, V> batchingController(KafkaBatchingController controller);
+
+  /**
+   * Enable the sticky partitioning of the records without key nor partition: instead of spreading them over the
+   * partitions one by one, the producer sends them to a single partition of their topic until {@code batchRecords}
+   * records were sent or {@code linger} milliseconds elapsed, and then switches to another partition chosen at random.
+   * The native producer then fills larger batches. The partitions are taken from the cached partitions of the topic,
+   * the records written before they are cached are partitioned by the native producer.
+   *
+   * @param batchRecords the number of records sent to a partition before switching, about {@code batch.size} divided
+   *                     by the size of a record, {@code 0} to disable the sticky partitioning
+   * @param linger the time in milliseconds after which the partition is switched, about {@code linger.ms}
+   * @return current KafkaProducer instance
+   */
+  @Fluent
+  KafkaProducer<K, V> stickyPartitioning(int batchRecords, long linger);
+
   /**
    * Asynchronously write a record to a topic
    *
@@ -211,7 +248,17 @@ public interface KafkaProducer<K, V> extends WriteStream<KafkaProducerRecord<K,
   KafkaProducer<K, V> write(KafkaProducerRecord<K, V> record, Handler<AsyncResult<RecordMetadata>> handler);
 
   /**
-   * Get the partition metadata for the give topic.
+   * Set the time after which the cached partitions of a topic are refreshed in the background, the stale partitions
+   * are served meanwhile. The cache is shared by the producers created with the same name. Defaults to 30 seconds.
+   *
+   * @param ttl the time in milliseconds, {@code 0} to load the partitions on each {@link #partitionsFor} call
+   * @return current KafkaProducer instance
+   */
+  @Fluent
+  KafkaProducer<K, V> metadataCacheTtl(long ttl);
+
+  /**
+   * Get the partition metadata for the give topic, served from the partitions cached by the producer.
    *
    * @param topic topic partition for which getting partitions info
    * @param handler handler called on operation completed
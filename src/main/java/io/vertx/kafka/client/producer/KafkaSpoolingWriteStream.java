@@ -0,0 +1,126 @@
+/*
+ * Copyright 2018 Red Hat Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.kafka.client.producer;
+
+import io.vertx.core.Vertx;
+import io.vertx.kafka.client.common.KafkaRateLimiter;
+import io.vertx.kafka.client.producer.impl.KafkaSpoolingWriteStreamImpl;
+import org.apache.kafka.common.serialization.Serde;
+
+/**
+ * A {@link KafkaWriteStream} spooling to a local journal the records the Kafka cluster cannot take, so that writes
+ * keep being accepted at the same latency during a broker outage.
+ * <p>
+ * A record whose send fails, or written while the queue of the wrapped stream is full, is appended to a journal of
+ * memory mapped segment files in a directory and its handler succeeds with a {@code null} metadata: a {@code null}
+ * metadata means that the record is spooled and will be sent later, its partition and offset are not known. From
+ * then on all the records go to the journal to preserve their order, until it is replayed: the oldest spooled
+ * record is sent again after a retry interval, once it succeeds the journal is replayed in order with a bounded
+ * number of records in flight and an optional rate limit. When a replayed record fails the replay starts again
+ * later from the first record not acknowledged, so a record may be sent twice. A segment is deleted once all its
+ * records are acknowledged.
+ * <p>
+ * The order of the records is preserved from the record starting the spooling on. The records already sent to the
+ * cluster at this time are spooled when their send fails, after the records written in the meantime.
+ * <p>
+ * The journal is accessed by tasks run in order on a worker, a write only encodes its record on the caller thread.
+ * The journal is forced to the disk when a segment is full, on each replay attempt and when the stream is closed:
+ * the spooled records survive a crash of the process but the last ones may be lost on a crash of the machine. The
+ * records spooled by a previous instance are replayed at creation. The stream should not be used with transactions.
+ */
+public interface KafkaSpoolingWriteStream<K, V> extends KafkaWriteStream<K, V> {
+
+  /**
+   * Default size of a journal segment file in bytes
+   */
+  int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+  /**
+   * Default delay in milliseconds between a failed send and the next replay attempt
+   */
+  long DEFAULT_RETRY_INTERVAL = 1000;
+
+  /**
+   * Default maximum number of replayed records in flight
+   */
+  int DEFAULT_MAX_REPLAY_IN_FLIGHT = 100;
+
+  /**
+   * Create a new KafkaSpoolingWriteStream instance
+   *
+   * @param vertx Vert.x instance to use
+   * @param stream the stream to write to
+   * @param directory the directory of the journal
+   * @param keySerde the serde of the keys in the journal
+   * @param valueSerde the serde of the values in the journal
+   * @return an instance of the KafkaSpoolingWriteStream
+   * @throws java.io.UncheckedIOException when the journal cannot be opened
+   */
+  static <K, V> KafkaSpoolingWriteStream<K, V> create(Vertx vertx, KafkaWriteStream<K, V> stream, String directory, Serde<K> keySerde, Serde<V> valueSerde) {
+    return new KafkaSpoolingWriteStreamImpl<>(vertx.getOrCreateContext(), stream, directory, DEFAULT_SEGMENT_SIZE, keySerde, valueSerde);
+  }
+
+  /**
+   * Create a new KafkaSpoolingWriteStream instance
+   *
+   * @param vertx Vert.x instance to use
+   * @param stream the stream to write to
+   * @param directory the directory of the journal
+   * @param segmentSize the size of a journal segment file in bytes
+   * @param keySerde the serde of the keys in the journal
+   * @param valueSerde the serde of the values in the journal
+   * @return an instance of the KafkaSpoolingWriteStream
+   * @throws java.io.UncheckedIOException when the journal cannot be opened
+   */
+  static <K, V> KafkaSpoolingWriteStream<K, V> create(Vertx vertx, KafkaWriteStream<K, V> stream, String directory, int segmentSize, Serde<K> keySerde, Serde<V> valueSerde) {
+    return new KafkaSpoolingWriteStreamImpl<>(vertx.getOrCreateContext(), stream, directory, segmentSize, keySerde, valueSerde);
+  }
+
+  /**
+   * Set the delay between a failed send and the next replay attempt.
+   *
+   * @param retryInterval the delay in milliseconds
+   * @return current KafkaSpoolingWriteStream instance
+   */
+  KafkaSpoolingWriteStream<K, V> retryInterval(long retryInterval);
+
+  /**
+   * Set the maximum number of replayed records in flight.
+   *
+   * @param maxReplayInFlight the maximum number of records
+   * @return current KafkaSpoolingWriteStream instance
+   */
+  KafkaSpoolingWriteStream<K, V> maxReplayInFlight(int maxReplayInFlight);
+
+  /**
+   * Set a rate limiter capping the replay throughput.
+   *
+   * @param rateLimiter the rate limiter, {@code null} for no limit
+   * @return current KafkaSpoolingWriteStream instance
+   */
+  KafkaSpoolingWriteStream<K, V> replayRateLimiter(KafkaRateLimiter rateLimiter);
+
+  /**
+   * @return whether the records are currently written to the journal
+   */
+  boolean isSpooling();
+
+  /**
+   * @return the number of records in the journal not acknowledged yet
+   */
+  long spooledRecords();
+}
@@ -20,6 +20,8 @@ import io.vertx.core.AsyncResult;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
 import io.vertx.core.streams.WriteStream;
+import io.vertx.kafka.client.common.KafkaRateLimiter;
+import io.vertx.kafka.client.consumer.KafkaSlowHandlerEvent;
 import io.vertx.kafka.client.producer.impl.KafkaWriteStreamImpl;
 import org.apache.kafka.clients.producer.Producer;
 import org.apache.kafka.clients.producer.ProducerRecord;
@@ -108,6 +110,42 @@ public interface KafkaWriteStream<K, V> extends WriteStream<ProducerRecord<K, V>
 
   KafkaWriteStream<K, V> write(ProducerRecord<K, V> record, Handler<AsyncResult<RecordMetadata>> handler);
 
+  /**
+   * Set a rate limiter capping the records and bytes written by this stream: the write queue is full while the
+   * limiter is in debt and the drain handler is called once the debt is repaid. A record is counted when written
+   * and its serialized size once acknowledged.
+   *
+   * @param rateLimiter the rate limiter, {@code null} for no limit
+   * @return current KafkaWriteStream instance
+   */
+  KafkaWriteStream<K, V> rateLimiter(KafkaRateLimiter rateLimiter);
+
+  /**
+   * Set a controller coalescing the records written into batches handed over to the producer at once, sized to meet
+   * the latency target of the controller. Without controller each record is handed over on its own.
+   *
+   * @param controller the batching controller, {@code null} for no batching
+   * @return current KafkaWriteStream instance
+   */
+  KafkaWriteStream<K, V> batchingController(KafkaBatchingController controller);
+
+  /**
+   * Time each invocation of the write completion handlers, and call {@code handler} for those taking longer than the
+   * threshold. A slow completion handler delays the completions of all the records written by this stream.
+   *
+   * @param threshold the threshold in milliseconds, negative to stop timing the handlers
+   * @param handler the handler called with the slow invocations
+   * @return current KafkaWriteStream instance
+   */
+  KafkaWriteStream<K, V> slowHandlerDetection(long threshold, Handler<KafkaSlowHandlerEvent> handler);
+
+  /**
+   * Get the metrics of this stream, they are recorded from the first call of this method.
+   *
+   * @return the metrics
+   */
+  KafkaWriteStreamMetrics metrics();
+
   /*
   *
   *
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2018 Red Hat Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.kafka.client.producer;
+
+import io.vertx.kafka.client.common.KafkaHistogram;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.TopicPartition;
+
+import java.util.Map;
+
+/**
+ * The metrics of a {@link KafkaWriteStream}, telling apart the time a record spends in the Vert.x layer from the
+ * time it spends in the native producer and the broker:
+ * <ul>
+ *   <li>the queue latency goes from the write of a record to its hand over to the native producer, it grows when
+ *   the worker threads running the blocking sends are busy or when records are coalesced</li>
+ *   <li>the send latency goes from the hand over to the native producer to its callback, it covers the batching of
+ *   the native producer and the broker round trip</li>
+ *   <li>the acknowledgement latency goes from the write of a record to the call of its handler</li>
+ * </ul>
+ * The latencies are in nanoseconds. The metrics are recorded from the first call to {@link KafkaWriteStream#metrics()}.
+ * A metric keeps at most 4096 topics or partitions, the records of the other ones are not recorded until it is
+ * {@link #reset() reset}.
+ */
+public interface KafkaWriteStreamMetrics {
+
+  /**
+   * @return the queue latency of the records per topic
+   */
+  Map<String, KafkaHistogram> queueLatency();
+
+  /**
+   * @return the send latency of the records per topic
+   */
+  Map<String, KafkaHistogram> sendLatency();
+
+  /**
+   * @return the acknowledgement latency of the records successfully written per partition
+   */
+  Map<TopicPartition, KafkaHistogram> ackLatency();
+
+  /**
+   * @return the time spent in the write completion handlers per topic, they run on the context of the stream
+   * and delay the other completions
+   */
+  Map<String, KafkaHistogram> handlerTime();
+
+  /**
+   * @return the number of records which failed to be written per topic, including the records whose send threw
+   * (e.g a serialization error)
+   */
+  Map<String, Long> failures();
+
+  /**
+   * @return the pending bytes of the stream sampled at each write: the serialized size of the keys and values of
+   * the records written and not completed yet, as encoded by the byte array, buffer and string serializers (the
+   * other types are not counted)
+   */
+  KafkaHistogram pendingSize();
+
+  /**
+   * @return the metrics of the native producer
+   */
+  Map<MetricName, ? extends Metric> nativeMetrics();
+
+  /**
+   * Clear the recorded metrics.
+   */
+  void reset();
+}
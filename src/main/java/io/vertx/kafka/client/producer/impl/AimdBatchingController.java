@@ -0,0 +1,129 @@
+/*
+ * Copyright 2018 Red Hat Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.kafka.client.producer.impl;
+
+import io.vertx.kafka.client.producer.KafkaBatchingController;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Batching controller with an additive increase / multiplicative decrease of the batch size.
+ */
+public class AimdBatchingController implements KafkaBatchingController {
+
+  // weight of a new observation in the smoothed values
+  private static final double LATENCY_WEIGHT = 0.2;
+  private static final double RATE_WEIGHT = 0.3;
+  private static final long RATE_PERIOD = TimeUnit.MILLISECONDS.toNanos(100);
+
+  private final long latencyTarget;
+  private final int maxBatchSize;
+  private final long maxLinger;
+  private int batchSize = 1;
+  private long linger;
+  private double latency;
+  private double sendRate;
+  private long batches;
+  private long acknowledged;
+  private long ratePeriodStart = System.nanoTime();
+  // records sent and acknowledged so far, and the records sent when the batch size was last decreased
+  private long sentRecords;
+  private long acknowledgedRecords;
+  private long decreaseMark;
+  private long decreasedAt;
+
+  public AimdBatchingController(long latencyTarget, int maxBatchSize) {
+    if (latencyTarget < 1 || maxBatchSize < 1) {
+      throw new IllegalArgumentException("Latency target and maximum batch size must be positive");
+    }
+    this.latencyTarget = latencyTarget;
+    this.maxBatchSize = maxBatchSize;
+    this.maxLinger = latencyTarget / 4;
+  }
+
+  @Override
+  public synchronized void batchSent(int records) {
+    this.batches++;
+    this.sentRecords += records;
+    if (this.latency > this.latencyTarget) {
+      // a single decrease per observation window: the latency shows the effect of a decrease once the records sent
+      // before it are acknowledged, the failed records never are so the window also ends after the latency target
+      long now = System.nanoTime();
+      if (this.acknowledgedRecords >= this.decreaseMark
+          || now - this.decreasedAt >= TimeUnit.MILLISECONDS.toNanos(this.latencyTarget)) {
+        this.batchSize = Math.max(1, this.batchSize / 2);
+        this.decreaseMark = this.sentRecords;
+        this.decreasedAt = now;
+      }
+    } else if (records >= this.batchSize) {
+      // only a full batch shows that a larger one is needed
+      this.batchSize = Math.min(this.maxBatchSize, this.batchSize + 1);
+    }
+    double expected = this.sendRate * this.maxLinger / 1000;
+    if (this.batchSize == 1 || expected < 1) {
+      this.linger = 0;
+    } else {
+      this.linger = Math.min(this.maxLinger, (long) Math.ceil((this.batchSize - 1) * 1000 / this.sendRate));
+    }
+  }
+
+  @Override
+  public synchronized void acknowledged(long latencyNanos) {
+    double millis = latencyNanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    this.latency = this.latency == 0 ? millis : this.latency + LATENCY_WEIGHT * (millis - this.latency);
+    this.acknowledged++;
+    this.acknowledgedRecords++;
+    long now = System.nanoTime();
+    long elapsed = now - this.ratePeriodStart;
+    if (elapsed >= RATE_PERIOD) {
+      double rate = this.acknowledged * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+      this.sendRate = this.sendRate == 0 ? rate : this.sendRate + RATE_WEIGHT * (rate - this.sendRate);
+      this.acknowledged = 0;
+      this.ratePeriodStart = now;
+    }
+  }
+
+  @Override
+  public long latencyTarget() {
+    return this.latencyTarget;
+  }
+
+  @Override
+  public synchronized int batchSize() {
+    return this.batchSize;
+  }
+
+  @Override
+  public synchronized long linger() {
+    return this.linger;
+  }
+
+  @Override
+  public synchronized double latency() {
+    return this.latency;
+  }
+
+  @Override
+  public synchronized double sendRate() {
+    return this.sendRate;
+  }
+
+  @Override
+  public synchronized long batches() {
+    return this.batches;
+  }
+}
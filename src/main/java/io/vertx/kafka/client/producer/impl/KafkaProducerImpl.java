@@ -24,21 +24,26 @@ import io.vertx.core.Vertx;
 import io.vertx.core.impl.VertxInternal;
 import io.vertx.kafka.client.common.impl.CloseHandler;
 import io.vertx.kafka.client.common.impl.Helper;
+import io.vertx.kafka.client.common.impl.TopicMetadataCache;
+import io.vertx.kafka.client.common.KafkaRateLimiter;
 import io.vertx.kafka.client.common.PartitionInfo;
+import io.vertx.kafka.client.producer.KafkaBatchingController;
 import io.vertx.kafka.client.producer.KafkaProducer;
 import io.vertx.kafka.client.producer.KafkaProducerRecord;
 import io.vertx.kafka.client.producer.KafkaWriteStream;
 import io.vertx.kafka.client.producer.RecordMetadata;
 import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.errors.InvalidMetadataException;
 
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 /**
  * Vert.x Kafka producer implementation
@@ -61,50 +66,122 @@ public class KafkaProducerImpl<K, V> implements KafkaProducer<K, V> {
     return createShared(vertx, name, () -> KafkaWriteStream.create(vertx, new HashMap<>(config), keyType, valueType));
   }
 
-  private static class SharedProducer extends HashMap<Object, KafkaProducer> {
+  /**
+   * Key of a shared producer: producers are shared by name within a single Vert.x instance only.
+   */
+  private static final class SharedProducerKey {
 
+    final Vertx vertx;
+    final String name;
+
+    SharedProducerKey(Vertx vertx, String name) {
+      this.vertx = vertx;
+      this.name = name;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof SharedProducerKey)) {
+        return false;
+      }
+      SharedProducerKey that = (SharedProducerKey) o;
+      return this.vertx == that.vertx && this.name.equals(that.name);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * System.identityHashCode(this.vertx) + this.name.hashCode();
+    }
+  }
+
+  /**
+   * A native producer shared by several {@link KafkaProducer} instances, closed when the last of them is closed.
+   */
+  private static class SharedProducer {
+
+    final SharedProducerKey key;
     final Producer producer;
     final CloseHandler closeHandler;
+    // shared by all the KafkaProducer instances using this producer
+    final TopicMetadataCache metadataCache;
+    // number of live KafkaProducer instances, -1 once the native producer has been closed
+    private final AtomicInteger refCount = new AtomicInteger();
 
-    public SharedProducer(KafkaWriteStream stream) {
+    SharedProducer(SharedProducerKey key, KafkaWriteStream<?, ?> stream) {
+      this.key = key;
       this.producer = stream.unwrap();
-      this.closeHandler = new CloseHandler(stream::close);
+      this.metadataCache = new TopicMetadataCache(stream::partitionsFor);
+      this.closeHandler = new CloseHandler((timeout, ar) -> {
+        // the Vert.x instance is closing: make sure no late createShared call can get this producer
+        this.refCount.set(-1);
+        sharedProducers.remove(this.key, this);
+        stream.close(timeout, ar);
+      });
+    }
+
+    boolean retain() {
+      while (true) {
+        int count = this.refCount.get();
+        if (count < 0) {
+          return false;
+        }
+        if (this.refCount.compareAndSet(count, count + 1)) {
+          return true;
+        }
+      }
+    }
+
+    void release(long timeout, Handler<AsyncResult<Void>> completionHandler) {
+      if (this.refCount.decrementAndGet() == 0 && this.refCount.compareAndSet(0, -1)) {
+        sharedProducers.remove(this.key, this);
+        this.closeHandler.close(timeout, completionHandler);
+      } else {
+        completionHandler.handle(Future.succeededFuture());
+      }
     }
   }
 
-  private static final Map<String, SharedProducer> sharedProducers = new HashMap<>();
+  private static final ConcurrentMap<SharedProducerKey, SharedProducer> sharedProducers = new ConcurrentHashMap<>();
 
   private static <K, V> KafkaProducer<K, V> createShared(Vertx vertx, String name, Supplier<KafkaWriteStream> streamFactory) {
-    synchronized (sharedProducers) {
-      SharedProducer sharedProducer = sharedProducers.computeIfAbsent(name, key -> {
-        KafkaWriteStream stream = streamFactory.get();
-        SharedProducer s = new SharedProducer(stream);
-        s.closeHandler.registerCloseHook((VertxInternal) vertx);
-        return s;
-      });
-      Object key = new Object();
-      KafkaProducerImpl<K, V> producer = new KafkaProducerImpl<>(KafkaWriteStream.create(vertx, sharedProducer.producer), new CloseHandler((timeout, ar) -> {
-        synchronized (sharedProducers) {
-          sharedProducer.remove(key);
-          if (sharedProducer.isEmpty()) {
-            sharedProducers.remove(name);
-            sharedProducer.closeHandler.close(timeout, ar);
-            return;
-          }
-        }
-        ar.handle(Future.succeededFuture());
-      }));
-      sharedProducer.put(key, producer);
-      return producer.registerCloseHook();
+    SharedProducerKey key = new SharedProducerKey(vertx, name);
+    SharedProducer sharedProducer;
+    while (true) {
+      sharedProducer = sharedProducers.get(key);
+      if (sharedProducer == null) {
+        sharedProducer = sharedProducers.computeIfAbsent(key, k -> {
+          SharedProducer s = new SharedProducer(k, streamFactory.get());
+          s.closeHandler.registerCloseHook((VertxInternal) vertx);
+          return s;
+        });
+      }
+      if (sharedProducer.retain()) {
+        break;
+      }
+      // the producer has just been closed by its last user, remove it if still there and create a new one
+      sharedProducers.remove(key, sharedProducer);
     }
+    SharedProducer s = sharedProducer;
+    KafkaProducerImpl<K, V> producer = new KafkaProducerImpl<>(KafkaWriteStream.create(vertx, s.producer), new CloseHandler(s::release), s.metadataCache);
+    return producer.registerCloseHook();
   }
 
   private final KafkaWriteStream<K, V> stream;
   private final CloseHandler closeHandler;
+  private final TopicMetadataCache metadataCache;
+  private volatile StickyPartitioner stickyPartitioner;
 
-  public KafkaProducerImpl(KafkaWriteStream<K, V> stream, CloseHandler closeHandler) {
+  private KafkaProducerImpl(KafkaWriteStream<K, V> stream, CloseHandler closeHandler, TopicMetadataCache metadataCache) {
     this.stream = stream;
     this.closeHandler = closeHandler;
+    this.metadataCache = metadataCache;
+  }
+
+  public KafkaProducerImpl(KafkaWriteStream<K, V> stream, CloseHandler closeHandler) {
+    this(stream, closeHandler, new TopicMetadataCache(stream::partitionsFor));
   }
 
   public KafkaProducerImpl(KafkaWriteStream<K, V> stream) {
@@ -159,7 +236,11 @@ public class KafkaProducerImpl<K, V> implements KafkaProducer<K, V> {
   @Override
   @SuppressWarnings("unchecked")
   public KafkaProducer<K, V> write(KafkaProducerRecord<K, V> record, Handler<AsyncResult<RecordMetadata>> handler) {
-    this.stream.write(record.record(), done -> {
+    this.stream.write(this.partition(record.record()), done -> {
+      if (done.failed() && done.cause() instanceof InvalidMetadataException) {
+        // the cached leaders are out of date
+        this.metadataCache.invalidate(record.topic());
+      }
       if (handler != null) {
         if (done.succeeded()) {
           handler.handle(Future.succeededFuture(Helper.from(done.result())));
@@ -172,34 +253,39 @@ public class KafkaProducerImpl<K, V> implements KafkaProducer<K, V> {
     return this;
   }
 
-  @Override
-  public KafkaProducer<K, V> partitionsFor(String topic, Handler<AsyncResult<List<PartitionInfo>>> handler) {
-    this.stream.partitionsFor(topic, done -> {
-
-      if (done.succeeded()) {
-        // TODO: use Helper class and stream approach
-        List<PartitionInfo> partitions = new ArrayList<>();
-        for (org.apache.kafka.common.PartitionInfo kafkaPartitionInfo: done.result()) {
-
-          PartitionInfo partitionInfo = new PartitionInfo();
+  private ProducerRecord<K, V> partition(ProducerRecord<K, V> record) {
+    StickyPartitioner partitioner = this.stickyPartitioner;
+    if (partitioner == null || record.key() != null || record.partition() != null) {
+      return record;
+    }
+    List<org.apache.kafka.common.PartitionInfo> partitions = this.metadataCache.getIfPresent(record.topic());
+    if (partitions == null) {
+      // load the partitions for the next records
+      this.metadataCache.partitionsFor(record.topic(), ar -> {});
+      return record;
+    }
+    int partition = partitioner.partition(record.topic(), partitions);
+    if (partition == -1) {
+      return record;
+    }
+    return new ProducerRecord<>(record.topic(), partition, record.timestamp(), null, record.value(), record.headers());
+  }
 
-          partitionInfo
-            .setInSyncReplicas(
-              Stream.of(kafkaPartitionInfo.inSyncReplicas()).map(Helper::from).collect(Collectors.toList()))
-            .setLeader(Helper.from(kafkaPartitionInfo.leader()))
-            .setPartition(kafkaPartitionInfo.partition())
-            .setReplicas(
-              Stream.of(kafkaPartitionInfo.replicas()).map(Helper::from).collect(Collectors.toList()))
-            .setTopic(kafkaPartitionInfo.topic());
+  @Override
+  public KafkaProducer<K, V> stickyPartitioning(int batchRecords, long linger) {
+    this.stickyPartitioner = batchRecords > 0 ? new StickyPartitioner(batchRecords, linger) : null;
+    return this;
+  }
 
-          partitions.add(partitionInfo);
-        }
-        handler.handle(Future.succeededFuture(partitions));
-      } else {
-        handler.handle(Future.failedFuture(done.cause()));
-      }
+  @Override
+  public KafkaProducer<K, V> metadataCacheTtl(long ttl) {
+    this.metadataCache.ttl(ttl);
+    return this;
+  }
 
-    });
+  @Override
+  public KafkaProducer<K, V> partitionsFor(String topic, Handler<AsyncResult<List<PartitionInfo>>> handler) {
+    this.metadataCache.partitionsFor(topic, handler);
     return this;
   }
 
@@ -231,6 +317,18 @@ public class KafkaProducerImpl<K, V> implements KafkaProducer<K, V> {
     return this;
   }
 
+  @Override
+  public KafkaProducer<K, V> rateLimiter(KafkaRateLimiter rateLimiter) {
+    this.stream.rateLimiter(rateLimiter);
+    return this;
+  }
+
+  @Override
+  public KafkaProducer<K, V> batchingController(KafkaBatchingController controller) {
+    this.stream.batchingController(controller);
+    return this;
+  }
+
   @Override
   public KafkaProducer<K, V> flush(Handler<Void> completionHandler) {
     this.stream.flush(completionHandler);
@@ -0,0 +1,471 @@
+/*
+ * Copyright 2018 Red Hat Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.kafka.client.producer.impl;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.kafka.client.common.KafkaRateLimiter;
+import io.vertx.kafka.client.consumer.KafkaSlowHandlerEvent;
+import io.vertx.kafka.client.producer.KafkaBatchingController;
+import io.vertx.kafka.client.producer.KafkaSpoolingWriteStream;
+import io.vertx.kafka.client.producer.KafkaWriteStream;
+import io.vertx.kafka.client.producer.KafkaWriteStreamMetrics;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.serialization.Serde;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Kafka spooling write stream implementation.
+ * <p>
+ * The journal and the replay state are only accessed by tasks run one at a time, in submission order, on a worker
+ * of the context, so that the journal IO never blocks the event loop. The spooling state shared with the writers
+ * is guarded by the instance lock.
+ */
+public class KafkaSpoolingWriteStreamImpl<K, V> implements KafkaSpoolingWriteStream<K, V> {
+
+  private final Context context;
+  private final KafkaWriteStream<K, V> stream;
+  private final SpoolJournal journal;
+  private final Serde<K> keySerde;
+  private final Serde<V> valueSerde;
+  // journal tasks state: acknowledgement state of the replayed records in flight, in replay order
+  private final Deque<boolean[]> replayed = new ArrayDeque<>();
+  // journal tasks state: whether a replayed record succeeded since the last failure, only one record is in flight until then
+  private boolean healthy;
+  // journal tasks state: incremented on each failure, the outcome of the records replayed before is ignored
+  private int generation;
+  private volatile long retryInterval = DEFAULT_RETRY_INTERVAL;
+  private volatile int maxReplayInFlight = DEFAULT_MAX_REPLAY_IN_FLIGHT;
+  private volatile KafkaRateLimiter replayRateLimiter;
+  private volatile Handler<Throwable> exceptionHandler;
+  // size of the journal, updated by the journal tasks
+  private long spooled;
+  private boolean spooling;
+  // records spooled and not appended to the journal yet
+  private int appending;
+  private long replayTimerId = -1;
+  private boolean closed;
+
+  public KafkaSpoolingWriteStreamImpl(Context context, KafkaWriteStream<K, V> stream, String directory, int segmentSize, Serde<K> keySerde, Serde<V> valueSerde) {
+    this.context = context;
+    this.stream = stream;
+    this.keySerde = keySerde;
+    this.valueSerde = valueSerde;
+    try {
+      this.journal = new SpoolJournal(new File(directory), segmentSize);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    this.spooled = this.journal.size();
+    if (this.spooled > 0) {
+      this.spooling = true;
+      this.scheduleReplay(0);
+    }
+  }
+
+  @Override
+  public KafkaSpoolingWriteStream<K, V> retryInterval(long retryInterval) {
+    this.retryInterval = retryInterval;
+    return this;
+  }
+
+  @Override
+  public KafkaSpoolingWriteStream<K, V> maxReplayInFlight(int maxReplayInFlight) {
+    this.maxReplayInFlight = maxReplayInFlight;
+    return this;
+  }
+
+  @Override
+  public KafkaSpoolingWriteStream<K, V> replayRateLimiter(KafkaRateLimiter rateLimiter) {
+    this.replayRateLimiter = rateLimiter;
+    return this;
+  }
+
+  @Override
+  public synchronized boolean isSpooling() {
+    return this.spooling;
+  }
+
+  @Override
+  public synchronized long spooledRecords() {
+    return this.spooled + this.appending;
+  }
+
+  @Override
+  public KafkaSpoolingWriteStream<K, V> write(ProducerRecord<K, V> record) {
+    return this.write(record, null);
+  }
+
+  @Override
+  public synchronized KafkaSpoolingWriteStream<K, V> write(ProducerRecord<K, V> record, Handler<AsyncResult<RecordMetadata>> handler) {
+    if (this.spooling || this.stream.writeQueueFull()) {
+      this.spool(record, handler);
+    } else {
+      this.stream.write(record, ar -> {
+        if (ar.succeeded()) {
+          if (handler != null) {
+            handler.handle(ar);
+          }
+        } else {
+          this.spool(record, handler);
+        }
+      });
+    }
+    return this;
+  }
+
+  /**
+   * Run a task accessing the journal on a worker, the tasks are run one at a time in submission order.
+   */
+  private void onJournal(Runnable task) {
+    this.context.executeBlocking(future -> {
+      task.run();
+      future.complete();
+    }, true, null);
+  }
+
+  private void spool(ProducerRecord<K, V> record, Handler<AsyncResult<RecordMetadata>> handler) {
+    byte[] entry;
+    try {
+      entry = this.encode(record);
+    } catch (IOException | RuntimeException e) {
+      this.notifyException(e);
+      this.complete(handler, Future.failedFuture(e));
+      return;
+    }
+    synchronized (this) {
+      if (!this.spooling) {
+        this.spooling = true;
+        this.scheduleReplay(this.retryInterval);
+      }
+      this.appending++;
+      // submitted under the lock so that the appends are in the order of the records
+      this.onJournal(() -> {
+        AsyncResult<RecordMetadata> result;
+        try {
+          this.journal.append(entry);
+          result = Future.succeededFuture();
+        } catch (IOException | RuntimeException e) {
+          this.notifyException(e);
+          result = Future.failedFuture(e);
+        }
+        synchronized (this) {
+          this.spooled = this.journal.size();
+          this.appending--;
+        }
+        this.complete(handler, result);
+      });
+    }
+  }
+
+  private void complete(Handler<AsyncResult<RecordMetadata>> handler, AsyncResult<RecordMetadata> result) {
+    if (handler != null) {
+      this.context.runOnContext(v -> handler.handle(result));
+    }
+  }
+
+  private synchronized void scheduleReplay(long delay) {
+    if (this.replayTimerId == -1 && !this.closed) {
+      this.replayTimerId = this.context.owner().setTimer(Math.max(1, delay), id -> {
+        synchronized (this) {
+          this.replayTimerId = -1;
+        }
+        this.onJournal(() -> {
+          this.journal.force();
+          this.replay();
+        });
+      });
+    }
+  }
+
+  private void replay() {
+    int window = this.healthy ? this.maxReplayInFlight : 1;
+    while (this.replayed.size() < window && !this.stream.writeQueueFull()) {
+      KafkaRateLimiter limiter = this.replayRateLimiter;
+      long delay = limiter != null ? limiter.delay() : 0;
+      if (delay > 0) {
+        this.scheduleReplay(delay);
+        return;
+      }
+      byte[] entry = this.journal.read();
+      if (entry == null) {
+        break;
+      }
+      if (limiter != null) {
+        limiter.acquire(1, entry.length);
+      }
+      ProducerRecord<K, V> record;
+      try {
+        record = this.decode(entry);
+      } catch (IOException | RuntimeException e) {
+        // a record that cannot be read back is dropped rather than blocking the journal
+        this.notifyException(e);
+        this.replayed.addLast(new boolean[] { true });
+        continue;
+      }
+      boolean[] acked = new boolean[1];
+      int generation = this.generation;
+      this.replayed.addLast(acked);
+      this.stream.write(record, ar -> this.onJournal(() -> this.replayed(generation, acked, ar)));
+    }
+    this.acknowledge();
+    if (this.replayed.isEmpty()) {
+      synchronized (this) {
+        if (this.journal.size() > 0) {
+          // the queue of the stream is full with records written before spooling
+          this.scheduleReplay(this.retryInterval);
+        } else if (this.appending > 0) {
+          // the next attempt runs after the pending appends
+          this.scheduleReplay(0);
+        } else {
+          this.spooling = false;
+          this.healthy = false;
+        }
+      }
+    }
+  }
+
+  private void replayed(int generation, boolean[] acked, AsyncResult<RecordMetadata> ar) {
+    if (generation != this.generation) {
+      return;
+    }
+    if (ar.succeeded()) {
+      acked[0] = true;
+      this.healthy = true;
+      this.replay();
+    } else {
+      this.notifyException(ar.cause());
+      this.generation++;
+      this.healthy = false;
+      this.replayed.clear();
+      this.journal.rewind();
+      this.scheduleReplay(this.retryInterval);
+    }
+  }
+
+  private void acknowledge() {
+    int count = 0;
+    while (!this.replayed.isEmpty() && this.replayed.peekFirst()[0]) {
+      this.replayed.removeFirst();
+      count++;
+    }
+    if (count > 0) {
+      try {
+        this.journal.ack(count);
+      } catch (IOException e) {
+        this.notifyException(e);
+      }
+      synchronized (this) {
+        this.spooled = this.journal.size();
+      }
+    }
+  }
+
+  private byte[] encode(ProducerRecord<K, V> record) throws IOException {
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(buffer);
+    out.writeUTF(record.topic());
+    out.writeInt(record.partition() != null ? record.partition() : -1);
+    out.writeLong(record.timestamp() != null ? record.timestamp() : -1L);
+    writeBytes(out, this.keySerde.serializer().serialize(record.topic(), record.key()));
+    writeBytes(out, this.valueSerde.serializer().serialize(record.topic(), record.value()));
+    Header[] headers = record.headers().toArray();
+    out.writeInt(headers.length);
+    for (Header header : headers) {
+      out.writeUTF(header.key());
+      writeBytes(out, header.value());
+    }
+    return buffer.toByteArray();
+  }
+
+  private ProducerRecord<K, V> decode(byte[] entry) throws IOException {
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(entry));
+    String topic = in.readUTF();
+    int partition = in.readInt();
+    long timestamp = in.readLong();
+    K key = this.keySerde.deserializer().deserialize(topic, readBytes(in));
+    V value = this.valueSerde.deserializer().deserialize(topic, readBytes(in));
+    RecordHeaders headers = new RecordHeaders();
+    for (int count = in.readInt(); count > 0; count--) {
+      headers.add(in.readUTF(), readBytes(in));
+    }
+    return new ProducerRecord<>(topic, partition != -1 ? partition : null, timestamp != -1 ? timestamp : null, key, value, headers);
+  }
+
+  private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+    if (bytes == null) {
+      out.writeInt(-1);
+    } else {
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    }
+  }
+
+  private static byte[] readBytes(DataInputStream in) throws IOException {
+    int length = in.readInt();
+    if (length == -1) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return bytes;
+  }
+
+  private void notifyException(Throwable err) {
+    Handler<Throwable> handler = this.exceptionHandler;
+    if (handler != null) {
+      this.context.runOnContext(v -> handler.handle(err));
+    }
+  }
+
+  @Override
+  public KafkaSpoolingWriteStream<K, V> exceptionHandler(Handler<Throwable> handler) {
+    this.exceptionHandler = handler;
+    return this;
+  }
+
+  @Override
+  public KafkaSpoolingWriteStream<K, V> setWriteQueueMaxSize(int maxSize) {
+    this.stream.setWriteQueueMaxSize(maxSize);
+    return this;
+  }
+
+  /**
+   * The records the stream cannot take are spooled, the queue is never full.
+   */
+  @Override
+  public boolean writeQueueFull() {
+    return false;
+  }
+
+  @Override
+  public KafkaSpoolingWriteStream<K, V> drainHandler(Handler<Void> handler) {
+    this.stream.drainHandler(handler);
+    return this;
+  }
+
+  @Override
+  public KafkaSpoolingWriteStream<K, V> rateLimiter(KafkaRateLimiter rateLimiter) {
+    this.stream.rateLimiter(rateLimiter);
+    return this;
+  }
+
+  @Override
+  public KafkaSpoolingWriteStream<K, V> batchingController(KafkaBatchingController controller) {
+    this.stream.batchingController(controller);
+    return this;
+  }
+
+  @Override
+  public KafkaSpoolingWriteStream<K, V> slowHandlerDetection(long threshold, Handler<KafkaSlowHandlerEvent> handler) {
+    this.stream.slowHandlerDetection(threshold, handler);
+    return this;
+  }
+
+  @Override
+  public KafkaWriteStreamMetrics metrics() {
+    return this.stream.metrics();
+  }
+
+  @Override
+  public KafkaSpoolingWriteStream<K, V> initTransactions() {
+    this.stream.initTransactions();
+    return this;
+  }
+
+  @Override
+  public KafkaSpoolingWriteStream<K, V> beginTransaction() {
+    this.stream.beginTransaction();
+    return this;
+  }
+
+  @Override
+  public KafkaSpoolingWriteStream<K, V> commitTransaction() {
+    this.stream.commitTransaction();
+    return this;
+  }
+
+  @Override
+  public KafkaSpoolingWriteStream<K, V> abortTransaction() {
+    this.stream.abortTransaction();
+    return this;
+  }
+
+  @Override
+  public KafkaSpoolingWriteStream<K, V> partitionsFor(String topic, Handler<AsyncResult<List<PartitionInfo>>> handler) {
+    this.stream.partitionsFor(topic, handler);
+    return this;
+  }
+
+  @Override
+  public KafkaSpoolingWriteStream<K, V> flush(Handler<Void> completionHandler) {
+    this.stream.flush(completionHandler);
+    return this;
+  }
+
+  @Override
+  public void end() {
+    this.stream.end();
+  }
+
+  @Override
+  public void close() {
+    this.close(ar -> {});
+  }
+
+  @Override
+  public void close(Handler<AsyncResult<Void>> completionHandler) {
+    this.close(0, completionHandler);
+  }
+
+  @Override
+  public void close(long timeout, Handler<AsyncResult<Void>> completionHandler) {
+    synchronized (this) {
+      this.closed = true;
+      this.context.owner().cancelTimer(this.replayTimerId);
+      this.replayTimerId = -1;
+    }
+    // after the pending appends
+    this.context.executeBlocking(future -> {
+      this.generation++;
+      this.journal.force();
+      future.complete();
+    }, true, ar -> this.stream.close(timeout, completionHandler));
+  }
+
+  @Override
+  public Producer<K, V> unwrap() {
+    return this.stream.unwrap();
+  }
+}
@@ -21,19 +21,26 @@ import io.vertx.core.Context;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.kafka.client.common.KafkaRateLimiter;
+import io.vertx.kafka.client.common.impl.Helper;
+import io.vertx.kafka.client.consumer.KafkaSlowHandlerEvent;
+import io.vertx.kafka.client.producer.KafkaBatchingController;
 import io.vertx.kafka.client.producer.KafkaWriteStream;
+import io.vertx.kafka.client.producer.KafkaWriteStreamMetrics;
 import io.vertx.kafka.client.serialization.VertxSerdes;
 import org.apache.kafka.clients.producer.Producer;
 import org.apache.kafka.clients.producer.ProducerRecord;
 import org.apache.kafka.clients.producer.RecordMetadata;
 import org.apache.kafka.common.PartitionInfo;
 import org.apache.kafka.common.serialization.Serializer;
+import org.apache.kafka.common.utils.Utils;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Kafka write stream implementation
@@ -62,8 +69,19 @@ public class KafkaWriteStreamImpl<K, V> implements KafkaWriteStream<K, V> {
 
   private long maxSize = DEFAULT_MAX_SIZE;
   private long pending;
+  // the estimated bytes of the records written and not completed, counted while the metrics are recorded
+  private long pendingBytes;
   private final Producer<K, V> producer;
   private Handler<Void> drainHandler;
+  private KafkaRateLimiter rateLimiter;
+  private KafkaBatchingController batchingController;
+  // the sends of the records coalesced in the current batch
+  private List<Runnable> batch = new ArrayList<>();
+  private long batchTimerId = -1;
+  private volatile KafkaWriteStreamMetricsImpl metrics;
+  private volatile long slowHandlerThreshold = -1;
+  private volatile Handler<KafkaSlowHandlerEvent> slowHandler;
+  private long drainTimerId = -1;
   private Handler<Throwable> exceptionHandler;
   private final Context context;
 
@@ -82,48 +100,182 @@ public class KafkaWriteStreamImpl<K, V> implements KafkaWriteStream<K, V> {
     }
   }
 
+  /**
+   * @return the serialized size of a key or value as encoded by the byte array, buffer and string serializers, 0 for
+   * the other types
+   */
+  private static long bytes(Object value) {
+    if (value instanceof byte[]) {
+      return ((byte[]) value).length;
+    } else if (value instanceof Buffer) {
+      return ((Buffer) value).length();
+    } else if (value instanceof String) {
+      return Utils.utf8Length((String) value);
+    } else {
+      return 0;
+    }
+  }
+
   @Override
   public synchronized KafkaWriteStreamImpl<K, V> write(ProducerRecord<K, V> record, Handler<AsyncResult<RecordMetadata>> handler) {
 
     int len = this.len(record.value());
     this.pending += len;
-    this.context.<RecordMetadata>executeBlocking(fut -> {
-      try {
-        this.producer.send(record, (metadata, err) -> {
-
-          // callback from IO thread
-          this.context.runOnContext(v1 -> {
+    KafkaRateLimiter limiter = this.rateLimiter;
+    if (limiter != null) {
+      limiter.acquire(1, 0);
+    }
+    KafkaBatchingController controller = this.batchingController;
+    KafkaWriteStreamMetricsImpl metrics = this.metrics;
+    long start = controller != null || metrics != null ? System.nanoTime() : 0;
+    long bytes = metrics != null ? bytes(record.key()) + bytes(record.value()) : 0;
+    if (metrics != null) {
+      this.pendingBytes += bytes;
+      metrics.written(this.pendingBytes);
+    }
+    if (controller == null) {
+      this.context.executeBlocking(fut -> this.send(record, handler, len, bytes, limiter, null, metrics, start), null);
+    } else {
+      this.batch.add(() -> this.send(record, handler, len, bytes, limiter, controller, metrics, start));
+      if (this.batch.size() >= controller.batchSize()) {
+        this.sendBatch();
+      } else if (this.batch.size() == 1) {
+        long linger = controller.linger();
+        if (linger > 0) {
+          this.batchTimerId = this.context.owner().setTimer(linger, id -> {
+            synchronized (KafkaWriteStreamImpl.this) {
+              this.batchTimerId = -1;
+              this.sendBatch();
+            }
+          });
+        } else {
+          // the records written meanwhile on this context still join the batch
+          this.context.runOnContext(v -> {
             synchronized (KafkaWriteStreamImpl.this) {
+              this.sendBatch();
+            }
+          });
+        }
+      }
+    }
 
-              // if exception happens, no record written
-              if (err != null) {
+    return this;
+  }
 
-                if (this.exceptionHandler != null) {
-                  Handler<Throwable> exceptionHandler = this.exceptionHandler;
-                  this.context.runOnContext(v2 -> exceptionHandler.handle(err));
-                }
-              }
+  /**
+   * Hand over the coalesced records to the producer in a single blocking task.
+   */
+  private void sendBatch() {
+    if (this.batch.isEmpty()) {
+      return;
+    }
+    if (this.batchTimerId != -1) {
+      this.context.owner().cancelTimer(this.batchTimerId);
+      this.batchTimerId = -1;
+    }
+    List<Runnable> sends = this.batch;
+    this.batch = new ArrayList<>();
+    KafkaBatchingController controller = this.batchingController;
+    if (controller != null) {
+      controller.batchSent(sends.size());
+    }
+    this.context.executeBlocking(fut -> sends.forEach(Runnable::run), null);
+  }
 
-              long lowWaterMark = this.maxSize / 2;
-              this.pending -= len;
-              if (this.pending < lowWaterMark && this.drainHandler != null) {
-                Handler<Void> drainHandler = this.drainHandler;
-                this.drainHandler = null;
-                this.context.runOnContext(drainHandler);
+  private void send(ProducerRecord<K, V> record, Handler<AsyncResult<RecordMetadata>> handler, int len, long bytes,
+                    KafkaRateLimiter limiter, KafkaBatchingController controller, KafkaWriteStreamMetricsImpl metrics, long start) {
+    long sent = metrics != null ? System.nanoTime() : 0;
+    if (metrics != null) {
+      metrics.queued(record.topic(), sent - start);
+    }
+    try {
+      this.producer.send(record, (metadata, err) -> {
+
+        // callback from IO thread
+        if (controller != null && err == null) {
+          controller.acknowledged(System.nanoTime() - start);
+        }
+        if (metrics != null) {
+          metrics.sent(record.topic(), System.nanoTime() - sent);
+        }
+
+        this.context.runOnContext(v1 -> {
+          synchronized (KafkaWriteStreamImpl.this) {
+
+            // if exception happens, no record written
+            if (err != null) {
+
+              if (this.exceptionHandler != null) {
+                Handler<Throwable> exceptionHandler = this.exceptionHandler;
+                this.context.runOnContext(v2 -> exceptionHandler.handle(err));
               }
             }
 
-            if (handler != null) {
+            if (limiter != null && metadata != null) {
+              limiter.acquire(0, Math.max(0, metadata.serializedKeySize()) + Math.max(0, metadata.serializedValueSize()));
+            }
+            this.pending -= len;
+            this.pendingBytes -= bytes;
+            this.checkDrain();
+          }
+
+          if (metrics != null) {
+            if (err != null) {
+              metrics.failed(record.topic());
+            } else {
+              metrics.acknowledged(Helper.to(metadata.topic(), metadata.partition()), System.nanoTime() - start);
+            }
+          }
+
+          if (handler != null) {
+            long threshold = this.slowHandlerThreshold;
+            if (metrics == null && threshold < 0) {
               handler.handle(err != null ? Future.failedFuture(err) : Future.succeededFuture(metadata));
+            } else {
+              long called = System.nanoTime();
+              handler.handle(err != null ? Future.failedFuture(err) : Future.succeededFuture(metadata));
+              this.handled(record, err == null ? metadata : null, System.nanoTime() - called, metrics, threshold);
             }
-          });
+          }
         });
-      } catch (Throwable e) {
-        exceptionHandler.handle(e);
-      }
-    }, null);
+      });
+    } catch (Throwable e) {
+      // a record failing synchronously (e.g a serialization error) is completed on its own, the rest of its batch
+      // is still sent
+      this.context.runOnContext(v -> {
+        Handler<Throwable> exceptionHandler;
+        synchronized (KafkaWriteStreamImpl.this) {
+          exceptionHandler = this.exceptionHandler;
+          this.pending -= len;
+          this.pendingBytes -= bytes;
+          this.checkDrain();
+        }
+        if (metrics != null) {
+          metrics.failed(record.topic());
+        }
+        if (exceptionHandler != null) {
+          exceptionHandler.handle(e);
+        }
+        if (handler != null) {
+          handler.handle(Future.failedFuture(e));
+        }
+      });
+    }
+  }
 
-    return this;
+  private void handled(ProducerRecord<K, V> record, RecordMetadata metadata, long duration,
+                       KafkaWriteStreamMetricsImpl metrics, long threshold) {
+    if (metrics != null) {
+      metrics.handled(record.topic(), duration);
+    }
+    Handler<KafkaSlowHandlerEvent> handler = this.slowHandler;
+    if (threshold >= 0 && duration > threshold && handler != null) {
+      handler.handle(new KafkaSlowHandlerEvent(record.topic(),
+        metadata != null ? metadata.partition() : -1,
+        metadata != null ? metadata.offset() : -1,
+        duration,
+        false));
+    }
   }
 
   @Override
@@ -164,15 +316,79 @@ public class KafkaWriteStreamImpl<K, V> implements KafkaWriteStream<K, V> {
 
   @Override
   public synchronized boolean writeQueueFull() {
-    return (this.pending >= this.maxSize);
+    return (this.pending >= this.maxSize) || (this.rateLimiter != null && this.rateLimiter.delay() > 0);
   }
 
   @Override
   public synchronized KafkaWriteStreamImpl<K, V> drainHandler(Handler<Void> handler) {
     this.drainHandler = handler;
+    if (handler != null && this.rateLimiter != null && this.rateLimiter.delay() > 0) {
+      // no acknowledgement may come to drain the queue, wait for the limiter instead
+      this.checkDrain();
+    }
     return this;
   }
 
+  @Override
+  public synchronized KafkaWriteStreamImpl<K, V> rateLimiter(KafkaRateLimiter rateLimiter) {
+    this.rateLimiter = rateLimiter;
+    return this;
+  }
+
+  @Override
+  public synchronized KafkaWriteStreamImpl<K, V> batchingController(KafkaBatchingController controller) {
+    this.sendBatch();
+    this.batchingController = controller;
+    return this;
+  }
+
+  @Override
+  public KafkaWriteStreamImpl<K, V> slowHandlerDetection(long threshold, Handler<KafkaSlowHandlerEvent> handler) {
+    this.slowHandler = handler;
+    this.slowHandlerThreshold = threshold >= 0 ? TimeUnit.MILLISECONDS.toNanos(threshold) : -1;
+    return this;
+  }
+
+  /**
+   * Call the drain handler once the pending records are below the low water mark and the rate limiter
+   * is out of debt.
+   */
+  private void checkDrain() {
+    long lowWaterMark = this.maxSize / 2;
+    if (this.drainHandler == null || this.pending >= lowWaterMark) {
+      return;
+    }
+    long delay = this.rateLimiter != null ? this.rateLimiter.delay() : 0;
+    if (delay > 0) {
+      if (this.drainTimerId == -1) {
+        this.drainTimerId = this.context.owner().setTimer(delay, id -> {
+          synchronized (KafkaWriteStreamImpl.this) {
+            this.drainTimerId = -1;
+            this.checkDrain();
+          }
+        });
+      }
+    } else {
+      Handler<Void> drainHandler = this.drainHandler;
+      this.drainHandler = null;
+      this.context.runOnContext(drainHandler);
+    }
+  }
+
+  @Override
+  public KafkaWriteStreamMetrics metrics() {
+    KafkaWriteStreamMetricsImpl metrics = this.metrics;
+    if (metrics == null) {
+      synchronized (this) {
+        if (this.metrics == null) {
+          this.metrics = new KafkaWriteStreamMetricsImpl(this.producer);
+        }
+        metrics = this.metrics;
+      }
+    }
+    return metrics;
+  }
+
   @Override
   public void end() {
   }
@@ -186,21 +402,11 @@ public class KafkaWriteStreamImpl<K, V> implements KafkaWriteStream<K, V> {
   @Override
   public KafkaWriteStreamImpl<K, V> partitionsFor(String topic, Handler<AsyncResult<List<PartitionInfo>>> handler) {
 
-    AtomicBoolean done = new AtomicBoolean();
-
-    // TODO: should be this timeout related to the Kafka producer property "metadata.fetch.timeout.ms" ?
-    this.context.owner().setTimer(2000, id -> {
-      if (done.compareAndSet(false, true)) {
-        handler.handle(Future.failedFuture("Kafka connect timeout"));
-      }
-    });
-
+    // the wait for the metadata is bounded by the max.block.ms property of the native producer
     this.context.executeBlocking(future -> {
 
       List<PartitionInfo> partitions = this.producer.partitionsFor(topic);
-      if (done.compareAndSet(false, true)) {
-        future.complete(partitions);
-      }
+      future.complete(partitions);
     }, handler);
 
     return this;
@@ -209,6 +415,9 @@ public class KafkaWriteStreamImpl<K, V> implements KafkaWriteStream<K, V> {
   @Override
   public KafkaWriteStreamImpl<K, V> flush(Handler<Void> completionHandler) {
 
+    synchronized (this) {
+      this.sendBatch();
+    }
     this.context.executeBlocking(future -> {
 
       this.producer.flush();
@@ -230,6 +439,9 @@ public class KafkaWriteStreamImpl<K, V> implements KafkaWriteStream<K, V> {
 
   public void close(long timeout, Handler<AsyncResult<Void>> completionHandler) {
 
+    synchronized (this) {
+      this.sendBatch();
+    }
     this.context.executeBlocking(future -> {
       if (timeout > 0) {
         this.producer.close(timeout, TimeUnit.MILLISECONDS);
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2018 Red Hat Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.kafka.client.producer.impl;
+
+import io.vertx.kafka.client.common.KafkaHistogram;
+import io.vertx.kafka.client.producer.KafkaWriteStreamMetrics;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.TopicPartition;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Kafka write stream metrics implementation, recorded from the context, the worker and the producer threads.
+ */
+public class KafkaWriteStreamMetricsImpl implements KafkaWriteStreamMetrics {
+
+  /**
+   * Maximum number of topics or partitions of a metric, the records of the other ones are not recorded
+   */
+  static final int MAX_KEYS = 4096;
+
+  private final Producer<?, ?> producer;
+  private final ConcurrentMap<String, KafkaHistogram> queueLatency = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, KafkaHistogram> sendLatency = new ConcurrentHashMap<>();
+  private final ConcurrentMap<TopicPartition, KafkaHistogram> ackLatency = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, KafkaHistogram> handlerTime = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, AtomicLong> failures = new ConcurrentHashMap<>();
+  private final KafkaHistogram pendingSize = new KafkaHistogram();
+
+  public KafkaWriteStreamMetricsImpl(Producer<?, ?> producer) {
+    this.producer = producer;
+  }
+
+  private static <T> void record(ConcurrentMap<T, KafkaHistogram> histograms, T key, long value) {
+    KafkaHistogram histogram = histograms.get(key);
+    if (histogram == null) {
+      if (histograms.size() >= MAX_KEYS) {
+        return;
+      }
+      histogram = histograms.computeIfAbsent(key, k -> new KafkaHistogram());
+    }
+    histogram.record(value);
+  }
+
+  void written(long pending) {
+    this.pendingSize.record(pending);
+  }
+
+  void queued(String topic, long latency) {
+    record(this.queueLatency, topic, latency);
+  }
+
+  void sent(String topic, long latency) {
+    record(this.sendLatency, topic, latency);
+  }
+
+  void acknowledged(TopicPartition partition, long latency) {
+    record(this.ackLatency, partition, latency);
+  }
+
+  void handled(String topic, long time) {
+    record(this.handlerTime, topic, time);
+  }
+
+  void failed(String topic) {
+    AtomicLong failures = this.failures.get(topic);
+    if (failures == null) {
+      if (this.failures.size() >= MAX_KEYS) {
+        return;
+      }
+      failures = this.failures.computeIfAbsent(topic, t -> new AtomicLong());
+    }
+    failures.incrementAndGet();
+  }
+
+  @Override
+  public Map<String, KafkaHistogram> queueLatency() {
+    return Collections.unmodifiableMap(this.queueLatency);
+  }
+
+  @Override
+  public Map<String, KafkaHistogram> sendLatency() {
+    return Collections.unmodifiableMap(this.sendLatency);
+  }
+
+  @Override
+  public Map<TopicPartition, KafkaHistogram> ackLatency() {
+    return Collections.unmodifiableMap(this.ackLatency);
+  }
+
+  @Override
+  public Map<String, KafkaHistogram> handlerTime() {
+    return Collections.unmodifiableMap(this.handlerTime);
+  }
+
+  @Override
+  public Map<String, Long> failures() {
+    Map<String, Long> failures = new HashMap<>();
+    this.failures.forEach((topic, count) -> failures.put(topic, count.get()));
+    return failures;
+  }
+
+  @Override
+  public KafkaHistogram pendingSize() {
+    return this.pendingSize;
+  }
+
+  @Override
+  public Map<MetricName, ? extends Metric> nativeMetrics() {
+    return this.producer.metrics();
+  }
+
+  @Override
+  public void reset() {
+    this.queueLatency.clear();
+    this.sendLatency.clear();
+    this.ackLatency.clear();
+    this.handlerTime.clear();
+    this.failures.clear();
+    this.pendingSize.reset();
+  }
+}
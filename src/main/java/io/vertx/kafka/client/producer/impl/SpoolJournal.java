@@ -0,0 +1,222 @@
+/*
+ * Copyright 2018 Red Hat Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.kafka.client.producer.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * An append only journal of entries in memory mapped segment files, read and acknowledged in order.
+ * <p>
+ * A segment starts with the position of its first entry not acknowledged, followed by entries prefixed by
+ * their length. A zero length ends the entries of a segment, the unwritten part of a file being zeroed. A segment
+ * is deleted once all its entries are acknowledged, the acknowledged position makes the journal restart after
+ * the acknowledged entries.
+ * <p>
+ * The journal is not thread safe.
+ */
+public class SpoolJournal {
+
+  private static final String SUFFIX = ".spool";
+  private static final int HEADER_SIZE = 4;
+
+  private static class Segment {
+
+    final File file;
+    final MappedByteBuffer buffer;
+    int acked;
+    int read;
+    int written;
+
+    Segment(File file, MappedByteBuffer buffer) {
+      this.file = file;
+      this.buffer = buffer;
+    }
+  }
+
+  private final File directory;
+  private final int segmentSize;
+  private final Deque<Segment> segments = new ArrayDeque<>();
+  // segment and end position of the entries read and not acknowledged yet, in read order
+  private final Deque<Segment> readSegments = new ArrayDeque<>();
+  private final Deque<Integer> readPositions = new ArrayDeque<>();
+  private long nextId;
+  private long size;
+
+  public SpoolJournal(File directory, int segmentSize) throws IOException {
+    this.directory = directory;
+    this.segmentSize = segmentSize;
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new IOException("Cannot create the journal directory " + directory);
+    }
+    this.recover();
+  }
+
+  private void recover() throws IOException {
+    File[] files = this.directory.listFiles((dir, name) -> name.endsWith(SUFFIX));
+    long[] ids = new long[files != null ? files.length : 0];
+    for (int i = 0; i < ids.length; i++) {
+      String name = files[i].getName();
+      ids[i] = Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+    }
+    Arrays.sort(ids);
+    for (long id : ids) {
+      File file = this.file(id);
+      Segment segment = new Segment(file, map(file, file.length()));
+      segment.acked = Math.max(HEADER_SIZE, segment.buffer.getInt(0));
+      segment.read = segment.acked;
+      int position = HEADER_SIZE;
+      while (position + 4 <= segment.buffer.capacity()) {
+        int length = segment.buffer.getInt(position);
+        if (length <= 0 || position + 4 + length > segment.buffer.capacity()) {
+          break;
+        }
+        if (position >= segment.acked) {
+          this.size++;
+        }
+        position += 4 + length;
+      }
+      segment.written = position;
+      this.segments.addLast(segment);
+      this.nextId = id + 1;
+    }
+  }
+
+  private File file(long id) {
+    return new File(this.directory, String.format("%020d", id) + SUFFIX);
+  }
+
+  private static MappedByteBuffer map(File file, long size) throws IOException {
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+  }
+
+  /**
+   * Append an entry.
+   *
+   * @param entry the entry
+   */
+  public void append(byte[] entry) throws IOException {
+    Segment segment = this.segments.peekLast();
+    // the entry and the zero length marking the end
+    int required = 4 + entry.length + 4;
+    if (segment == null || segment.written + required > segment.buffer.capacity()) {
+      if (segment != null) {
+        segment.buffer.force();
+      }
+      File file = this.file(this.nextId++);
+      segment = new Segment(file, map(file, Math.max(this.segmentSize, HEADER_SIZE + required)));
+      segment.buffer.putInt(0, HEADER_SIZE);
+      segment.acked = segment.read = segment.written = HEADER_SIZE;
+      this.segments.addLast(segment);
+    }
+    segment.buffer.position(segment.written + 4);
+    segment.buffer.put(entry);
+    // the length is written last, a partially written entry is not read after a crash
+    segment.buffer.putInt(segment.written, entry.length);
+    segment.written += 4 + entry.length;
+    this.size++;
+  }
+
+  /**
+   * Read the next entry.
+   *
+   * @return the entry or {@code null} when all the entries have been read
+   */
+  public byte[] read() {
+    for (Segment segment : this.segments) {
+      if (segment.read < segment.written) {
+        int length = segment.buffer.getInt(segment.read);
+        byte[] entry = new byte[length];
+        segment.buffer.position(segment.read + 4);
+        segment.buffer.get(entry);
+        segment.read += 4 + length;
+        this.readSegments.addLast(segment);
+        this.readPositions.addLast(segment.read);
+        return entry;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Acknowledge the oldest entries read and delete the segments fully acknowledged, except the last one
+   * still appended to.
+   *
+   * @param count the number of entries
+   */
+  public void ack(int count) throws IOException {
+    for (int i = 0; i < count && !this.readSegments.isEmpty(); i++) {
+      Segment segment = this.readSegments.removeFirst();
+      segment.acked = this.readPositions.removeFirst();
+      segment.buffer.putInt(0, segment.acked);
+      this.size--;
+    }
+    List<Segment> deleted = new ArrayList<>();
+    while (this.segments.size() > 1 && this.segments.peekFirst().acked == this.segments.peekFirst().written) {
+      deleted.add(this.segments.removeFirst());
+    }
+    for (Segment segment : deleted) {
+      if (!segment.file.delete()) {
+        throw new IOException("Cannot delete the journal segment " + segment.file);
+      }
+    }
+  }
+
+  /**
+   * Read again the entries read and not acknowledged.
+   */
+  public void rewind() {
+    for (Segment segment : this.segments) {
+      segment.read = segment.acked;
+    }
+    this.readSegments.clear();
+    this.readPositions.clear();
+  }
+
+  /**
+   * Write the appended entries and acknowledged positions to the disk.
+   */
+  public void force() {
+    for (Segment segment : this.segments) {
+      segment.buffer.force();
+    }
+  }
+
+  /**
+   * @return the number of entries not acknowledged
+   */
+  public long size() {
+    return this.size;
+  }
+
+  /**
+   * @return the number of segment files
+   */
+  public int segments() {
+    return this.segments.size();
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2018 Red Hat Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.kafka.client.producer.impl;
+
+import org.apache.kafka.common.PartitionInfo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Chooses the partition of the records without key, sticking to a partition of a topic for a number of records
+ * or a linger time before switching to another one so that the native producer fills larger batches.
+ */
+public class StickyPartitioner {
+
+  /**
+   * The partition currently used for a topic
+   */
+  private static class Sticky {
+
+    int partition = -1;
+    int records;
+    long since;
+  }
+
+  private final int batchRecords;
+  private final long linger;
+  private final Map<String, Sticky> topics = new ConcurrentHashMap<>();
+
+  /**
+   * @param batchRecords the number of records sent to a partition before switching
+   * @param linger the time in milliseconds after which the partition is switched
+   */
+  public StickyPartitioner(int batchRecords, long linger) {
+    if (batchRecords < 1) {
+      throw new IllegalArgumentException("The number of records of a batch must be positive");
+    }
+    this.batchRecords = batchRecords;
+    this.linger = linger;
+  }
+
+  /**
+   * Choose the partition of a record.
+   *
+   * @param topic the topic of the record
+   * @param partitions the partitions of the topic
+   * @return the partition, or {@code -1} when no partition has a leader
+   */
+  public int partition(String topic, List<PartitionInfo> partitions) {
+    Sticky sticky = this.topics.computeIfAbsent(topic, t -> new Sticky());
+    synchronized (sticky) {
+      long now = System.currentTimeMillis();
+      if (sticky.partition == -1 || sticky.records >= this.batchRecords || now - sticky.since >= this.linger
+        || !available(partitions, sticky.partition)) {
+        sticky.partition = next(partitions, sticky.partition);
+        sticky.records = 0;
+        sticky.since = now;
+      }
+      if (sticky.partition != -1) {
+        sticky.records++;
+      }
+      return sticky.partition;
+    }
+  }
+
+  /**
+   * @return whether the partition is in the metadata and has a leader
+   */
+  private static boolean available(List<PartitionInfo> partitions, int partition) {
+    for (PartitionInfo info : partitions) {
+      if (info.partition() == partition) {
+        return info.leader() != null;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Pick a random available partition, another one than the current one when possible.
+   */
+  private static int next(List<PartitionInfo> partitions, int current) {
+    List<Integer> available = new ArrayList<>(partitions.size());
+    boolean currentAvailable = false;
+    for (PartitionInfo partition : partitions) {
+      if (partition.leader() != null) {
+        if (partition.partition() != current) {
+          available.add(partition.partition());
+        } else {
+          currentAvailable = true;
+        }
+      }
+    }
+    if (available.isEmpty()) {
+      return currentAvailable ? current : -1;
+    }
+    return available.get(ThreadLocalRandom.current().nextInt(available.size()));
+  }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2018 Red Hat Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.kafka.client.retry;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.kafka.client.consumer.KafkaReadStream;
+import io.vertx.kafka.client.producer.KafkaWriteStream;
+import io.vertx.kafka.client.retry.impl.KafkaRetryProcessorImpl;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Processes the records read by a {@link KafkaReadStream} with an asynchronous processor, retrying the failed
+ * records with an exponential backoff and sending the records still failing after the maximum number of attempts
+ * to a dead letter topic with a {@link KafkaWriteStream}.
+ * <p>
+ * A failed record waits for its next attempt on a timer while the following records of its partition keep
+ * being processed. The offset of a partition is committed periodically up to the first record not yet processed
+ * nor dead lettered, so a record is never committed before it has been handled. The source is paused while
+ * too many records are being processed or retried.
+ * <p>
+ * The source consumer must be created with auto commit disabled and subscribed to (or assigned) the topics to
+ * process by the application, the processor takes over its record handler and chains to its partitions revoked
+ * handler, which is set back on stop. The revoked partitions are {@link #evict evicted} before this handler is
+ * called: since the revoked handler runs once the rebalance is over, their handled records are not committed
+ * anymore, the new owner of the partition gets them again from the last periodic commit.
+ * <p>
+ * A record older than the last record received on its partition is a duplicate and is ignored, so the partitions
+ * must be evicted when the source is seeked for their records to be processed again. The processor should be
+ * created on the context of the source, otherwise each record is handed over to the context of the processor.
+ */
+public interface KafkaRetryProcessor<K, V> {
+
+  /**
+   * Header of a dead lettered record giving the topic of the original record
+   */
+  String ORIGINAL_TOPIC_HEADER = "vertx.retry.original.topic";
+
+  /**
+   * Header of a dead lettered record giving the partition of the original record
+   */
+  String ORIGINAL_PARTITION_HEADER = "vertx.retry.original.partition";
+
+  /**
+   * Header of a dead lettered record giving the offset of the original record
+   */
+  String ORIGINAL_OFFSET_HEADER = "vertx.retry.original.offset";
+
+  /**
+   * Header of a dead lettered record giving the number of processing attempts
+   */
+  String ATTEMPTS_HEADER = "vertx.retry.attempts";
+
+  /**
+   * Header of a dead lettered record giving the failure of the last processing attempt
+   */
+  String EXCEPTION_HEADER = "vertx.retry.exception";
+
+  /**
+   * Default maximum number of processing attempts of a record
+   */
+  int DEFAULT_MAX_ATTEMPTS = 3;
+
+  /**
+   * Default delay in milliseconds before the second attempt
+   */
+  long DEFAULT_INITIAL_BACKOFF = 100;
+
+  /**
+   * Default maximum delay in milliseconds between two attempts
+   */
+  long DEFAULT_MAX_BACKOFF = 10000;
+
+  /**
+   * Default maximum number of records being processed or retried
+   */
+  int DEFAULT_MAX_PENDING_RECORDS = 1000;
+
+  /**
+   * Default interval in milliseconds between two commits
+   */
+  long DEFAULT_COMMIT_INTERVAL = 1000;
+
+  /**
+   * Create a new KafkaRetryProcessor instance
+   *
+   * @param vertx Vert.x instance to use
+   * @param source the stream reading the records to process
+   * @param deadLetters the stream writing the records to the dead letter topics
+   * @return an instance of the KafkaRetryProcessor
+   */
+  static <K, V> KafkaRetryProcessor<K, V> create(Vertx vertx, KafkaReadStream<K, V> source, KafkaWriteStream<K, V> deadLetters) {
+    return new KafkaRetryProcessorImpl<>(vertx.getOrCreateContext(), source, deadLetters);
+  }
+
+  /**
+   * Set the processor of the records, it is called on the context of the processor with a record and the handler
+   * to call once the record is processed. A failed result or an exception thrown by the processor fails the attempt.
+   *
+   * @param processor the record processor
+   * @return current KafkaRetryProcessor instance
+   */
+  KafkaRetryProcessor<K, V> processor(BiConsumer<ConsumerRecord<K, V>, Handler<AsyncResult<Void>>> processor);
+
+  /**
+   * Set the maximum number of processing attempts of a record before it is dead lettered.
+   * Defaults to {@link #DEFAULT_MAX_ATTEMPTS}.
+   *
+   * @param maxAttempts the maximum number of attempts
+   * @return current KafkaRetryProcessor instance
+   */
+  KafkaRetryProcessor<K, V> maxAttempts(int maxAttempts);
+
+  /**
+   * Set the delays between two attempts: the delay starts at {@code initialBackoff} and doubles after each attempt
+   * up to {@code maxBackoff}. Defaults to {@link #DEFAULT_INITIAL_BACKOFF} and {@link #DEFAULT_MAX_BACKOFF}.
+   *
+   * @param initialBackoff the delay in milliseconds before the second attempt
+   * @param maxBackoff the maximum delay in milliseconds
+   * @return current KafkaRetryProcessor instance
+   */
+  KafkaRetryProcessor<K, V> backoff(long initialBackoff, long maxBackoff);
+
+  /**
+   * Set the function mapping the topic of a record to its dead letter topic, by default the topic name
+   * followed by {@code .DLQ}.
+   *
+   * @param deadLetterTopic the dead letter topic mapping function
+   * @return current KafkaRetryProcessor instance
+   */
+  KafkaRetryProcessor<K, V> deadLetterTopic(Function<String, String> deadLetterTopic);
+
+  /**
+   * Set the maximum number of records being processed or retried, above it the source is paused until half
+   * of them are handled. Defaults to {@link #DEFAULT_MAX_PENDING_RECORDS}.
+   *
+   * @param maxPendingRecords the maximum number of pending records
+   * @return current KafkaRetryProcessor instance
+   */
+  KafkaRetryProcessor<K, V> maxPendingRecords(int maxPendingRecords);
+
+  /**
+   * Set the interval between two commits of the handled offsets. Defaults to {@link #DEFAULT_COMMIT_INTERVAL}.
+   *
+   * @param commitInterval the commit interval in milliseconds
+   * @return current KafkaRetryProcessor instance
+   */
+  KafkaRetryProcessor<K, V> commitInterval(long commitInterval);
+
+  /**
+   * Set an exception handler, called when a record cannot be written to its dead letter topic (the write is then
+   * retried after the maximum backoff) or when offsets cannot be committed.
+   *
+   * @param handler the exception handler
+   * @return current KafkaRetryProcessor instance
+   */
+  KafkaRetryProcessor<K, V> exceptionHandler(Handler<Throwable> handler);
+
+  /**
+   * Start processing the records of the source.
+   *
+   * @return current KafkaRetryProcessor instance
+   */
+  KafkaRetryProcessor<K, V> start();
+
+  /**
+   * Stop processing: the source is paused, the pending retries are abandoned and the offsets of the handled records
+   * are committed. The abandoned records are consumed again from the committed offsets.
+   *
+   * @param completionHandler handler called with the result of the commit
+   */
+  void stop(Handler<AsyncResult<Void>> completionHandler);
+
+  /**
+   * Evict the state of partitions: their pending records are abandoned without being committed and their next
+   * records are processed whatever their offsets, e.g before seeking the source. The eviction happens on the context
+   * of the processor, synchronously when called from it.
+   *
+   * @param partitions the partitions to evict
+   * @return current KafkaRetryProcessor instance
+   */
+  KafkaRetryProcessor<K, V> evict(Set<TopicPartition> partitions);
+
+  /**
+   * @return the number of records being processed or retried
+   */
+  int pendingRecords();
+}
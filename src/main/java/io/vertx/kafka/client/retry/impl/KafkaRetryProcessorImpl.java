@@ -0,0 +1,373 @@
+/*
+ * Copyright 2018 Red Hat Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.kafka.client.retry.impl;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.kafka.client.common.impl.Helper;
+import io.vertx.kafka.client.consumer.KafkaReadStream;
+import io.vertx.kafka.client.consumer.impl.OffsetWindow;
+import io.vertx.kafka.client.producer.KafkaWriteStream;
+import io.vertx.kafka.client.retry.KafkaRetryProcessor;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.record.TimestampType;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Kafka retry processor implementation, its state is only accessed on the context.
+ */
+public class KafkaRetryProcessorImpl<K, V> implements KafkaRetryProcessor<K, V> {
+
+  /**
+   * The records of a partition being processed or retried
+   */
+  private class PartitionState {
+
+    final TopicPartition partition;
+    // records not handled yet
+    final Set<Attempt> pending = new HashSet<>();
+    // the offsets not handled yet bound the committable offset
+    final OffsetWindow offsets = new OffsetWindow(maxPendingRecords);
+    long committed = -1;
+    boolean revoked;
+
+    PartitionState(TopicPartition partition) {
+      this.partition = partition;
+    }
+
+    long committable() {
+      return this.offsets.watermark();
+    }
+  }
+
+  /**
+   * The processing of a record
+   */
+  private class Attempt {
+
+    final ConsumerRecord<K, V> record;
+    final PartitionState partition;
+    int attempts;
+    // whether the processor is running the current attempt
+    boolean running;
+    long timerId = -1;
+
+    Attempt(ConsumerRecord<K, V> record, PartitionState partition) {
+      this.record = record;
+      this.partition = partition;
+    }
+  }
+
+  private final Context context;
+  private final KafkaReadStream<K, V> source;
+  private final KafkaWriteStream<K, V> deadLetters;
+  private final Map<TopicPartition, PartitionState> partitions = new HashMap<>();
+  private BiConsumer<ConsumerRecord<K, V>, Handler<AsyncResult<Void>>> processor;
+  private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+  private long initialBackoff = DEFAULT_INITIAL_BACKOFF;
+  private long maxBackoff = DEFAULT_MAX_BACKOFF;
+  private Function<String, String> deadLetterTopic = topic -> topic + ".DLQ";
+  private int maxPendingRecords = DEFAULT_MAX_PENDING_RECORDS;
+  private long commitInterval = DEFAULT_COMMIT_INTERVAL;
+  private Handler<Throwable> exceptionHandler;
+  private Handler<Set<TopicPartition>> revokedHandler;
+  private volatile int pendingRecords;
+  private boolean started;
+  private boolean paused;
+  private long commitTimerId = -1;
+
+  public KafkaRetryProcessorImpl(Context context, KafkaReadStream<K, V> source, KafkaWriteStream<K, V> deadLetters) {
+    this.context = context;
+    this.source = source;
+    this.deadLetters = deadLetters;
+  }
+
+  @Override
+  public KafkaRetryProcessor<K, V> processor(BiConsumer<ConsumerRecord<K, V>, Handler<AsyncResult<Void>>> processor) {
+    this.processor = processor;
+    return this;
+  }
+
+  @Override
+  public KafkaRetryProcessor<K, V> maxAttempts(int maxAttempts) {
+    this.maxAttempts = maxAttempts;
+    return this;
+  }
+
+  @Override
+  public KafkaRetryProcessor<K, V> backoff(long initialBackoff, long maxBackoff) {
+    this.initialBackoff = initialBackoff;
+    this.maxBackoff = maxBackoff;
+    return this;
+  }
+
+  @Override
+  public KafkaRetryProcessor<K, V> deadLetterTopic(Function<String, String> deadLetterTopic) {
+    this.deadLetterTopic = deadLetterTopic;
+    return this;
+  }
+
+  @Override
+  public KafkaRetryProcessor<K, V> maxPendingRecords(int maxPendingRecords) {
+    this.maxPendingRecords = maxPendingRecords;
+    return this;
+  }
+
+  @Override
+  public KafkaRetryProcessor<K, V> commitInterval(long commitInterval) {
+    this.commitInterval = commitInterval;
+    return this;
+  }
+
+  @Override
+  public KafkaRetryProcessor<K, V> exceptionHandler(Handler<Throwable> handler) {
+    this.exceptionHandler = handler;
+    return this;
+  }
+
+  @Override
+  public KafkaRetryProcessor<K, V> start() {
+    if (this.processor == null) {
+      throw new IllegalStateException("No processor set");
+    }
+    this.started = true;
+    this.paused = false;
+    this.revokedHandler = this.source.partitionsRevokedHandler();
+    this.source.partitionsRevokedHandler(partitions -> {
+      this.evict(partitions);
+      if (this.revokedHandler != null) {
+        this.revokedHandler.handle(partitions);
+      }
+    });
+    this.source.handler(record -> this.onContext(v -> this.received(record)));
+    this.commitTimerId = this.context.owner().setPeriodic(this.commitInterval, id -> this.commit(this.partitions.values(), null));
+    this.source.resume();
+    return this;
+  }
+
+  @Override
+  public void stop(Handler<AsyncResult<Void>> completionHandler) {
+    this.started = false;
+    this.source.pause();
+    this.source.handler(null);
+    this.source.partitionsRevokedHandler(this.revokedHandler);
+    this.context.owner().cancelTimer(this.commitTimerId);
+    this.commit(this.partitions.values(), completionHandler);
+    for (PartitionState state : this.partitions.values()) {
+      this.abandon(state);
+    }
+    this.partitions.clear();
+  }
+
+  @Override
+  public KafkaRetryProcessor<K, V> evict(Set<TopicPartition> partitions) {
+    this.onContext(v -> {
+      for (TopicPartition partition : partitions) {
+        PartitionState state = this.partitions.remove(partition);
+        if (state != null) {
+          this.abandon(state);
+        }
+      }
+    });
+    return this;
+  }
+
+  @Override
+  public int pendingRecords() {
+    return this.pendingRecords;
+  }
+
+  private void onContext(Handler<Void> task) {
+    if (Vertx.currentContext() == this.context) {
+      task.handle(null);
+    } else {
+      this.context.runOnContext(task);
+    }
+  }
+
+  private void received(ConsumerRecord<K, V> record) {
+    // records delivered before the processor was stopped are consumed again from the committed offsets
+    if (!this.started) {
+      return;
+    }
+    TopicPartition partition = Helper.to(record.topic(), record.partition());
+    PartitionState state = this.partitions.computeIfAbsent(partition, PartitionState::new);
+    // a duplicate delivery of a record already pending or processed, the partition is evicted after a seek
+    if (!state.offsets.received(record.offset())) {
+      return;
+    }
+    Attempt attempt = new Attempt(record, state);
+    state.pending.add(attempt);
+    if (++this.pendingRecords > this.maxPendingRecords && !this.paused) {
+      this.paused = true;
+      this.source.pause();
+    }
+    this.process(attempt);
+  }
+
+  private void process(Attempt attempt) {
+    attempt.timerId = -1;
+    attempt.attempts++;
+    attempt.running = true;
+    try {
+      this.processor.accept(attempt.record, ar -> this.onContext(v -> this.processed(attempt, ar)));
+    } catch (Exception e) {
+      this.processed(attempt, Future.failedFuture(e));
+    }
+  }
+
+  private void processed(Attempt attempt, AsyncResult<Void> ar) {
+    if (!attempt.running || attempt.partition.revoked) {
+      // already completed, or abandoned
+      return;
+    }
+    attempt.running = false;
+    if (ar.succeeded()) {
+      this.handled(attempt);
+    } else if (attempt.attempts < this.maxAttempts) {
+      attempt.timerId = this.context.owner().setTimer(this.backoff(attempt.attempts), id -> this.process(attempt));
+    } else {
+      this.deadLetter(attempt, ar.cause());
+    }
+  }
+
+  private long backoff(int attempts) {
+    long delay = this.initialBackoff;
+    for (int i = 1; i < attempts && delay < this.maxBackoff; i++) {
+      delay *= 2;
+    }
+    return Math.min(delay, this.maxBackoff);
+  }
+
+  private void deadLetter(Attempt attempt, Throwable cause) {
+    attempt.timerId = -1;
+    ConsumerRecord<K, V> record = attempt.record;
+    RecordHeaders headers = new RecordHeaders(record.headers().toArray());
+    headers.add(ORIGINAL_TOPIC_HEADER, record.topic().getBytes(StandardCharsets.UTF_8));
+    headers.add(ORIGINAL_PARTITION_HEADER, Integer.toString(record.partition()).getBytes(StandardCharsets.UTF_8));
+    headers.add(ORIGINAL_OFFSET_HEADER, Long.toString(record.offset()).getBytes(StandardCharsets.UTF_8));
+    headers.add(ATTEMPTS_HEADER, Integer.toString(attempt.attempts).getBytes(StandardCharsets.UTF_8));
+    headers.add(EXCEPTION_HEADER, String.valueOf(cause).getBytes(StandardCharsets.UTF_8));
+    ProducerRecord<K, V> deadLetter = new ProducerRecord<>(
+      this.deadLetterTopic.apply(record.topic()),
+      null,
+      record.timestampType() != TimestampType.NO_TIMESTAMP_TYPE ? record.timestamp() : null,
+      record.key(),
+      record.value(),
+      headers);
+    attempt.running = true;
+    this.deadLetters.write(deadLetter, ar -> this.onContext(v -> {
+      if (!attempt.running || attempt.partition.revoked) {
+        return;
+      }
+      attempt.running = false;
+      if (ar.succeeded()) {
+        this.handled(attempt);
+      } else {
+        // the record is not committed until it is dead lettered
+        this.notifyException(ar.cause());
+        attempt.timerId = this.context.owner().setTimer(this.maxBackoff, id -> this.deadLetter(attempt, cause));
+      }
+    }));
+  }
+
+  private void handled(Attempt attempt) {
+    attempt.partition.pending.remove(attempt);
+    attempt.partition.offsets.completed(attempt.record.offset());
+    this.released(1);
+  }
+
+  private void released(int count) {
+    this.pendingRecords -= count;
+    if (this.paused && this.pendingRecords <= this.maxPendingRecords / 2) {
+      this.paused = false;
+      if (this.started) {
+        this.source.resume();
+      }
+    }
+  }
+
+  private void abandon(PartitionState state) {
+    state.revoked = true;
+    for (Attempt attempt : state.pending) {
+      if (attempt.timerId != -1) {
+        this.context.owner().cancelTimer(attempt.timerId);
+      }
+    }
+    int count = state.pending.size();
+    state.pending.clear();
+    this.released(count);
+  }
+
+  /**
+   * Commit the offsets of the handled records of some partitions, the committed offsets are only recorded once
+   * the commit succeeded.
+   */
+  private void commit(Collection<PartitionState> states, Handler<AsyncResult<Void>> completionHandler) {
+    Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+    List<PartitionState> committing = new ArrayList<>();
+    for (PartitionState state : states) {
+      long committable = state.committable();
+      if (committable > state.committed) {
+        offsets.put(state.partition, new OffsetAndMetadata(committable));
+        committing.add(state);
+      }
+    }
+    if (offsets.isEmpty()) {
+      if (completionHandler != null) {
+        completionHandler.handle(Future.succeededFuture());
+      }
+      return;
+    }
+    this.source.commit(offsets, ar -> this.onContext(v -> {
+      if (ar.succeeded()) {
+        for (PartitionState state : committing) {
+          state.committed = Math.max(state.committed, offsets.get(state.partition).offset());
+        }
+      } else {
+        this.notifyException(ar.cause());
+      }
+      if (completionHandler != null) {
+        completionHandler.handle(ar.succeeded() ? Future.succeededFuture() : Future.failedFuture(ar.cause()));
+      }
+    }));
+  }
+
+  private void notifyException(Throwable err) {
+    Handler<Throwable> handler = this.exceptionHandler;
+    if (handler != null) {
+      handler.handle(err);
+    }
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2018 Red Hat Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.kafka.client.rpc;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.kafka.client.consumer.KafkaReadStream;
+import io.vertx.kafka.client.producer.KafkaWriteStream;
+import io.vertx.kafka.client.rpc.impl.KafkaRequestReplyImpl;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
+
+/**
+ * A request/reply client over Kafka: requests are sent with a {@link KafkaWriteStream} carrying a correlation id
+ * and the topic to reply to in their headers, replies are read from this topic with a {@link KafkaReadStream} and
+ * matched to their request through the correlation id.
+ * <p>
+ * Each request waits for its reply in a concurrent map, up to a timeout after which its handler is failed. The number
+ * of requests in flight is bounded, a request beyond the bound fails immediately. The handler of a request is called
+ * on the context of the caller.
+ * <p>
+ * The reply stream must be dedicated to the client: the client assigns it all the partitions of the reply topic from
+ * their end and takes over its record handler. Replies to other clients sharing the topic are ignored. The
+ * partitions of the reply topic are read once in {@link #start(Handler)}, a partition added to the topic later is
+ * never read, so replies must not be sent to it. The replying
+ * side creates its replies with {@link #reply(ConsumerRecord, Object, Object)}.
+ */
+public interface KafkaRequestReply<K, V, R> {
+
+  /**
+   * Header giving the correlation id of a request and of its reply
+   */
+  String CORRELATION_ID_HEADER = "vertx.correlation.id";
+
+  /**
+   * Header of a request giving the topic to reply to
+   */
+  String REPLY_TOPIC_HEADER = "vertx.reply.topic";
+
+  /**
+   * Default timeout of a request in milliseconds
+   */
+  long DEFAULT_TIMEOUT = 30000;
+
+  /**
+   * Default maximum number of requests in flight
+   */
+  int DEFAULT_MAX_IN_FLIGHT = 10000;
+
+  /**
+   * Create a new KafkaRequestReply instance
+   *
+   * @param vertx Vert.x instance to use
+   * @param requests the stream sending the requests
+   * @param replies the stream reading the replies
+   * @param replyTopic the topic of the replies
+   * @return an instance of the KafkaRequestReply
+   */
+  static <K, V, R> KafkaRequestReply<K, V, R> create(Vertx vertx, KafkaWriteStream<K, V> requests, KafkaReadStream<K, R> replies, String replyTopic) {
+    return new KafkaRequestReplyImpl<>(vertx, requests, replies, replyTopic);
+  }
+
+  /**
+   * Create the reply of a request, to the topic and with the correlation id of the request.
+   *
+   * @param request the request
+   * @param key the key of the reply
+   * @param value the value of the reply
+   * @return the reply record
+   * @throws IllegalArgumentException when the request does not have the request/reply headers
+   */
+  static <K, R> ProducerRecord<K, R> reply(ConsumerRecord<?, ?> request, K key, R value) {
+    Header replyTopic = request.headers().lastHeader(REPLY_TOPIC_HEADER);
+    Header correlationId = request.headers().lastHeader(CORRELATION_ID_HEADER);
+    if (replyTopic == null || correlationId == null) {
+      throw new IllegalArgumentException("The record is not a request");
+    }
+    ProducerRecord<K, R> reply = new ProducerRecord<>(new String(replyTopic.value()), key, value);
+    reply.headers().add(CORRELATION_ID_HEADER, correlationId.value());
+    return reply;
+  }
+
+  /**
+   * Set the time a request waits for its reply.
+   *
+   * @param timeout the timeout in milliseconds
+   * @return current KafkaRequestReply instance
+   */
+  KafkaRequestReply<K, V, R> timeout(long timeout);
+
+  /**
+   * Set the maximum number of requests waiting for their reply.
+   *
+   * @param maxInFlight the maximum number of requests
+   * @return current KafkaRequestReply instance
+   */
+  KafkaRequestReply<K, V, R> maxInFlight(int maxInFlight);
+
+  /**
+   * Start reading the replies, requests can be sent once started. The reply stream is assigned the partitions the
+   * reply topic has at this time.
+   *
+   * @param completionHandler handler called on operation completed
+   * @return current KafkaRequestReply instance
+   */
+  KafkaRequestReply<K, V, R> start(Handler<AsyncResult<Void>> completionHandler);
+
+  /**
+   * Send a request.
+   *
+   * @param request the request record, its headers are completed by the client
+   * @param replyHandler handler called with the reply, or the failure of the request
+   * @return current KafkaRequestReply instance
+   */
+  KafkaRequestReply<K, V, R> request(ProducerRecord<K, V> request, Handler<AsyncResult<ConsumerRecord<K, R>>> replyHandler);
+
+  /**
+   * @return the number of requests waiting for their reply
+   */
+  int inFlight();
+
+  /**
+   * Stop reading the replies, the requests in flight are failed.
+   */
+  void stop();
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2018 Red Hat Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.kafka.client.rpc.impl;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.kafka.client.common.impl.Helper;
+import io.vertx.kafka.client.consumer.KafkaReadStream;
+import io.vertx.kafka.client.producer.KafkaWriteStream;
+import io.vertx.kafka.client.rpc.KafkaRequestReply;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Kafka request/reply implementation, the requests in flight are shared between the contexts of the callers
+ * and of the reply stream.
+ */
+public class KafkaRequestReplyImpl<K, V, R> implements KafkaRequestReply<K, V, R> {
+
+  /**
+   * A request waiting for its reply
+   */
+  private class Pending {
+
+    final Context context;
+    final Handler<AsyncResult<ConsumerRecord<K, R>>> handler;
+    final long timerId;
+
+    Pending(Context context, Handler<AsyncResult<ConsumerRecord<K, R>>> handler, long timerId) {
+      this.context = context;
+      this.handler = handler;
+      this.timerId = timerId;
+    }
+
+    void complete(AsyncResult<ConsumerRecord<K, R>> result) {
+      if (Vertx.currentContext() == this.context) {
+        this.handler.handle(result);
+      } else {
+        this.context.runOnContext(v -> this.handler.handle(result));
+      }
+    }
+  }
+
+  private final Vertx vertx;
+  private final KafkaWriteStream<K, V> requests;
+  private final KafkaReadStream<K, R> replies;
+  private final String replyTopic;
+  private final byte[] replyTopicBytes;
+  // the ids are unique across clients sharing the reply topic
+  private final String idPrefix = UUID.randomUUID().toString() + "-";
+  private final AtomicLong sequence = new AtomicLong();
+  private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+  private long timeout = DEFAULT_TIMEOUT;
+  private int maxInFlight = DEFAULT_MAX_IN_FLIGHT;
+
+  public KafkaRequestReplyImpl(Vertx vertx, KafkaWriteStream<K, V> requests, KafkaReadStream<K, R> replies, String replyTopic) {
+    this.vertx = vertx;
+    this.requests = requests;
+    this.replies = replies;
+    this.replyTopic = replyTopic;
+    this.replyTopicBytes = replyTopic.getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Override
+  public KafkaRequestReply<K, V, R> timeout(long timeout) {
+    this.timeout = timeout;
+    return this;
+  }
+
+  @Override
+  public KafkaRequestReply<K, V, R> maxInFlight(int maxInFlight) {
+    this.maxInFlight = maxInFlight;
+    return this;
+  }
+
+  @Override
+  public KafkaRequestReply<K, V, R> start(Handler<AsyncResult<Void>> completionHandler) {
+    Future<Void> started = Future.<Void>future().setHandler(completionHandler);
+    this.replies.partitionsFor(this.replyTopic, ar1 -> {
+      if (ar1.failed()) {
+        started.fail(ar1.cause());
+        return;
+      }
+      Set<TopicPartition> partitions = new HashSet<>();
+      for (PartitionInfo info : ar1.result()) {
+        partitions.add(Helper.to(info.topic(), info.partition()));
+      }
+      this.replies.assign(partitions, ar2 -> {
+        if (ar2.failed()) {
+          started.fail(ar2.cause());
+          return;
+        }
+        // explicit seeks, a reset to the end would only be resolved by the first poll and could skip replies
+        this.replies.endOffsets(partitions, ar3 -> {
+          if (ar3.failed()) {
+            started.fail(ar3.cause());
+            return;
+          }
+          List<Future<?>> seeks = new ArrayList<>();
+          for (Map.Entry<TopicPartition, Long> end : ar3.result().entrySet()) {
+            Future<Void> seek = Future.future();
+            this.replies.seek(end.getKey(), end.getValue(), seek);
+            seeks.add(seek);
+          }
+          @SuppressWarnings({"unchecked", "rawtypes"})
+          List<Future> all = (List<Future>) (List<?>) seeks;
+          CompositeFuture.all(all).setHandler(ar4 -> {
+            if (ar4.failed()) {
+              started.fail(ar4.cause());
+              return;
+            }
+            this.replies.handler(this::handleReply);
+            started.complete();
+          });
+        });
+      });
+    });
+    return this;
+  }
+
+  @Override
+  public KafkaRequestReply<K, V, R> request(ProducerRecord<K, V> request, Handler<AsyncResult<ConsumerRecord<K, R>>> replyHandler) {
+    Context context = this.vertx.getOrCreateContext();
+    // the size of a concurrent map is an estimate, the bound can be exceeded by concurrent callers
+    if (this.pending.size() >= this.maxInFlight) {
+      context.runOnContext(v -> replyHandler.handle(Future.failedFuture(new IllegalStateException("Too many requests in flight"))));
+      return this;
+    }
+    String id = this.idPrefix + this.sequence.incrementAndGet();
+    RecordHeaders headers = new RecordHeaders(request.headers().toArray());
+    headers.add(CORRELATION_ID_HEADER, id.getBytes(StandardCharsets.UTF_8));
+    headers.add(REPLY_TOPIC_HEADER, this.replyTopicBytes);
+    ProducerRecord<K, V> record = new ProducerRecord<>(request.topic(), request.partition(), request.timestamp(),
+      request.key(), request.value(), headers);
+    long timerId = this.vertx.setTimer(this.timeout, tid -> {
+      Pending expired = this.pending.remove(id);
+      if (expired != null) {
+        expired.complete(Future.failedFuture(new TimeoutException("No reply received within " + this.timeout + " ms")));
+      }
+    });
+    this.pending.put(id, new Pending(context, replyHandler, timerId));
+    this.requests.write(record, ar -> {
+      if (ar.failed()) {
+        this.fail(id, ar.cause());
+      }
+    });
+    return this;
+  }
+
+  private void handleReply(ConsumerRecord<K, R> reply) {
+    Header header = reply.headers().lastHeader(CORRELATION_ID_HEADER);
+    if (header == null) {
+      return;
+    }
+    Pending request = this.pending.remove(new String(header.value(), StandardCharsets.UTF_8));
+    if (request != null) {
+      this.vertx.cancelTimer(request.timerId);
+      request.complete(Future.succeededFuture(reply));
+    }
+  }
+
+  private void fail(String id, Throwable cause) {
+    Pending request = this.pending.remove(id);
+    if (request != null) {
+      this.vertx.cancelTimer(request.timerId);
+      request.complete(Future.failedFuture(cause));
+    }
+  }
+
+  @Override
+  public int inFlight() {
+    return this.pending.size();
+  }
+
+  @Override
+  public void stop() {
+    this.replies.handler(null);
+    for (String id : new ArrayList<>(this.pending.keySet())) {
+      this.fail(id, new IllegalStateException("Client stopped"));
+    }
+  }
+}
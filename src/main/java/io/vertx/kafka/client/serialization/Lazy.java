@@ -0,0 +1,78 @@
+/*
+ * Copyright 2018 Red Hat Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.kafka.client.serialization;
+
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.ExtendedDeserializer;
+
+/**
+ * A record key or value holding its raw bytes, deserialized on the first call to {@link #get()}.
+ * <p>
+ * Instances are created by a {@link LazyDeserializer}.
+ */
+public final class Lazy<T> {
+
+  private final ExtendedDeserializer<T> deserializer;
+  private final String topic;
+  private final Headers headers;
+  private final byte[] bytes;
+  private volatile boolean deserialized;
+  private T value;
+
+  Lazy(ExtendedDeserializer<T> deserializer, String topic, Headers headers, byte[] bytes) {
+    this.deserializer = deserializer;
+    this.topic = topic;
+    this.headers = headers;
+    this.bytes = bytes;
+  }
+
+  /**
+   * @return the raw bytes
+   */
+  public byte[] bytes() {
+    return this.bytes;
+  }
+
+  /**
+   * @return whether the bytes have already been deserialized
+   */
+  public boolean isDeserialized() {
+    return this.deserialized;
+  }
+
+  /**
+   * Deserialize the bytes on the first call, the next calls return the same value.
+   *
+   * @return the deserialized value
+   */
+  public T get() {
+    if (!this.deserialized) {
+      synchronized (this) {
+        if (!this.deserialized) {
+          this.value = this.deserializer.deserialize(this.topic, this.headers, this.bytes);
+          this.deserialized = true;
+        }
+      }
+    }
+    return this.value;
+  }
+
+  @Override
+  public String toString() {
+    return this.deserialized ? String.valueOf(this.value) : "Lazy{" + this.bytes.length + " bytes}";
+  }
+}
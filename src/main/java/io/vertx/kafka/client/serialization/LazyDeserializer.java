@@ -0,0 +1,79 @@
+/*
+ * Copyright 2018 Red Hat Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.kafka.client.serialization;
+
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.ExtendedDeserializer;
+
+import java.util.Map;
+
+/**
+ * Kafka deserializer deferring the deserialization of a key or value until it is read: the consumer only
+ * keeps the raw bytes in a {@link Lazy} instead of deserializing them while polling.
+ * <p>
+ * The consumer does not call the deserializer for a {@code null} key or value, which remain {@code null}.
+ * The wrapped deserializer is closed with the consumer, the lazy values must be read before.
+ * <p>
+ * The wrapped deserializer runs on the threads reading the lazy values, e.g the event loop and the threads of the
+ * offloaded partitions, concurrently with each other and with the polling of the consumer. It must be thread safe
+ * and dedicated to this lazy deserializer: an instance also given to a consumer or to another lazy deserializer
+ * would be shared by these threads. The deserializers of {@link #of(Class)} are stateless.
+ */
+public class LazyDeserializer<T> implements ExtendedDeserializer<Lazy<T>> {
+
+  /**
+   * @param type the class of the deserialized values
+   * @return a lazy deserializer of the given type
+   */
+  public static <T> LazyDeserializer<T> of(Class<T> type) {
+    return new LazyDeserializer<>(VertxSerdes.serdeFrom(type).deserializer());
+  }
+
+  private final ExtendedDeserializer<T> deserializer;
+
+  /**
+   * @param deserializer a thread safe deserializer, not used by anything else
+   */
+  public LazyDeserializer(Deserializer<T> deserializer) {
+    this.deserializer = ExtendedDeserializer.Wrapper.ensureExtended(deserializer);
+  }
+
+  @Override
+  public void configure(Map<String, ?> configs, boolean isKey) {
+    this.deserializer.configure(configs, isKey);
+  }
+
+  @Override
+  public Lazy<T> deserialize(String topic, Headers headers, byte[] data) {
+    if (data == null)
+      return null;
+
+    return new Lazy<>(this.deserializer, topic, headers, data);
+  }
+
+  @Override
+  public Lazy<T> deserialize(String topic, byte[] data) {
+    return this.deserialize(topic, new RecordHeaders(), data);
+  }
+
+  @Override
+  public void close() {
+    this.deserializer.close();
+  }
+}
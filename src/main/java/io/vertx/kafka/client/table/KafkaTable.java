@@ -0,0 +1,107 @@
+/*
+ * Copyright 2018 Red Hat Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.kafka.client.table;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.kafka.client.consumer.KafkaReadStream;
+import io.vertx.kafka.client.table.impl.KafkaTableImpl;
+import org.apache.kafka.common.serialization.Serde;
+
+import java.util.Map;
+
+/**
+ * An in-memory table materializing the latest value of each key of a compacted topic, read with a
+ * {@link KafkaReadStream}. A record with a {@code null} value deletes its key, records without key are ignored.
+ * <p>
+ * The table reads all the partitions of the topic and is ready once it has read up to the end offsets of the
+ * partitions at start time, it then keeps following the topic. The {@link #asMap()} view can be read from any
+ * thread.
+ * <p>
+ * With {@link #snapshot(String, long, Serde, Serde)} the table is periodically written to a local file together
+ * with the offsets it covers: a table started again loads the file and only reads the records following these
+ * offsets. A file which cannot be read back, e.g corrupt or written with other serdes, is logged and ignored, the
+ * table then reads the topic from the beginning.
+ * <p>
+ * The stream must be dedicated to the table: the table assigns it the partitions of the topic and takes over
+ * its record handler. The consumer should not belong to a consumer group nor commit offsets.
+ */
+public interface KafkaTable<K, V> {
+
+  /**
+   * Create a new KafkaTable instance
+   *
+   * @param vertx Vert.x instance to use
+   * @param stream the stream reading the topic
+   * @param topic the compacted topic to materialize
+   * @return an instance of the KafkaTable
+   */
+  static <K, V> KafkaTable<K, V> create(Vertx vertx, KafkaReadStream<K, V> stream, String topic) {
+    return new KafkaTableImpl<>(vertx.getOrCreateContext(), stream, topic);
+  }
+
+  /**
+   * Enable the snapshots of the table, the file is replaced atomically by each snapshot.
+   *
+   * @param path the path of the snapshot file
+   * @param interval the interval between two snapshots in milliseconds
+   * @param keySerde the serde of the keys in the file
+   * @param valueSerde the serde of the values in the file
+   * @return current KafkaTable instance
+   */
+  KafkaTable<K, V> snapshot(String path, long interval, Serde<K> keySerde, Serde<V> valueSerde);
+
+  /**
+   * Set an exception handler, called when a snapshot cannot be written or when the stream fails.
+   *
+   * @param handler the exception handler
+   * @return current KafkaTable instance
+   */
+  KafkaTable<K, V> exceptionHandler(Handler<Throwable> handler);
+
+  /**
+   * Start reading the topic, after loading the snapshot file if any.
+   *
+   * @param readyHandler handler called once the table has read up to the end offsets of the topic
+   * @return current KafkaTable instance
+   */
+  KafkaTable<K, V> start(Handler<AsyncResult<Void>> readyHandler);
+
+  /**
+   * Stop following the topic and write a last snapshot when snapshots are enabled.
+   *
+   * @param completionHandler handler called on operation completed
+   */
+  void stop(Handler<AsyncResult<Void>> completionHandler);
+
+  /**
+   * @return whether the table has read up to the end offsets of the topic at start time
+   */
+  boolean isReady();
+
+  /**
+   * @param key the key
+   * @return the latest value of the key, or {@code null}
+   */
+  V get(K key);
+
+  /**
+   * @return an unmodifiable concurrent view of the table
+   */
+  Map<K, V> asMap();
+}
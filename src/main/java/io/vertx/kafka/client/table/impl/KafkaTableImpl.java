@@ -0,0 +1,362 @@
+/*
+ * Copyright 2018 Red Hat Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.kafka.client.table.impl;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.kafka.client.common.impl.Helper;
+import io.vertx.kafka.client.consumer.KafkaReadStream;
+import io.vertx.kafka.client.table.KafkaTable;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.Serde;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Kafka table implementation, its state is only accessed on the context except the map.
+ */
+public class KafkaTableImpl<K, V> implements KafkaTable<K, V> {
+
+  private static final Logger log = LoggerFactory.getLogger(KafkaTableImpl.class);
+
+  private static final int SNAPSHOT_MAGIC = 0x4b544231;
+  private static final long READY_CHECK_INTERVAL = 200;
+
+  private final Context context;
+  private final KafkaReadStream<K, V> stream;
+  private final String topic;
+  private final ConcurrentHashMap<K, V> map = new ConcurrentHashMap<>();
+  private final Map<K, V> view = Collections.unmodifiableMap(this.map);
+  // offset of the next record of each partition read (or loaded from the snapshot)
+  private final Map<TopicPartition, Long> positions = new HashMap<>();
+  // end offsets at start time of the partitions not read up to them yet
+  private final Map<TopicPartition, Long> targets = new HashMap<>();
+  private String path;
+  private long interval;
+  private Serde<K> keySerde;
+  private Serde<V> valueSerde;
+  private Handler<Throwable> exceptionHandler;
+  private Handler<AsyncResult<Void>> readyHandler;
+  private volatile boolean ready;
+  private boolean snapshotting;
+  private long snapshotTimerId = -1;
+  private long readyTimerId = -1;
+
+  public KafkaTableImpl(Context context, KafkaReadStream<K, V> stream, String topic) {
+    this.context = context;
+    this.stream = stream;
+    this.topic = topic;
+  }
+
+  @Override
+  public KafkaTable<K, V> snapshot(String path, long interval, Serde<K> keySerde, Serde<V> valueSerde) {
+    this.path = path;
+    this.interval = interval;
+    this.keySerde = keySerde;
+    this.valueSerde = valueSerde;
+    return this;
+  }
+
+  @Override
+  public KafkaTable<K, V> exceptionHandler(Handler<Throwable> handler) {
+    this.exceptionHandler = handler;
+    return this;
+  }
+
+  @Override
+  public boolean isReady() {
+    return this.ready;
+  }
+
+  @Override
+  public V get(K key) {
+    return this.map.get(key);
+  }
+
+  @Override
+  public Map<K, V> asMap() {
+    return this.view;
+  }
+
+  @Override
+  public KafkaTable<K, V> start(Handler<AsyncResult<Void>> readyHandler) {
+    this.readyHandler = readyHandler;
+    this.stream.exceptionHandler(this::notifyException);
+    Future<Map<TopicPartition, Long>> loaded = Future.future();
+    if (this.path != null && new File(this.path).exists()) {
+      this.context.executeBlocking(this::load, loaded);
+    } else {
+      loaded.complete(Collections.emptyMap());
+    }
+    loaded.setHandler(ar1 -> {
+      if (ar1.failed()) {
+        this.failed(ar1.cause());
+        return;
+      }
+      this.positions.putAll(ar1.result());
+      this.stream.partitionsFor(this.topic, ar2 -> {
+        if (ar2.failed()) {
+          this.failed(ar2.cause());
+          return;
+        }
+        Set<TopicPartition> partitions = new HashSet<>();
+        for (PartitionInfo info : ar2.result()) {
+          partitions.add(Helper.to(info.topic(), info.partition()));
+        }
+        // the partitions which disappeared since the snapshot
+        this.positions.keySet().retainAll(partitions);
+        this.stream.assign(partitions, ar3 -> {
+          if (ar3.failed()) {
+            this.failed(ar3.cause());
+            return;
+          }
+          this.seek(partitions);
+        });
+      });
+    });
+    return this;
+  }
+
+  private void seek(Set<TopicPartition> partitions) {
+    Set<TopicPartition> fromBeginning = new HashSet<>(partitions);
+    fromBeginning.removeAll(this.positions.keySet());
+    for (Map.Entry<TopicPartition, Long> position : this.positions.entrySet()) {
+      this.stream.seek(position.getKey(), position.getValue());
+    }
+    // the seeks run on the consumer thread before this request
+    this.stream.seekToBeginning(fromBeginning, ar1 -> {
+      if (ar1.failed()) {
+        this.failed(ar1.cause());
+        return;
+      }
+      this.stream.beginningOffsets(partitions, ar2 -> {
+        if (ar2.failed()) {
+          this.failed(ar2.cause());
+          return;
+        }
+        this.stream.endOffsets(partitions, ar3 -> {
+          if (ar3.failed()) {
+            this.failed(ar3.cause());
+            return;
+          }
+          for (TopicPartition partition : partitions) {
+            long end = ar3.result().get(partition);
+            Long position = this.positions.get(partition);
+            long start = position != null ? position : ar2.result().get(partition);
+            if (start < end) {
+              this.targets.put(partition, end);
+            }
+          }
+          this.stream.handler(record -> {
+            if (Vertx.currentContext() == this.context) {
+              this.apply(record);
+            } else {
+              this.context.runOnContext(v -> this.apply(record));
+            }
+          });
+          if (this.path != null) {
+            this.snapshotTimerId = this.context.owner().setPeriodic(this.interval, id -> this.writeSnapshot(null));
+          }
+          if (!this.checkReady()) {
+            // the last offsets may not be records (e.g transaction markers), the positions tell when they are passed
+            this.readyTimerId = this.context.owner().setPeriodic(READY_CHECK_INTERVAL, id -> this.checkPositions());
+          }
+        });
+      });
+    });
+  }
+
+  private void apply(ConsumerRecord<K, V> record) {
+    if (record.key() != null) {
+      if (record.value() == null) {
+        this.map.remove(record.key());
+      } else {
+        this.map.put(record.key(), record.value());
+      }
+    }
+    TopicPartition partition = Helper.to(record.topic(), record.partition());
+    long position = record.offset() + 1;
+    this.positions.put(partition, position);
+    if (!this.ready) {
+      Long target = this.targets.get(partition);
+      if (target != null && position >= target) {
+        this.targets.remove(partition);
+        this.checkReady();
+      }
+    }
+  }
+
+  private void checkPositions() {
+    for (Map.Entry<TopicPartition, Long> target : new HashMap<>(this.targets).entrySet()) {
+      this.stream.position(target.getKey(), ar -> {
+        if (ar.succeeded() && ar.result() >= target.getValue() && this.targets.remove(target.getKey()) != null) {
+          this.checkReady();
+        }
+      });
+    }
+  }
+
+  private boolean checkReady() {
+    if (this.ready || !this.targets.isEmpty()) {
+      return this.ready;
+    }
+    this.ready = true;
+    if (this.readyTimerId != -1) {
+      this.context.owner().cancelTimer(this.readyTimerId);
+      this.readyTimerId = -1;
+    }
+    Handler<AsyncResult<Void>> handler = this.readyHandler;
+    this.readyHandler = null;
+    if (handler != null) {
+      handler.handle(Future.succeededFuture());
+    }
+    return true;
+  }
+
+  private void failed(Throwable cause) {
+    Handler<AsyncResult<Void>> handler = this.readyHandler;
+    this.readyHandler = null;
+    if (handler != null) {
+      handler.handle(Future.failedFuture(cause));
+    } else {
+      this.notifyException(cause);
+    }
+  }
+
+  @Override
+  public void stop(Handler<AsyncResult<Void>> completionHandler) {
+    this.stream.handler(null);
+    this.context.owner().cancelTimer(this.snapshotTimerId);
+    this.context.owner().cancelTimer(this.readyTimerId);
+    if (this.path != null) {
+      this.writeSnapshot(completionHandler);
+    } else if (completionHandler != null) {
+      completionHandler.handle(Future.succeededFuture());
+    }
+  }
+
+  private void writeSnapshot(Handler<AsyncResult<Void>> completionHandler) {
+    if (this.snapshotting) {
+      // the snapshot in progress is enough for the periodic ones, a last snapshot waits for it
+      if (completionHandler != null) {
+        this.context.owner().setTimer(10, id -> this.writeSnapshot(completionHandler));
+      }
+      return;
+    }
+    this.snapshotting = true;
+    // the offsets are taken before the map: the map may contain later updates, they are read again at restart
+    // and the keys end up with their latest value anyway
+    Map<TopicPartition, Long> offsets = new HashMap<>(this.positions);
+    this.context.<Void>executeBlocking(future -> {
+      try {
+        this.write(offsets);
+        future.complete();
+      } catch (IOException e) {
+        future.fail(e);
+      }
+    }, false, ar -> {
+      this.snapshotting = false;
+      if (ar.failed()) {
+        this.notifyException(ar.cause());
+      }
+      if (completionHandler != null) {
+        completionHandler.handle(ar);
+      }
+    });
+  }
+
+  private void write(Map<TopicPartition, Long> offsets) throws IOException {
+    File file = new File(this.path);
+    File tmp = new File(this.path + ".tmp");
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+      out.writeInt(SNAPSHOT_MAGIC);
+      out.writeInt(offsets.size());
+      for (Map.Entry<TopicPartition, Long> offset : offsets.entrySet()) {
+        out.writeUTF(offset.getKey().topic());
+        out.writeInt(offset.getKey().partition());
+        out.writeLong(offset.getValue());
+      }
+      for (Map.Entry<K, V> entry : this.map.entrySet()) {
+        writeBytes(out, this.keySerde.serializer().serialize(this.topic, entry.getKey()));
+        writeBytes(out, this.valueSerde.serializer().serialize(this.topic, entry.getValue()));
+      }
+      out.writeInt(-1);
+    }
+    Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private void load(Future<Map<TopicPartition, Long>> future) {
+    Map<TopicPartition, Long> offsets = new HashMap<>();
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(this.path)))) {
+      if (in.readInt() != SNAPSHOT_MAGIC) {
+        throw new IOException("Invalid snapshot file " + this.path);
+      }
+      int count = in.readInt();
+      for (int i = 0; i < count; i++) {
+        offsets.put(Helper.to(in.readUTF(), in.readInt()), in.readLong());
+      }
+      for (int length = in.readInt(); length != -1; length = in.readInt()) {
+        byte[] key = new byte[length];
+        in.readFully(key);
+        byte[] value = new byte[in.readInt()];
+        in.readFully(value);
+        this.map.put(this.keySerde.deserializer().deserialize(this.topic, key),
+          this.valueSerde.deserializer().deserialize(this.topic, value));
+      }
+      future.complete(offsets);
+    } catch (Exception e) {
+      // a corrupt snapshot or one written with other serdes, the topic is read again from the beginning
+      log.warn("Ignoring the unreadable snapshot file " + this.path, e);
+      this.map.clear();
+      future.complete(Collections.emptyMap());
+    }
+  }
+
+  private void notifyException(Throwable err) {
+    Handler<Throwable> handler = this.exceptionHandler;
+    if (handler != null) {
+      handler.handle(err);
+    }
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2018 Red Hat Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.kafka.client.window;
+
+/**
+ * The aggregate of the records of a key in a closed time window of a partition.
+ */
+public final class KafkaWindow<K> {
+
+  private final String topic;
+  private final int partition;
+  private final K key;
+  private final long start;
+  private final long end;
+  private final long count;
+  private final long sum;
+  private final long min;
+  private final long max;
+
+  public KafkaWindow(String topic, int partition, K key, long start, long end, long count, long sum, long min, long max) {
+    this.topic = topic;
+    this.partition = partition;
+    this.key = key;
+    this.start = start;
+    this.end = end;
+    this.count = count;
+    this.sum = sum;
+    this.min = min;
+    this.max = max;
+  }
+
+  /**
+   * @return the topic of the aggregated records
+   */
+  public String topic() {
+    return this.topic;
+  }
+
+  /**
+   * @return the partition of the aggregated records
+   */
+  public int partition() {
+    return this.partition;
+  }
+
+  /**
+   * @return the key of the aggregated records
+   */
+  public K key() {
+    return this.key;
+  }
+
+  /**
+   * @return the start timestamp of the window, inclusive
+   */
+  public long start() {
+    return this.start;
+  }
+
+  /**
+   * @return the end timestamp of the window, exclusive
+   */
+  public long end() {
+    return this.end;
+  }
+
+  /**
+   * @return the number of records
+   */
+  public long count() {
+    return this.count;
+  }
+
+  /**
+   * @return the sum of the values of the records
+   */
+  public long sum() {
+    return this.sum;
+  }
+
+  /**
+   * @return the minimum value of the records
+   */
+  public long min() {
+    return this.min;
+  }
+
+  /**
+   * @return the maximum value of the records
+   */
+  public long max() {
+    return this.max;
+  }
+
+  @Override
+  public String toString() {
+
+    return "KafkaWindow{" +
+      "topic=" + this.topic +
+      ", partition=" + this.partition +
+      ", key=" + this.key +
+      ", start=" + this.start +
+      ", end=" + this.end +
+      ", count=" + this.count +
+      ", sum=" + this.sum +
+      ", min=" + this.min +
+      ", max=" + this.max +
+      "}";
+  }
+}
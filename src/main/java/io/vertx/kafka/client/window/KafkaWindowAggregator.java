@@ -0,0 +1,117 @@
+/*
+ * Copyright 2018 Red Hat Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.kafka.client.window;
+
+import io.vertx.core.Handler;
+import io.vertx.kafka.client.consumer.KafkaReadStream;
+import io.vertx.kafka.client.producer.KafkaWriteStream;
+import io.vertx.kafka.client.window.impl.KafkaWindowAggregatorImpl;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Aggregates the records read by a {@link KafkaReadStream} per key over time windows of their timestamp, computing
+ * the count, sum, minimum and maximum of a long value extracted from each record. A {@link io.vertx.kafka.client.consumer.KafkaConsumer}
+ * is aggregated with its {@link io.vertx.kafka.client.consumer.KafkaConsumer#asStream()}.
+ * <p>
+ * Each partition has its own time, the largest timestamp it has read. A window is closed and emitted when this time
+ * passes its end plus the grace period, the records arriving later for it are dropped and counted as late records.
+ * Windows are either tumbling or sliding by a fixed advance, in which case a record belongs to several windows.
+ * <p>
+ * The windows of a partition are dropped when it is revoked or assigned, the aggregator takes over the record
+ * handler of the stream and chains to its partitions revoked and assigned handlers, which are called once the
+ * windows are dropped. The aggregated records should be committed once their windows are emitted. An aggregator is not thread safe, it must be used on the context of the stream.
+ */
+public interface KafkaWindowAggregator<K, V> {
+
+  /**
+   * Create an aggregator over tumbling windows.
+   *
+   * @param stream the stream to aggregate
+   * @param size the size of the windows in milliseconds
+   * @return an instance of the KafkaWindowAggregator
+   */
+  static <K, V> KafkaWindowAggregator<K, V> tumbling(KafkaReadStream<K, V> stream, long size) {
+    return new KafkaWindowAggregatorImpl<>(stream, size, size);
+  }
+
+  /**
+   * Create an aggregator over sliding windows.
+   *
+   * @param stream the stream to aggregate
+   * @param size the size of the windows in milliseconds
+   * @param advance the interval between the start of two windows in milliseconds
+   * @return an instance of the KafkaWindowAggregator
+   */
+  static <K, V> KafkaWindowAggregator<K, V> sliding(KafkaReadStream<K, V> stream, long size, long advance) {
+    return new KafkaWindowAggregatorImpl<>(stream, size, advance);
+  }
+
+  /**
+   * Set the function extracting the value aggregated from a record, by default each record has the value {@code 1}.
+   *
+   * @param extractor the value extractor
+   * @return current KafkaWindowAggregator instance
+   */
+  KafkaWindowAggregator<K, V> value(ToLongFunction<ConsumerRecord<K, V>> extractor);
+
+  /**
+   * Set the time a window stays open after its end to accept out of order records, {@code 0} by default.
+   *
+   * @param grace the grace period in milliseconds
+   * @return current KafkaWindowAggregator instance
+   */
+  KafkaWindowAggregator<K, V> grace(long grace);
+
+  /**
+   * Set the handler of the closed windows.
+   *
+   * @param handler the window handler
+   * @return current KafkaWindowAggregator instance
+   */
+  KafkaWindowAggregator<K, V> handler(Handler<KafkaWindow<K>> handler);
+
+  /**
+   * Write the closed windows to a stream, the stream aggregated is paused while the queue of the sink is full.
+   *
+   * @param sink the stream receiving the windows
+   * @param mapper the function creating the record of a window
+   * @return current KafkaWindowAggregator instance
+   */
+  <R> KafkaWindowAggregator<K, V> sink(KafkaWriteStream<K, R> sink, Function<KafkaWindow<K>, ProducerRecord<K, R>> mapper);
+
+  /**
+   * Start aggregating the records of the stream.
+   *
+   * @return current KafkaWindowAggregator instance
+   */
+  KafkaWindowAggregator<K, V> start();
+
+  /**
+   * Stop aggregating the records of the stream, the open windows are dropped and the previous rebalance handlers
+   * of the stream are set back.
+   */
+  void stop();
+
+  /**
+   * @return the number of records dropped because all their windows were closed
+   */
+  long lateRecords();
+}
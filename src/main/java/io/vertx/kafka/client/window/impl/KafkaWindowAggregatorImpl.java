@@ -0,0 +1,220 @@
+/*
+ * Copyright 2018 Red Hat Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.kafka.client.window.impl;
+
+import io.vertx.core.Handler;
+import io.vertx.kafka.client.common.impl.Helper;
+import io.vertx.kafka.client.consumer.KafkaReadStream;
+import io.vertx.kafka.client.producer.KafkaWriteStream;
+import io.vertx.kafka.client.window.KafkaWindow;
+import io.vertx.kafka.client.window.KafkaWindowAggregator;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Kafka window aggregator implementation, with the open windows of each partition sorted by start
+ */
+public class KafkaWindowAggregatorImpl<K, V> implements KafkaWindowAggregator<K, V> {
+
+  private final KafkaReadStream<K, V> stream;
+  private final long size;
+  private final long advance;
+  private final Map<TopicPartition, PartitionWindows> partitions = new HashMap<>();
+  private ToLongFunction<ConsumerRecord<K, V>> extractor = record -> 1;
+  private long grace;
+  private Handler<KafkaWindow<K>> handler;
+  private Handler<KafkaWindow<K>> sink;
+  private Handler<Set<TopicPartition>> revokedHandler;
+  private Handler<Set<TopicPartition>> assignedHandler;
+  private long lateRecords;
+
+  public KafkaWindowAggregatorImpl(KafkaReadStream<K, V> stream, long size, long advance) {
+    if (size < 1 || advance < 1 || advance > size) {
+      throw new IllegalArgumentException("Size and advance must be positive and advance cannot exceed size");
+    }
+    this.stream = stream;
+    this.size = size;
+    this.advance = advance;
+  }
+
+  @Override
+  public KafkaWindowAggregator<K, V> value(ToLongFunction<ConsumerRecord<K, V>> extractor) {
+    this.extractor = extractor;
+    return this;
+  }
+
+  @Override
+  public KafkaWindowAggregator<K, V> grace(long grace) {
+    this.grace = grace;
+    return this;
+  }
+
+  @Override
+  public KafkaWindowAggregator<K, V> handler(Handler<KafkaWindow<K>> handler) {
+    this.handler = handler;
+    return this;
+  }
+
+  @Override
+  public <R> KafkaWindowAggregator<K, V> sink(KafkaWriteStream<K, R> sink, Function<KafkaWindow<K>, ProducerRecord<K, R>> mapper) {
+    this.sink = window -> {
+      sink.write(mapper.apply(window));
+      if (sink.writeQueueFull()) {
+        this.stream.pause();
+        sink.drainHandler(v -> this.stream.resume());
+      }
+    };
+    return this;
+  }
+
+  @Override
+  public KafkaWindowAggregator<K, V> start() {
+    this.revokedHandler = this.stream.partitionsRevokedHandler();
+    this.assignedHandler = this.stream.partitionsAssignedHandler();
+    this.stream.partitionsRevokedHandler(this::revoked);
+    this.stream.partitionsAssignedHandler(this::assigned);
+    this.stream.handler(this::aggregate);
+    return this;
+  }
+
+  @Override
+  public void stop() {
+    this.stream.handler(null);
+    this.stream.partitionsRevokedHandler(this.revokedHandler);
+    this.stream.partitionsAssignedHandler(this.assignedHandler);
+    this.partitions.clear();
+  }
+
+  @Override
+  public long lateRecords() {
+    return this.lateRecords;
+  }
+
+  private void revoked(Set<TopicPartition> partitions) {
+    this.evict(partitions);
+    if (this.revokedHandler != null) {
+      this.revokedHandler.handle(partitions);
+    }
+  }
+
+  private void assigned(Set<TopicPartition> partitions) {
+    this.evict(partitions);
+    if (this.assignedHandler != null) {
+      this.assignedHandler.handle(partitions);
+    }
+  }
+
+  private void evict(Set<TopicPartition> partitions) {
+    for (TopicPartition partition : partitions) {
+      this.partitions.remove(partition);
+    }
+  }
+
+  private void aggregate(ConsumerRecord<K, V> record) {
+    long timestamp = record.timestamp();
+    if (timestamp < 0) {
+      this.lateRecords++;
+      return;
+    }
+    TopicPartition partition = Helper.to(record.topic(), record.partition());
+    PartitionWindows windows = this.partitions.get(partition);
+    if (windows == null) {
+      windows = new PartitionWindows(partition);
+      this.partitions.put(partition, windows);
+    }
+    if (timestamp > windows.time) {
+      windows.time = timestamp;
+    }
+    long closed = windows.time - this.grace;
+    long value = this.extractor.applyAsLong(record);
+    boolean aggregated = false;
+    for (long start = timestamp - Math.floorMod(timestamp, this.advance); start > timestamp - this.size; start -= this.advance) {
+      if (start + this.size > closed) {
+        Map<K, Accumulator> window = windows.open.get(start);
+        if (window == null) {
+          window = new HashMap<>();
+          windows.open.put(start, window);
+        }
+        Accumulator accumulator = window.get(record.key());
+        if (accumulator == null) {
+          accumulator = new Accumulator();
+          window.put(record.key(), accumulator);
+        }
+        accumulator.add(value);
+        aggregated = true;
+      }
+    }
+    if (!aggregated) {
+      this.lateRecords++;
+    }
+    this.close(windows, closed);
+  }
+
+  private void close(PartitionWindows windows, long closed) {
+    while (!windows.open.isEmpty() && windows.open.firstKey() + this.size <= closed) {
+      Map.Entry<Long, Map<K, Accumulator>> window = windows.open.pollFirstEntry();
+      long start = window.getKey();
+      for (Map.Entry<K, Accumulator> entry : window.getValue().entrySet()) {
+        Accumulator accumulator = entry.getValue();
+        KafkaWindow<K> result = new KafkaWindow<>(windows.partition.topic(), windows.partition.partition(),
+          entry.getKey(), start, start + this.size, accumulator.count, accumulator.sum, accumulator.min, accumulator.max);
+        Handler<KafkaWindow<K>> handler = this.handler;
+        if (handler != null) {
+          handler.handle(result);
+        }
+        Handler<KafkaWindow<K>> sink = this.sink;
+        if (sink != null) {
+          sink.handle(result);
+        }
+      }
+    }
+  }
+
+  private class PartitionWindows {
+
+    private final TopicPartition partition;
+    private final TreeMap<Long, Map<K, Accumulator>> open = new TreeMap<>();
+    private long time = Long.MIN_VALUE;
+
+    private PartitionWindows(TopicPartition partition) {
+      this.partition = partition;
+    }
+  }
+
+  private static class Accumulator {
+
+    private long count;
+    private long sum;
+    private long min = Long.MAX_VALUE;
+    private long max = Long.MIN_VALUE;
+
+    private void add(long value) {
+      this.count++;
+      this.sum += value;
+      this.min = Math.min(this.min, value);
+      this.max = Math.max(this.max, value);
+    }
+  }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2018 Red Hat Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.reactivex.kafka.client.consumer;
+
+import io.reactivex.Flowable;
+import io.vertx.reactivex.kafka.client.consumer.impl.KafkaConsumerFlowableImpl;
+
+/**
+ * RxJava 2 {@link Flowable} adapters for a {@link KafkaConsumer}, they complete the generated Rxified API and
+ * require the optional {@code vertx-rx-java2} dependency.
+ * <p>
+ * The downstream demand drives the consumer: the requests of the subscriber are added to the amount of records
+ * the consumer {@link KafkaConsumer#fetch(long) fetches}, and the consumer stops polling Kafka when this amount
+ * is exhausted, so that a slow subscriber does not make records pile up in memory.
+ * <p>
+ * A flowable supports a single subscriber at a time and takes over the handlers of the consumer while subscribed,
+ * cancelling the subscription pauses the consumer but does not close it.
+ */
+public final class KafkaConsumerFlowable {
+
+  private KafkaConsumerFlowable() {
+  }
+
+  /**
+   * Create a flowable emitting the records of the consumer, each requested item is a record.
+   *
+   * @param consumer the consumer
+   * @return the flowable
+   */
+  public static <K, V> Flowable<KafkaConsumerRecord<K, V>> toFlowable(KafkaConsumer<K, V> consumer) {
+    return new KafkaConsumerFlowableImpl.Records<>(KafkaConsumerFlowable.<K, V>delegate(consumer))
+      .map(KafkaConsumerRecord::<K, V>newInstance);
+  }
+
+  /**
+   * Create a flowable emitting the batches of records returned by each poll of the consumer, each requested
+   * item is a batch.
+   *
+   * @param consumer the consumer
+   * @return the flowable
+   */
+  public static <K, V> Flowable<KafkaConsumerRecords<K, V>> toBatchFlowable(KafkaConsumer<K, V> consumer) {
+    return new KafkaConsumerFlowableImpl.Batches<>(KafkaConsumerFlowable.<K, V>delegate(consumer))
+      .map(KafkaConsumerRecords::<K, V>newInstance);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <K, V> io.vertx.kafka.client.consumer.KafkaConsumer<K, V> delegate(KafkaConsumer<K, V> consumer) {
+    return consumer.getDelegate();
+  }
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2018 Red Hat Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.reactivex.kafka.client.consumer.impl;
+
+import io.reactivex.Flowable;
+import io.vertx.kafka.client.consumer.KafkaConsumer;
+import io.vertx.kafka.client.consumer.KafkaConsumerRecord;
+import io.vertx.kafka.client.consumer.KafkaConsumerRecords;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Flowable adapters of a Kafka consumer, the items are emitted on the consumer context.
+ */
+public abstract class KafkaConsumerFlowableImpl<K, V, T> extends Flowable<T> {
+
+  /**
+   * Each requested item is a record: the request is added to the records the consumer fetches.
+   */
+  public static final class Records<K, V> extends KafkaConsumerFlowableImpl<K, V, KafkaConsumerRecord<K, V>> {
+
+    public Records(KafkaConsumer<K, V> consumer) {
+      super(consumer);
+    }
+
+    @Override
+    ConsumerSubscription bind(Subscriber<? super KafkaConsumerRecord<K, V>> subscriber) {
+      ConsumerSubscription subscription = new ConsumerSubscription(subscriber) {
+        @Override
+        void demand(long n) {
+          consumer.fetch(n);
+        }
+      };
+      this.consumer.handler(subscription::onNext);
+      return subscription;
+    }
+  }
+
+  /**
+   * Each requested item is the batch of records of a poll: the consumer is paused once the requested
+   * batches have been emitted.
+   */
+  public static final class Batches<K, V> extends KafkaConsumerFlowableImpl<K, V, KafkaConsumerRecords<K, V>> {
+
+    public Batches(KafkaConsumer<K, V> consumer) {
+      super(consumer);
+    }
+
+    @Override
+    ConsumerSubscription bind(Subscriber<? super KafkaConsumerRecords<K, V>> subscriber) {
+      AtomicLong requested = new AtomicLong();
+      ConsumerSubscription subscription = new ConsumerSubscription(subscriber) {
+        @Override
+        void demand(long n) {
+          if (add(requested, n) == 0) {
+            consumer.resume();
+          }
+        }
+      };
+      // records are delivered by batch, the record handler only drains the records of the polled batches
+      this.consumer.handler(record -> {});
+      this.consumer.batchHandler(records -> {
+        subscription.onNext(records);
+        if (produced(requested) == 0) {
+          this.consumer.pause();
+          // a concurrent request may have resumed the consumer just before it got paused
+          if (requested.get() > 0) {
+            this.consumer.resume();
+          }
+        }
+      });
+      return subscription;
+    }
+  }
+
+  /**
+   * Add a request to an amount of requested items, capped to {@link Long#MAX_VALUE} which means unbounded.
+   *
+   * @return the amount before the request
+   */
+  static long add(AtomicLong requested, long n) {
+    while (true) {
+      long current = requested.get();
+      if (current == Long.MAX_VALUE) {
+        return current;
+      }
+      long next = current + n;
+      if (next < 0) {
+        next = Long.MAX_VALUE;
+      }
+      if (requested.compareAndSet(current, next)) {
+        return current;
+      }
+    }
+  }
+
+  /**
+   * Remove an emitted item from an amount of requested items, an unbounded amount is left unchanged.
+   *
+   * @return the amount after the emission
+   */
+  static long produced(AtomicLong requested) {
+    while (true) {
+      long current = requested.get();
+      if (current == Long.MAX_VALUE) {
+        return current;
+      }
+      long next = current > 0 ? current - 1 : 0;
+      if (requested.compareAndSet(current, next)) {
+        return next;
+      }
+    }
+  }
+
+  /**
+   * Subscription given to the rejected subscribers
+   */
+  private static final Subscription CANCELLED = new Subscription() {
+    @Override
+    public void request(long n) {
+    }
+
+    @Override
+    public void cancel() {
+    }
+  };
+
+  final KafkaConsumer<K, V> consumer;
+  private final AtomicBoolean subscribed = new AtomicBoolean();
+
+  KafkaConsumerFlowableImpl(KafkaConsumer<K, V> consumer) {
+    this.consumer = consumer;
+  }
+
+  /**
+   * Set the handlers of the consumer delivering the items to the subscriber.
+   *
+   * @return the subscription
+   */
+  abstract ConsumerSubscription bind(Subscriber<? super T> subscriber);
+
+  @Override
+  protected void subscribeActual(Subscriber<? super T> subscriber) {
+    if (!this.subscribed.compareAndSet(false, true)) {
+      subscriber.onSubscribe(CANCELLED);
+      subscriber.onError(new IllegalStateException("A consumer flowable supports a single subscriber"));
+      return;
+    }
+    // nothing is fetched until the subscriber requests items
+    this.consumer.pause();
+    ConsumerSubscription subscription = this.bind(subscriber);
+    this.consumer.exceptionHandler(subscription::onError);
+    this.consumer.endHandler(v -> subscription.onComplete());
+    subscriber.onSubscribe(subscription);
+  }
+
+  abstract class ConsumerSubscription implements Subscription {
+
+    private final Subscriber<? super T> subscriber;
+    private final AtomicBoolean done = new AtomicBoolean();
+
+    ConsumerSubscription(Subscriber<? super T> subscriber) {
+      this.subscriber = subscriber;
+    }
+
+    /**
+     * Forward a valid request of the subscriber to the consumer.
+     */
+    abstract void demand(long n);
+
+    void onNext(T item) {
+      if (!this.done.get()) {
+        this.subscriber.onNext(item);
+      }
+    }
+
+    void onError(Throwable err) {
+      if (this.terminate()) {
+        this.subscriber.onError(err);
+      }
+    }
+
+    void onComplete() {
+      if (this.terminate()) {
+        this.subscriber.onComplete();
+      }
+    }
+
+    @Override
+    public void request(long n) {
+      if (n <= 0) {
+        this.onError(new IllegalArgumentException("The requested amount must be positive but it was " + n));
+      } else if (!this.done.get()) {
+        this.demand(n);
+      }
+    }
+
+    @Override
+    public void cancel() {
+      this.terminate();
+    }
+
+    private boolean terminate() {
+      if (this.done.compareAndSet(false, true)) {
+        consumer.pause();
+        consumer.handler(null);
+        consumer.batchHandler(null);
+        consumer.exceptionHandler(null);
+        consumer.endHandler(null);
+        subscribed.set(false);
+        return true;
+      }
+      return false;
+    }
+  }
+}
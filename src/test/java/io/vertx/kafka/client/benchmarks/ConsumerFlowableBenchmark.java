@@ -0,0 +1,115 @@
+/*
+ * Copyright 2018 Red Hat Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.kafka.client.benchmarks;
+
+import io.reactivex.BackpressureStrategy;
+import io.reactivex.Flowable;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.schedulers.Schedulers;
+import io.vertx.core.Vertx;
+import io.vertx.reactivex.kafka.client.consumer.KafkaConsumer;
+import io.vertx.reactivex.kafka.client.consumer.KafkaConsumerFlowable;
+import io.vertx.reactivex.kafka.client.consumer.KafkaConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.TopicPartition;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Consumes an endless topic with a slow subscriber, through a flowable buffering the pushed records and through
+ * the demand driven {@link KafkaConsumerFlowable}, and reports how many records were polled but not processed yet.
+ * <p>
+ * Run with {@code java -cp <test classpath> io.vertx.kafka.client.benchmarks.ConsumerFlowableBenchmark}.
+ */
+public class ConsumerFlowableBenchmark {
+
+  private static final int RECORDS_PER_POLL = 500;
+  private static final long DURATION_MS = 5000;
+  private static final long PROCESSING_NS = TimeUnit.MICROSECONDS.toNanos(200);
+
+  /**
+   * A consumer returning {@link #RECORDS_PER_POLL} records on each poll
+   */
+  private static class EndlessConsumer extends MockConsumer<String, String> {
+
+    final AtomicLong polled = new AtomicLong();
+    private final TopicPartition topicPartition = new TopicPartition("the_topic", 0);
+
+    EndlessConsumer() {
+      super(OffsetResetStrategy.EARLIEST);
+    }
+
+    @Override
+    public synchronized ConsumerRecords<String, String> poll(long timeout) {
+      List<ConsumerRecord<String, String>> records = new ArrayList<>(RECORDS_PER_POLL);
+      for (int i = 0; i < RECORDS_PER_POLL; i++) {
+        records.add(new ConsumerRecord<>("the_topic", 0, polled.getAndIncrement(), "key", "value"));
+      }
+      return new ConsumerRecords<>(Collections.singletonMap(topicPartition, records));
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    run("push + onBackpressureBuffer", consumer -> Flowable.create(emitter -> {
+      consumer.handler(emitter::onNext);
+    }, BackpressureStrategy.BUFFER));
+    run("KafkaConsumerFlowable", KafkaConsumerFlowable::toFlowable);
+  }
+
+  private interface Adapter {
+    Flowable<KafkaConsumerRecord<String, String>> toFlowable(KafkaConsumer<String, String> consumer);
+  }
+
+  private static void run(String name, Adapter adapter) throws Exception {
+    Vertx vertx = Vertx.vertx();
+    EndlessConsumer mock = new EndlessConsumer();
+    KafkaConsumer<String, String> consumer = KafkaConsumer.newInstance(
+      io.vertx.kafka.client.consumer.KafkaConsumer.create(vertx, mock));
+    AtomicLong processed = new AtomicLong();
+    AtomicLong maxOutstanding = new AtomicLong();
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    Disposable subscription = adapter.toFlowable(consumer)
+      .observeOn(Schedulers.from(executor))
+      .subscribe(record -> {
+        long start = System.nanoTime();
+        while (System.nanoTime() - start < PROCESSING_NS) {
+          // slow subscriber
+        }
+        long outstanding = mock.polled.get() - processed.incrementAndGet();
+        if (outstanding > maxOutstanding.get()) {
+          maxOutstanding.set(outstanding);
+        }
+      });
+    consumer.subscribe(Collections.singleton("the_topic"));
+    Thread.sleep(DURATION_MS);
+    subscription.dispose();
+    executor.shutdownNow();
+    consumer.close();
+    vertx.close();
+    System.out.printf("%-30s processed %8d records/s, polled %10d, max polled but not processed %10d%n", name,
+      processed.get() * 1000 / DURATION_MS, mock.polled.get(), maxOutstanding.get());
+  }
+}
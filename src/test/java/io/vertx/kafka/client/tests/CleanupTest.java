@@ -92,6 +92,33 @@ public class CleanupTest extends KafkaClusterTestBase {
     }
   }
 
+  @Test
+  public void testSharedProducerPerVertxInstance(TestContext ctx) throws Exception {
+    Properties config = kafkaCluster.useTo().getProducerProperties("the_producer");
+    config.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class.getName());
+    config.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class.getName());
+    Vertx other = Vertx.vertx();
+    KafkaProducer<String, String> producer1 = KafkaProducer.createShared(vertx, "the-name", config);
+    KafkaProducer<String, String> producer2 = KafkaProducer.createShared(vertx, "the-name", config);
+    KafkaProducer<String, String> producer3 = KafkaProducer.createShared(other, "the-name", config);
+    ctx.assertTrue(producer1.unwrap() == producer2.unwrap());
+    ctx.assertTrue(producer1.unwrap() != producer3.unwrap());
+    ctx.assertEquals(2L, countProducerThreads());
+    Async async = ctx.async();
+    other.close(ctx.asyncAssertSuccess(v1 -> {
+      ctx.assertEquals(1L, countProducerThreads());
+      producer1.close(ctx.asyncAssertSuccess(v2 -> {
+        ctx.assertEquals(1L, countProducerThreads());
+        producer2.close(ctx.asyncAssertSuccess(v3 -> {
+          ctx.assertEquals(0L, countProducerThreads());
+          KafkaProducer<String, String> producer4 = KafkaProducer.createShared(vertx, "the-name", config);
+          ctx.assertTrue(producer1.unwrap() != producer4.unwrap());
+          producer4.close(ctx.asyncAssertSuccess(v4 -> async.complete()));
+        }));
+      }));
+    }));
+  }
+
   public static class TheVerticle extends AbstractVerticle {
     @Override
     public void start(Future<Void> startFuture) throws Exception {
@@ -24,11 +24,15 @@ import io.vertx.ext.unit.Async;
 import io.vertx.ext.unit.TestContext;
 import io.vertx.kafka.client.serialization.BufferDeserializer;
 import io.vertx.kafka.client.serialization.BufferSerializer;
+import io.vertx.kafka.client.serialization.JsonObjectDeserializer;
+import io.vertx.kafka.client.serialization.Lazy;
+import io.vertx.kafka.client.serialization.LazyDeserializer;
 import io.vertx.kafka.client.consumer.KafkaReadStream;
 import io.vertx.kafka.client.producer.KafkaWriteStream;
 import io.vertx.kafka.client.serialization.VertxSerdes;
 import org.apache.kafka.clients.consumer.OffsetResetStrategy;
 import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.internals.RecordHeaders;
 import org.apache.kafka.common.serialization.Deserializer;
 import org.apache.kafka.common.serialization.Serde;
 import org.apache.kafka.common.serialization.Serializer;
@@ -43,6 +47,9 @@ import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Codec tests
@@ -97,6 +104,27 @@ public class CodecsTest extends KafkaClusterTestBase {
       null, deserializer.deserialize(topic, serializer.serialize(topic, null)));
   }
 
+  @Test
+  public void testLazyDeserializer() {
+    AtomicInteger count = new AtomicInteger();
+    LazyDeserializer<JsonObject> deserializer = new LazyDeserializer<>(new JsonObjectDeserializer() {
+      @Override
+      public JsonObject deserialize(String topic, byte[] data) {
+        count.incrementAndGet();
+        return super.deserialize(topic, data);
+      }
+    });
+    JsonObject val = new JsonObject().put("s", "the-string");
+    Lazy<JsonObject> lazy = deserializer.deserialize(topic, new RecordHeaders(), val.toBuffer().getBytes());
+    assertEquals(0, count.get());
+    assertFalse(lazy.isDeserialized());
+    assertEquals(val, lazy.get());
+    assertEquals(val, lazy.get());
+    assertEquals(1, count.get());
+    assertTrue(lazy.isDeserialized());
+    assertNull(deserializer.deserialize(topic, new RecordHeaders(), null));
+  }
+
   @Test
   public void testStringCodec(TestContext ctx) throws Exception {
     testCodec(ctx,
@@ -16,23 +16,43 @@
 
 package io.vertx.kafka.client.tests;
 
+import io.reactivex.subscribers.TestSubscriber;
+import io.vertx.core.Context;
 import io.vertx.core.Vertx;
 import io.vertx.ext.unit.Async;
 import io.vertx.ext.unit.TestContext;
 import io.vertx.ext.unit.junit.VertxUnitRunner;
+import io.vertx.kafka.client.common.KafkaMemoryGovernor;
+import io.vertx.kafka.client.common.KafkaRateLimiter;
+import io.vertx.kafka.client.consumer.KafkaConsumer;
+import io.vertx.kafka.client.consumer.KafkaConsumerRecord;
+import io.vertx.kafka.client.consumer.KafkaConsumerRecords;
+import io.vertx.kafka.client.consumer.KafkaLagTracker;
 import io.vertx.kafka.client.consumer.KafkaReadStream;
+import io.vertx.kafka.client.consumer.KafkaSlowHandlerEvent;
+import io.vertx.kafka.client.consumer.impl.KafkaConsumerImpl;
+import io.vertx.reactivex.kafka.client.consumer.KafkaConsumerFlowable;
 import org.apache.kafka.clients.consumer.Consumer;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.MockConsumer;
 import org.apache.kafka.clients.consumer.OffsetResetStrategy;
 import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.record.TimestampType;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Tests using mock consumers
@@ -103,5 +123,373 @@ public abstract class ConsumerMockTestBase {
     });
   }
 
+  @Test
+  public void testFetch(TestContext ctx) throws Exception {
+    int num = 10;
+    MockConsumer<String, String> mock = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+    KafkaReadStream<String, String> consumer = createConsumer(vertx, mock);
+    Async doneLatch = ctx.async();
+    AtomicInteger count = new AtomicInteger();
+    consumer.pause();
+    consumer.handler(record -> {
+      int val = count.incrementAndGet();
+      if (val == 3) {
+        vertx.setTimer(500, id -> {
+          ctx.assertEquals(3, count.get());
+          consumer.fetch(num - 3);
+        });
+      } else if (val == num) {
+        consumer.close(v -> doneLatch.complete());
+      }
+    });
+    consumer.fetch(3);
+    consumer.subscribe(Collections.singleton("the_topic"), v -> {
+      mock.schedulePollTask(() -> {
+        mock.rebalance(Collections.singletonList(new TopicPartition("the_topic", 0)));
+        mock.seek(new TopicPartition("the_topic", 0), 0);
+        for (int i = 0;i < num;i++) {
+          mock.addRecord(new ConsumerRecord<>("the_topic", 0, i, "key-" + i, "value-" + i));
+        }
+      });
+    });
+  }
+
+  @Test
+  public void testRateLimiter(TestContext ctx) throws Exception {
+    int num = 20;
+    MockConsumer<String, String> mock = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+    KafkaReadStream<String, String> consumer = createConsumer(vertx, mock);
+    // the bucket starts with one second of tokens, the next 10 records take another second
+    consumer.rateLimiter(KafkaRateLimiter.create(10, 0));
+    Async doneLatch = ctx.async();
+    AtomicInteger count = new AtomicInteger();
+    AtomicBoolean paused = new AtomicBoolean();
+    long start = System.currentTimeMillis();
+    consumer.handler(record -> {
+      int val = count.incrementAndGet();
+      if (val == 11) {
+        // the partition is paused at the consumer while the limiter is in debt, the debt is briefly paid off
+        // between two records so the consumer is sampled until it is seen paused
+        vertx.setPeriodic(10, id -> {
+          if (mock.paused().equals(Collections.singleton(new TopicPartition("the_topic", 0)))) {
+            paused.set(true);
+            vertx.cancelTimer(id);
+          }
+        });
+      }
+      if (val == num) {
+        ctx.assertTrue(System.currentTimeMillis() - start >= 900);
+        vertx.setTimer(20, id -> {
+          ctx.assertTrue(paused.get());
+          consumer.close(v -> doneLatch.complete());
+        });
+      }
+    });
+    consumer.subscribe(Collections.singleton("the_topic"), v -> {
+      mock.schedulePollTask(() -> {
+        mock.rebalance(Collections.singletonList(new TopicPartition("the_topic", 0)));
+        mock.seek(new TopicPartition("the_topic", 0), 0);
+        for (int i = 0;i < num;i++) {
+          mock.addRecord(new ConsumerRecord<>("the_topic", 0, i, "key-" + i, "value-" + i));
+        }
+      });
+    });
+  }
+
+  @Test
+  public void testPausePartition(TestContext ctx) throws Exception {
+    int num = 10;
+    MockConsumer<String, String> mock = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+    KafkaReadStream<String, String> consumer = createConsumer(vertx, mock);
+    Async doneLatch = ctx.async();
+    AtomicInteger count = new AtomicInteger();
+    AtomicInteger paused = new AtomicInteger(-1);
+    AtomicInteger resumed = new AtomicInteger();
+    consumer.handler(record -> {
+      int val = count.incrementAndGet();
+      if (val == 1) {
+        // the buffered records of the partition are held back right away
+        paused.set(record.partition());
+        consumer.pause(Collections.singleton(new TopicPartition("the_topic", record.partition())));
+      } else if (record.partition() == paused.get()) {
+        ctx.assertEquals(1, resumed.get());
+      } else if (val == num + 1) {
+        vertx.setTimer(200, id -> {
+          resumed.set(1);
+          consumer.resume(Collections.singleton(new TopicPartition("the_topic", paused.get())));
+        });
+      }
+      if (val == 2 * num) {
+        ctx.assertEquals(1, resumed.get());
+        consumer.close(v -> doneLatch.complete());
+      }
+    });
+    consumer.subscribe(Collections.singleton("the_topic"), v -> {
+      mock.schedulePollTask(() -> {
+        mock.rebalance(Arrays.asList(new TopicPartition("the_topic", 0), new TopicPartition("the_topic", 1)));
+        mock.seek(new TopicPartition("the_topic", 0), 0);
+        mock.seek(new TopicPartition("the_topic", 1), 0);
+        for (int i = 0;i < num;i++) {
+          mock.addRecord(new ConsumerRecord<>("the_topic", 0, i, "key-" + i, "value-" + i));
+          mock.addRecord(new ConsumerRecord<>("the_topic", 1, i, "key-" + i, "value-" + i));
+        }
+      });
+    });
+  }
+
+  @Test
+  public void testSeekPartition(TestContext ctx) throws Exception {
+    int num = 10;
+    MockConsumer<String, String> mock = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+    KafkaReadStream<String, String> consumer = createConsumer(vertx, mock);
+    Async doneLatch = ctx.async();
+    AtomicInteger count = new AtomicInteger();
+    AtomicInteger seeked = new AtomicInteger(-1);
+    consumer.handler(record -> {
+      int val = count.incrementAndGet();
+      if (val == 1) {
+        // only the buffered records of the seeked partition are dropped
+        seeked.set(record.partition());
+        consumer.seek(new TopicPartition("the_topic", record.partition()), num);
+      } else {
+        ctx.assertNotEquals(seeked.get(), record.partition());
+      }
+      if (val == num + 1) {
+        vertx.setTimer(200, id -> {
+          ctx.assertEquals(num + 1, count.get());
+          consumer.close(v -> doneLatch.complete());
+        });
+      }
+    });
+    consumer.subscribe(Collections.singleton("the_topic"), v -> {
+      mock.schedulePollTask(() -> {
+        mock.rebalance(Arrays.asList(new TopicPartition("the_topic", 0), new TopicPartition("the_topic", 1)));
+        mock.seek(new TopicPartition("the_topic", 0), 0);
+        mock.seek(new TopicPartition("the_topic", 1), 0);
+        for (int i = 0;i < num;i++) {
+          mock.addRecord(new ConsumerRecord<>("the_topic", 0, i, "key-" + i, "value-" + i));
+          mock.addRecord(new ConsumerRecord<>("the_topic", 1, i, "key-" + i, "value-" + i));
+        }
+      });
+    });
+  }
+
+  @Test
+  public void testLagTracker(TestContext ctx) throws Exception {
+    int num = 10;
+    MockConsumer<String, String> mock = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+    KafkaReadStream<String, String> consumer = createConsumer(vertx, mock);
+    TopicPartition partition = new TopicPartition("the_topic", 0);
+    TopicPartition other = new TopicPartition("the_topic", 1);
+    KafkaLagTracker tracker = consumer.lagTracker(50);
+    Async doneLatch = ctx.async();
+    AtomicInteger count = new AtomicInteger();
+    consumer.handler(record -> {
+      if (count.incrementAndGet() == num) {
+        vertx.setTimer(200, id -> {
+          ctx.assertEquals(2L * num, tracker.endOffsets().get(partition));
+          ctx.assertEquals((long) num, tracker.lag(partition));
+          ctx.assertEquals(-1L, tracker.lag(new TopicPartition("the_topic", 2)));
+          // the partition without delivered records is seeded with the consumer position
+          ctx.assertEquals(5L, tracker.lag(other));
+          ctx.assertEquals(num + 5L, tracker.totalLag());
+          Map<String, Object> metrics = new HashMap<>();
+          tracker.metrics().forEach((name, metric) -> metrics.put(name.name() + name.tags(), metric.metricValue()));
+          ctx.assertEquals((double) num + 5, metrics.get("records-lag-total{}"));
+          ctx.assertEquals((double) num, metrics.get("records-lag{topic=the_topic, partition=0}"));
+          ctx.assertEquals(5.0, metrics.get("records-lag{topic=the_topic, partition=1}"));
+          consumer.close(v -> doneLatch.complete());
+        });
+      }
+    });
+    consumer.subscribe(Collections.singleton("the_topic"), v -> {
+      mock.schedulePollTask(() -> {
+        mock.rebalance(Arrays.asList(partition, other));
+        mock.seek(partition, 0);
+        mock.updateBeginningOffsets(Collections.singletonMap(other, 0L));
+        Map<TopicPartition, Long> endOffsets = new HashMap<>();
+        endOffsets.put(partition, 2L * num);
+        endOffsets.put(other, 5L);
+        mock.updateEndOffsets(endOffsets);
+        for (int i = 0;i < num;i++) {
+          mock.addRecord(new ConsumerRecord<>("the_topic", 0, i, "key-" + i, "value-" + i));
+        }
+      });
+    });
+  }
+
+  @Test
+  public void testMemoryGovernor(TestContext ctx) throws Exception {
+    int num = 50;
+    MockConsumer<String, String> mock = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+    KafkaReadStream<String, String> consumer = createConsumer(vertx, mock);
+    TopicPartition partition = new TopicPartition("the_topic", 0);
+    KafkaMemoryGovernor governor = KafkaMemoryGovernor.shared(vertx, 100);
+    ctx.assertTrue(governor == KafkaMemoryGovernor.shared(vertx, 200));
+    consumer.memoryGovernor(governor);
+    Async doneLatch = ctx.async();
+    AtomicInteger count = new AtomicInteger();
+    consumer.handler(record -> {
+      int val = count.incrementAndGet();
+      if (val == 1) {
+        consumer.pause();
+        vertx.setTimer(200, id -> {
+          // the records hold 10 bytes each
+          ctx.assertEquals(10L * (num - 1), governor.used());
+          ctx.assertEquals(1, governor.throttled());
+          ctx.assertEquals(Collections.singleton(partition), mock.paused());
+          // resuming the partition does not restart its fetching while the governor is over budget
+          consumer.resume(Collections.singleton(partition), ctx.asyncAssertSuccess(v -> {
+            ctx.assertEquals(Collections.singleton(partition), mock.paused());
+            consumer.resume();
+          }));
+        });
+      } else if (val == num) {
+        vertx.setTimer(200, id -> {
+          ctx.assertEquals(0L, governor.used());
+          ctx.assertEquals(0, governor.throttled());
+          ctx.assertEquals(Collections.emptySet(), mock.paused());
+          consumer.close(v -> doneLatch.complete());
+        });
+      }
+    });
+    consumer.subscribe(Collections.singleton("the_topic"), v -> {
+      mock.schedulePollTask(() -> {
+        mock.rebalance(Collections.singletonList(partition));
+        mock.seek(partition, 0);
+        for (int i = 0;i < num;i++) {
+          mock.addRecord(new ConsumerRecord<>("the_topic", 0, i, 0L, TimestampType.CREATE_TIME, 0L, 4, 6, "k-" + (i % 10), "value-" + (i % 10)));
+        }
+      });
+    });
+  }
+
+  @Test
+  public void testSlowHandler(TestContext ctx) throws Exception {
+    int num = 5;
+    MockConsumer<String, String> mock = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+    KafkaReadStream<String, String> consumer = createConsumer(vertx, mock);
+    List<KafkaSlowHandlerEvent> events = Collections.synchronizedList(new ArrayList<>());
+    consumer.slowHandlerDetection(20, events::add);
+    consumer.offloadSlowPartitions(true);
+    Async doneLatch = ctx.async();
+    AtomicInteger count = new AtomicInteger();
+    AtomicLong[] offsets = { new AtomicLong(-1), new AtomicLong(-1) };
+    consumer.handler(record -> {
+      ctx.assertEquals(offsets[record.partition()].get() + 1, record.offset());
+      offsets[record.partition()].set(record.offset());
+      if (record.partition() == 0) {
+        // only the first record of the slow partition is handled on the event loop
+        ctx.assertEquals(record.offset() == 0, Context.isOnEventLoopThread());
+        if (record.offset() == num - 1) {
+          // the fetching of the offloaded partition is paused
+          ctx.assertEquals(Collections.singleton(new TopicPartition("the_topic", 0)), mock.paused());
+        }
+        try {
+          Thread.sleep(50);
+        } catch (InterruptedException e) {
+          ctx.fail(e);
+        }
+      } else {
+        ctx.assertTrue(Context.isOnEventLoopThread());
+      }
+      if (count.incrementAndGet() == 2 * num) {
+        // the last handler invocation is timed once it returns
+        vertx.setTimer(100, id -> {
+          ctx.assertEquals(num, events.size());
+          ctx.assertTrue(events.get(0).offloaded());
+          ctx.assertEquals(0, events.get(0).partition());
+          ctx.assertFalse(events.get(1).offloaded());
+          ctx.assertEquals((long) 2 * num, consumer.handlerTime().get("the_topic").count());
+          // and resumed once its records are handled
+          consumer.paused(ctx.asyncAssertSuccess(paused -> {
+            ctx.assertEquals(Collections.emptySet(), paused);
+            consumer.close(v2 -> doneLatch.complete());
+          }));
+        });
+      }
+    });
+    consumer.subscribe(Collections.singleton("the_topic"), v -> {
+      mock.schedulePollTask(() -> {
+        mock.rebalance(Arrays.asList(new TopicPartition("the_topic", 0), new TopicPartition("the_topic", 1)));
+        mock.seek(new TopicPartition("the_topic", 0), 0);
+        mock.seek(new TopicPartition("the_topic", 1), 0);
+        for (int i = 0;i < num;i++) {
+          mock.addRecord(new ConsumerRecord<>("the_topic", 0, i, "key-" + i, "value-" + i));
+          mock.addRecord(new ConsumerRecord<>("the_topic", 1, i, "key-" + i, "value-" + i));
+        }
+      });
+    });
+  }
+
+  @Test
+  public void testFlowable(TestContext ctx) throws Exception {
+    int num = 10;
+    MockConsumer<String, String> mock = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+    KafkaConsumer<String, String> consumer = new KafkaConsumerImpl<>(createConsumer(vertx, mock));
+    TestSubscriber<io.vertx.reactivex.kafka.client.consumer.KafkaConsumerRecord<String, String>> subscriber =
+      KafkaConsumerFlowable.toFlowable(io.vertx.reactivex.kafka.client.consumer.KafkaConsumer.<String, String>newInstance(consumer)).test(0);
+    AtomicReference<Context> context = new AtomicReference<>();
+    Async subscribed = ctx.async();
+    consumer.subscribe(Collections.singleton("the_topic"), v -> {
+      context.set(Vertx.currentContext());
+      mock.schedulePollTask(() -> {
+        mock.rebalance(Collections.singletonList(new TopicPartition("the_topic", 0)));
+        mock.seek(new TopicPartition("the_topic", 0), 0);
+        for (int i = 0;i < num;i++) {
+          mock.addRecord(new ConsumerRecord<>("the_topic", 0, i, "key-" + i, "value-" + i));
+        }
+      });
+      subscribed.complete();
+    });
+    subscribed.awaitSuccess(10000);
+    subscriber.request(4);
+    subscriber.awaitCount(4);
+    // the records are delivered on the consumer context, the next task there sees the exhausted demand
+    Async exhausted = ctx.async();
+    context.get().runOnContext(v -> {
+      ctx.assertEquals(4, subscriber.valueCount());
+      exhausted.complete();
+    });
+    exhausted.awaitSuccess(10000);
+    subscriber.request(num - 4);
+    subscriber.awaitCount(num);
+    subscriber.assertValueCount(num);
+    ctx.assertEquals("value-" + (num - 1), subscriber.values().get(num - 1).value());
+    subscriber.cancel();
+    consumer.close(ctx.asyncAssertSuccess());
+  }
+
+  @Test
+  public void testBatchFlowable(TestContext ctx) throws Exception {
+    int num = 10;
+    MockConsumer<String, String> mock = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+    KafkaConsumer<String, String> consumer = new KafkaConsumerImpl<>(createConsumer(vertx, mock));
+    TestSubscriber<io.vertx.reactivex.kafka.client.consumer.KafkaConsumerRecords<String, String>> subscriber =
+      KafkaConsumerFlowable.toBatchFlowable(io.vertx.reactivex.kafka.client.consumer.KafkaConsumer.<String, String>newInstance(consumer)).test(0);
+    Async polled = ctx.async();
+    consumer.subscribe(Collections.singleton("the_topic"), v -> {
+      mock.schedulePollTask(() -> {
+        mock.rebalance(Collections.singletonList(new TopicPartition("the_topic", 0)));
+        mock.seek(new TopicPartition("the_topic", 0), 0);
+        for (int i = 0;i < num;i++) {
+          mock.addRecord(new ConsumerRecord<>("the_topic", 0, i, "key-" + i, "value-" + i));
+        }
+      });
+      // without demand the consumer does not poll, so the poll task is still pending on the context
+      Vertx.currentContext().runOnContext(v2 -> {
+        ctx.assertEquals(0, subscriber.valueCount());
+        ctx.assertTrue(mock.assignment().isEmpty());
+        polled.complete();
+      });
+    });
+    polled.awaitSuccess(10000);
+    subscriber.request(1);
+    subscriber.awaitCount(1);
+    ctx.assertEquals(num, subscriber.values().get(0).size());
+    subscriber.cancel();
+    consumer.close(ctx.asyncAssertSuccess());
+  }
+
   abstract <K, V> KafkaReadStream<K, V> createConsumer(Vertx vertx, Consumer<K, V> consumer);
 }
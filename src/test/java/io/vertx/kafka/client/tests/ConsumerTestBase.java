@@ -32,6 +32,7 @@ import org.apache.kafka.clients.producer.ProducerRecord;
 import org.apache.kafka.common.PartitionInfo;
 import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.errors.InvalidGroupIdException;
+import org.apache.kafka.common.header.internals.RecordHeaders;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.junit.After;
 import org.junit.Before;
@@ -237,7 +238,7 @@ public abstract class ConsumerTestBase extends KafkaClusterTestBase {
   public void testRebalance(TestContext ctx) throws Exception {
     String topicName = "testRebalance";
     String consumerId = topicName;
-    kafkaCluster.createTopic(topicName, 2, 1);
+    createTopic(topicName, 2, 1);
     Properties config = kafkaCluster.useTo().getConsumerProperties(consumerId, consumerId, OffsetResetStrategy.EARLIEST);
     config.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
     config.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
@@ -325,8 +326,24 @@ public abstract class ConsumerTestBase extends KafkaClusterTestBase {
     }, 0);
   }
 
+  @Test
+  public void testSeekOffsets(TestContext ctx) throws Exception {
+    int numMessages = 500;
+    testSeek("the_topic_3", numMessages, ctx, () -> {
+      consumer.seek(Collections.singletonMap(new TopicPartition("the_topic_3", 0), 0L));
+    }, -numMessages);
+  }
+
+  @Test
+  public void testSeekToTimestamp(TestContext ctx) throws Exception {
+    int numMessages = 500;
+    testSeek("the_topic_4", numMessages, ctx, () -> {
+      consumer.seekToTimestamp(0);
+    }, -numMessages);
+  }
+
   private void testSeek(String topic, int numMessages, TestContext ctx, Runnable seeker, int abc) throws Exception {
-    kafkaCluster.createTopic(topic, 1, 1);
+    createTopic(topic, 1, 1);
     String consumerId = topic;
     Properties config = kafkaCluster.useTo().getConsumerProperties(consumerId, consumerId, OffsetResetStrategy.EARLIEST);
     config.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
@@ -360,7 +377,7 @@ public abstract class ConsumerTestBase extends KafkaClusterTestBase {
   @Test
   public void testSeekAfterConsume(TestContext ctx) throws Exception {
     String topic = "testSeekAfterConsume";
-    kafkaCluster.createTopic(topic, 1, 1);
+    createTopic(topic, 1, 1);
 
     Properties config = kafkaCluster.useTo().getConsumerProperties(topic, topic, OffsetResetStrategy.EARLIEST);
     config.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
@@ -408,7 +425,7 @@ public abstract class ConsumerTestBase extends KafkaClusterTestBase {
   public void testSubscription(TestContext ctx) throws Exception {
     String topicName = "testSubscription";
     String consumerId = topicName;
-    kafkaCluster.createTopic(topicName, 1, 1);
+    createTopic(topicName, 1, 1);
     Properties config = kafkaCluster.useTo().getConsumerProperties(consumerId, consumerId, OffsetResetStrategy.EARLIEST);
     config.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
     config.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
@@ -448,7 +465,7 @@ public abstract class ConsumerTestBase extends KafkaClusterTestBase {
   public void testAssign(TestContext ctx) throws Exception {
     String topicName = "testAssign";
     String consumerId = topicName;
-    kafkaCluster.createTopic(topicName, 1, 1);
+    createTopic(topicName, 1, 1);
     Properties config = kafkaCluster.useTo().getConsumerProperties(consumerId, consumerId, OffsetResetStrategy.EARLIEST);
     config.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
     config.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
@@ -490,7 +507,7 @@ public abstract class ConsumerTestBase extends KafkaClusterTestBase {
   public void testSetHandlerThenAssign(TestContext ctx) throws Exception {
     String topicName = "testSetHandlerThenAssign";
     String consumerId = topicName;
-    kafkaCluster.createTopic(topicName, 1, 1);
+    createTopic(topicName, 1, 1);
     Properties config = kafkaCluster.useTo().getConsumerProperties(consumerId, consumerId, OffsetResetStrategy.EARLIEST);
     config.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
     config.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
@@ -534,7 +551,7 @@ public abstract class ConsumerTestBase extends KafkaClusterTestBase {
   public void testAssignThenSetHandler(TestContext ctx) throws Exception {
     String topicName = "testAssignThenSetHandler";
     String consumerId = topicName;
-    kafkaCluster.createTopic(topicName, 1, 1);
+    createTopic(topicName, 1, 1);
     Properties config = kafkaCluster.useTo().getConsumerProperties(consumerId, consumerId,
         OffsetResetStrategy.EARLIEST);
     config.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
@@ -580,7 +597,7 @@ public abstract class ConsumerTestBase extends KafkaClusterTestBase {
   public void testListTopics(TestContext ctx) throws Exception {
     String topicName = "testListTopics";
     String consumerId = topicName;
-    kafkaCluster.createTopic(topicName, 1, 1);
+    createTopic(topicName, 1, 1);
     Properties config = kafkaCluster.useTo().getConsumerProperties(consumerId, consumerId, OffsetResetStrategy.EARLIEST);
     config.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
     config.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
@@ -620,7 +637,7 @@ public abstract class ConsumerTestBase extends KafkaClusterTestBase {
   public void testPartitionsFor(TestContext ctx) throws Exception {
     String topicName = "testPartitionsFor";
     String consumerId = topicName;
-    kafkaCluster.createTopic(topicName, 2, 1);
+    createTopic(topicName, 2, 1);
     Properties config = kafkaCluster.useTo().getConsumerProperties(consumerId, consumerId, OffsetResetStrategy.EARLIEST);
     config.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
     config.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
@@ -644,7 +661,7 @@ public abstract class ConsumerTestBase extends KafkaClusterTestBase {
   public void testPositionEmptyTopic(TestContext ctx) throws Exception {
     String topicName = "testPositionEmptyTopic";
     String consumerId = topicName;
-    kafkaCluster.createTopic(topicName, 1, 1);
+    createTopic(topicName, 1, 1);
     Properties config = kafkaCluster.useTo().getConsumerProperties(consumerId, consumerId, OffsetResetStrategy.EARLIEST);
     config.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
     config.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
@@ -689,7 +706,7 @@ public abstract class ConsumerTestBase extends KafkaClusterTestBase {
   public void testPositionNonEmptyTopic(TestContext ctx) throws Exception {
     String topicName = "testPositionNonEmptyTopic";
     String consumerId = topicName;
-    kafkaCluster.createTopic(topicName, 1, 1);
+    createTopic(topicName, 1, 1);
     Async batch = ctx.async();
     AtomicInteger index = new AtomicInteger();
     int numMessages = 1000;
@@ -1025,7 +1042,7 @@ public abstract class ConsumerTestBase extends KafkaClusterTestBase {
 
     String topicName = "testNotCommitted";
     String consumerId = topicName;
-    kafkaCluster.createTopic(topicName, 1, 1);
+    createTopic(topicName, 1, 1);
     Properties config = kafkaCluster.useTo().getConsumerProperties(consumerId, consumerId, OffsetResetStrategy.EARLIEST);
     config.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
     config.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
@@ -1050,6 +1067,55 @@ public abstract class ConsumerTestBase extends KafkaClusterTestBase {
     consumer.subscribe(Collections.singleton(topicName));
   }
 
+  @Test
+  public void testFilter(TestContext ctx) throws Exception {
+    String topicName = "testFilter";
+    String consumerId = topicName;
+    Async batch = ctx.async();
+    AtomicInteger index = new AtomicInteger();
+    int numMessages = 100;
+    kafkaCluster.useTo().produceStrings(numMessages, batch::complete, () -> {
+      int idx = index.getAndIncrement();
+      RecordHeaders headers = new RecordHeaders();
+      headers.add("route", (idx % 2 == 0 ? "keep" : "drop").getBytes());
+      return new ProducerRecord<>(topicName, 0, "key-" + idx, "value-" + idx, headers);
+    });
+    batch.awaitSuccess(20000);
+    Map<String, Object> config = new HashMap<>();
+    kafkaCluster.useTo().getConsumerProperties(consumerId, consumerId, OffsetResetStrategy.EARLIEST)
+      .forEach((key, value) -> config.put((String) key, value));
+    AtomicInteger deserialized = new AtomicInteger();
+    StringDeserializer valueDeserializer = new StringDeserializer() {
+      @Override
+      public String deserialize(String topic, byte[] data) {
+        deserialized.incrementAndGet();
+        return super.deserialize(topic, data);
+      }
+    };
+    consumer = KafkaReadStream.create(vertx, config, new StringDeserializer(), valueDeserializer,
+      (topic, headers, key) -> Arrays.equals("keep".getBytes(), headers.lastHeader("route").value()));
+    consumer.exceptionHandler(ctx::fail);
+    Async done = ctx.async();
+    AtomicInteger count = new AtomicInteger();
+    TopicPartition partition = new TopicPartition(topicName, 0);
+    consumer.handler(rec -> {
+      int idx = count.getAndIncrement() * 2;
+      ctx.assertEquals("key-" + idx, rec.key());
+      ctx.assertEquals("value-" + idx, rec.value());
+      if (idx == numMessages - 2) {
+        ctx.assertEquals(numMessages / 2, deserialized.get());
+        // the skipped last record is committed too
+        consumer.commit(ctx.asyncAssertSuccess(v1 -> {
+          consumer.committed(partition, ctx.asyncAssertSuccess(offset -> {
+            ctx.assertEquals((long) numMessages, offset.offset());
+            done.complete();
+          }));
+        }));
+      }
+    });
+    consumer.assign(Collections.singleton(partition));
+  }
+
   <K, V> KafkaReadStream<K, V> createConsumer(Context context, Properties config) throws Exception {
     CompletableFuture<KafkaReadStream<K, V>> ret = new CompletableFuture<>();
     context.runOnContext(v -> {
@@ -0,0 +1,106 @@
+package io.vertx.kafka.client.tests;
+
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.kafka.admin.KafkaAdminClient;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.apache.kafka.common.config.ConfigResource;
+import org.apache.kafka.common.errors.TopicExistsException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+public class KafkaAdminClientTest extends KafkaClusterTestBase {
+
+  private Vertx vertx;
+  private KafkaAdminClient adminClient;
+
+  @Before
+  public void beforeTest() {
+    vertx = Vertx.vertx();
+    Properties config = new Properties();
+    config.put(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, "localhost:9092");
+    adminClient = KafkaAdminClient.create(vertx, config);
+  }
+
+  @After
+  public void afterTest(TestContext ctx) {
+    close(ctx, adminClient::close);
+    vertx.close(ctx.asyncAssertSuccess());
+  }
+
+  @Test
+  public void testCreateDescribeDeleteTopics(TestContext ctx) throws Exception {
+    List<String> topicNames = Arrays.asList("testAdminClient1", "testAdminClient2");
+    Async async = ctx.async();
+    adminClient.createTopics(Arrays.asList(
+      new NewTopic("testAdminClient1", 1, (short) 1),
+      new NewTopic("testAdminClient2", 2, (short) 1)), ctx.asyncAssertSuccess(v1 -> {
+      adminClient.describeTopics(topicNames, ctx.asyncAssertSuccess(descriptions -> {
+        ctx.assertEquals(2, descriptions.size());
+        TopicDescription description = descriptions.get("testAdminClient2");
+        ctx.assertEquals("testAdminClient2", description.name());
+        ctx.assertEquals(2, description.partitions().size());
+        adminClient.listTopics(ctx.asyncAssertSuccess(names -> {
+          ctx.assertTrue(names.containsAll(topicNames));
+          adminClient.deleteTopics(topicNames, ctx.asyncAssertSuccess(v2 -> async.complete()));
+        }));
+      }));
+    }));
+  }
+
+  @Test
+  public void testCreateExistingTopic(TestContext ctx) throws Exception {
+    NewTopic topic = new NewTopic("testAdminClientExisting", 1, (short) 1);
+    Async async = ctx.async();
+    adminClient.createTopics(Collections.singletonList(topic), ctx.asyncAssertSuccess(v -> {
+      adminClient.createTopics(Collections.singletonList(topic), ctx.asyncAssertFailure(err -> {
+        ctx.assertTrue(err instanceof TopicExistsException);
+        ctx.assertTrue(Vertx.currentContext() != null);
+        async.complete();
+      }));
+    }));
+  }
+
+  @Test
+  public void testProvisionTopics(TestContext ctx) throws Exception {
+    List<String> topicNames = Arrays.asList("testProvision1", "testProvision2", "testProvision3");
+    Async async = ctx.async();
+    adminClient.createTopics(Collections.singletonList(new NewTopic("testProvision1", 1, (short) 1)), ctx.asyncAssertSuccess(v1 -> {
+      adminClient.provisionTopics(Arrays.asList(
+        new NewTopic("testProvision1", 1, (short) 1),
+        new NewTopic("testProvision2", 3, (short) 1),
+        new NewTopic("testProvision3", 5, (short) 1)), 20000, ctx.asyncAssertSuccess(v2 -> {
+        adminClient.describeTopics(topicNames, ctx.asyncAssertSuccess(descriptions -> {
+          ctx.assertEquals(5, descriptions.get("testProvision3").partitions().size());
+          descriptions.values().forEach(description ->
+            description.partitions().forEach(partition -> ctx.assertNotNull(partition.leader())));
+          async.complete();
+        }));
+      }));
+    }));
+  }
+
+  @Test
+  public void testDescribeConfigs(TestContext ctx) throws Exception {
+    String topicName = "testAdminClientConfigs";
+    NewTopic topic = new NewTopic(topicName, 1, (short) 1)
+      .configs(Collections.singletonMap("retention.ms", "1000"));
+    ConfigResource resource = new ConfigResource(ConfigResource.Type.TOPIC, topicName);
+    Async async = ctx.async();
+    adminClient.createTopics(Collections.singletonList(topic), ctx.asyncAssertSuccess(v -> {
+      adminClient.describeConfigs(Collections.singletonList(resource), ctx.asyncAssertSuccess(configs -> {
+        ctx.assertEquals("1000", configs.get(resource).get("retention.ms").value());
+        async.complete();
+      }));
+    }));
+  }
+}
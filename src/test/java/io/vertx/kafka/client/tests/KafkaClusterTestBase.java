@@ -20,6 +20,9 @@ import io.debezium.kafka.KafkaCluster;
 import io.debezium.util.Testing;
 import io.vertx.ext.unit.TestContext;
 import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.NewTopic;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
@@ -27,6 +30,8 @@ import org.junit.runner.RunWith;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.Properties;
 
 /**
  * Base class for tests providing a Kafka cluster
@@ -51,6 +56,16 @@ public class KafkaClusterTestBase extends KafkaTestBase {
     kafkaCluster = kafkaCluster().deleteDataPriorToStartup(true).addBrokers(1).startup();
   }
 
+  /**
+   * Create a topic with the admin client, the embedded cluster helper relies on broker internals removed in Kafka 1.1
+   */
+  protected static void createTopic(String topicName, int numPartitions, int replicationFactor) throws Exception {
+    Properties config = new Properties();
+    config.put(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaCluster.brokerList());
+    try (AdminClient adminClient = AdminClient.create(config)) {
+      adminClient.createTopics(Collections.singletonList(new NewTopic(topicName, numPartitions, (short) replicationFactor))).all().get();
+    }
+  }
 
   @AfterClass
   public static void tearDown(TestContext ctx) {
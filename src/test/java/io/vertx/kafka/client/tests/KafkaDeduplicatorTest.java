@@ -0,0 +1,120 @@
+/*
+ * Copyright 2018 Red Hat Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.kafka.client.tests;
+
+import io.vertx.core.Vertx;
+import io.vertx.kafka.client.consumer.KafkaDeduplicator;
+import io.vertx.kafka.client.consumer.KafkaReadStream;
+import io.vertx.kafka.client.consumer.impl.LongWindowSet;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Deduplicator tests
+ */
+public class KafkaDeduplicatorTest {
+
+  @Test
+  public void testWindowSet() {
+    int capacity = 100;
+    LongWindowSet set = new LongWindowSet(capacity);
+    Deque<Long> window = new ArrayDeque<>();
+    Set<Long> expected = new HashSet<>();
+    Random random = new Random(0);
+    for (int i = 0;i < 100000;i++) {
+      // a small range of values to get collisions, duplicates and evictions
+      long value = random.nextInt(300) - 150 + (random.nextBoolean() ? 0 : Long.MIN_VALUE);
+      boolean added = expected.add(value);
+      assertEquals(added, set.add(value));
+      if (added) {
+        window.addLast(value);
+        if (window.size() > capacity) {
+          expected.remove(window.removeFirst());
+        }
+      }
+      assertEquals(expected.size(), set.size());
+    }
+    for (long value = -150;value < 150;value++) {
+      assertEquals(expected.contains(value), set.contains(value));
+      assertEquals(expected.contains(value + Long.MIN_VALUE), set.contains(value + Long.MIN_VALUE));
+    }
+  }
+
+  @Test
+  public void testByOffset() {
+    KafkaDeduplicator<String, String> deduplicator = KafkaDeduplicator.byOffset(10);
+    for (int i = 0;i < 5;i++) {
+      assertTrue(deduplicator.accept(new ConsumerRecord<>("the_topic", 0, i, "key", "value")));
+    }
+    // same offsets on another partition are different records
+    assertTrue(deduplicator.accept(new ConsumerRecord<>("the_topic", 1, 0, "key", "value")));
+    for (int i = 0;i < 5;i++) {
+      assertFalse(deduplicator.accept(new ConsumerRecord<>("the_topic", 0, i, "key", "value")));
+    }
+    assertEquals(5, deduplicator.duplicates());
+    deduplicator.evict(Collections.singleton(new TopicPartition("the_topic", 0)));
+    assertTrue(deduplicator.accept(new ConsumerRecord<>("the_topic", 0, 0, "key", "value")));
+    assertFalse(deduplicator.accept(new ConsumerRecord<>("the_topic", 1, 0, "key", "value")));
+  }
+
+  @Test
+  public void testByKey() {
+    KafkaDeduplicator<String, String> deduplicator = KafkaDeduplicator.byKey(record -> record.key().hashCode(), 2);
+    assertTrue(deduplicator.accept(new ConsumerRecord<>("the_topic", 0, 0, "a", "value")));
+    assertFalse(deduplicator.accept(new ConsumerRecord<>("the_topic", 0, 1, "a", "value")));
+    assertTrue(deduplicator.accept(new ConsumerRecord<>("the_topic", 0, 2, "b", "value")));
+    assertTrue(deduplicator.accept(new ConsumerRecord<>("the_topic", 0, 3, "c", "value")));
+    // the window only holds the last two keys
+    assertTrue(deduplicator.accept(new ConsumerRecord<>("the_topic", 0, 4, "a", "value")));
+  }
+
+  @Test
+  public void testInstallChainsRevokedHandler() {
+    Vertx vertx = Vertx.vertx();
+    try {
+      KafkaReadStream<String, String> stream = KafkaReadStream.create(vertx, new MockConsumer<>(OffsetResetStrategy.EARLIEST));
+      List<Set<TopicPartition>> revoked = new ArrayList<>();
+      stream.partitionsRevokedHandler(revoked::add);
+      KafkaDeduplicator<String, String> deduplicator = KafkaDeduplicator.byOffset(10);
+      deduplicator.install(stream, record -> {});
+      assertTrue(deduplicator.accept(new ConsumerRecord<>("the_topic", 0, 0, "key", "value")));
+      Set<TopicPartition> partitions = Collections.singleton(new TopicPartition("the_topic", 0));
+      stream.partitionsRevokedHandler().handle(partitions);
+      // the partition is evicted and the previous handler still called
+      assertTrue(deduplicator.accept(new ConsumerRecord<>("the_topic", 0, 0, "key", "value")));
+      assertEquals(Collections.singletonList(partitions), revoked);
+    } finally {
+      vertx.close();
+    }
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2018 Red Hat Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.kafka.client.tests;
+
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import io.vertx.kafka.client.consumer.KafkaReadStream;
+import io.vertx.kafka.client.mirror.KafkaMirror;
+import io.vertx.kafka.client.producer.KafkaWriteStream;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.record.TimestampType;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Collections;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Tests of the mirror using mock consumer and producer
+ */
+@RunWith(VertxUnitRunner.class)
+public class KafkaMirrorTest {
+
+  private static final TopicPartition SOURCE_PARTITION = new TopicPartition("the_topic", 1);
+
+  private Vertx vertx;
+  private MockConsumer<byte[], byte[]> consumer;
+  private MockProducer<byte[], byte[]> producer;
+  private KafkaMirror mirror;
+
+  @Before
+  public void beforeTest() {
+    vertx = Vertx.vertx();
+    consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+    producer = new MockProducer<>(false, new ByteArraySerializer(), new ByteArraySerializer());
+    KafkaReadStream<byte[], byte[]> source = KafkaReadStream.create(vertx, consumer);
+    KafkaWriteStream<byte[], byte[]> target = KafkaWriteStream.create(vertx, producer);
+    mirror = KafkaMirror.create(vertx, source, target).topicMapper(topic -> "mirror_" + topic).preservePartitions(true);
+    source.subscribe(Collections.singleton("the_topic"), v -> {
+      consumer.schedulePollTask(() -> {
+        consumer.rebalance(Collections.singletonList(SOURCE_PARTITION));
+        consumer.seek(SOURCE_PARTITION, 0);
+        for (int i = 0;i < 3;i++) {
+          RecordHeaders headers = new RecordHeaders();
+          headers.add("header", ("header-" + i).getBytes());
+          consumer.addRecord(new ConsumerRecord<>("the_topic", 1, i, 1000L + i, TimestampType.CREATE_TIME, 0L, 5, 7,
+            ("key-" + i).getBytes(), ("value-" + i).getBytes(), headers));
+        }
+      });
+    });
+  }
+
+  @After
+  public void afterTest(TestContext ctx) {
+    vertx.close(ctx.asyncAssertSuccess());
+  }
+
+  private static void waitUntil(BooleanSupplier condition) throws Exception {
+    long deadline = System.currentTimeMillis() + 10000;
+    while (!condition.getAsBoolean()) {
+      if (System.currentTimeMillis() > deadline) {
+        throw new AssertionError("Timed out");
+      }
+      Thread.sleep(10);
+    }
+  }
+
+  @Test
+  public void testMirror(TestContext ctx) throws Exception {
+    mirror.exceptionHandler(ctx::fail).start();
+    waitUntil(() -> producer.history().size() == 3);
+    Thread.sleep(100);
+    ctx.assertNull(consumer.committed(SOURCE_PARTITION));
+    ctx.assertTrue(mirror.pendingBytes() > 0);
+
+    for (int i = 0;i < 3;i++) {
+      ProducerRecord<byte[], byte[]> record = producer.history().get(i);
+      ctx.assertEquals("mirror_the_topic", record.topic());
+      ctx.assertEquals(1, record.partition());
+      ctx.assertEquals(1000L + i, record.timestamp());
+      ctx.assertEquals("key-" + i, new String(record.key()));
+      ctx.assertEquals("value-" + i, new String(record.value()));
+      ctx.assertEquals("header-" + i, new String(record.headers().lastHeader("header").value()));
+    }
+
+    while (producer.completeNext()) {
+    }
+    waitUntil(() -> consumer.committed(SOURCE_PARTITION) != null);
+    ctx.assertEquals(3L, consumer.committed(SOURCE_PARTITION).offset());
+
+    Async async = ctx.async();
+    mirror.stop(ctx.asyncAssertSuccess(v -> {
+      ctx.assertEquals(0L, mirror.pendingBytes());
+      async.complete();
+    }));
+  }
+
+  @Test
+  public void testMirrorFailure(TestContext ctx) throws Exception {
+    RuntimeException cause = new RuntimeException();
+    Async failed = ctx.async();
+    mirror.exceptionHandler(err -> {
+      ctx.assertEquals(cause, err);
+      failed.complete();
+    }).start();
+    waitUntil(() -> producer.history().size() == 3);
+    producer.errorNext(cause);
+    while (producer.completeNext()) {
+    }
+    failed.awaitSuccess(10000);
+    Thread.sleep(100);
+    ctx.assertNull(consumer.committed(SOURCE_PARTITION));
+    mirror.stop(ctx.asyncAssertFailure(err -> ctx.assertEquals(cause, err)));
+  }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2018 Red Hat Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.kafka.client.tests;
+
+import io.vertx.core.Vertx;
+import io.vertx.kafka.client.consumer.KafkaOffsetTracker;
+import io.vertx.kafka.client.consumer.KafkaReadStream;
+import io.vertx.kafka.client.consumer.impl.OffsetWindow;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Offset tracker tests
+ */
+public class KafkaOffsetTrackerTest {
+
+  @Test
+  public void testWindow() {
+    OffsetWindow window = new OffsetWindow(64);
+    TreeSet<Long> expected = new TreeSet<>();
+    List<Long> inFlight = new ArrayList<>();
+    Random random = new Random(0);
+    long offset = 1000;
+    long next = -1;
+    int maxCapacity = 0;
+    for (int i = 0;i < 100000;i++) {
+      if (inFlight.isEmpty() || (inFlight.size() < 200 && random.nextBoolean())) {
+        // gaps of compacted records
+        offset += 1 + (random.nextInt(10) == 0 ? random.nextInt(100) : 0);
+        window.received(offset);
+        expected.add(offset);
+        inFlight.add(offset);
+        next = offset + 1;
+      } else {
+        long completed = inFlight.remove(random.nextInt(inFlight.size()));
+        window.completed(completed);
+        expected.remove(completed);
+      }
+      assertEquals(expected.isEmpty() ? next : (long) expected.first(), window.watermark());
+      assertEquals(expected.size(), window.pending());
+      maxCapacity = Math.max(maxCapacity, window.capacity());
+    }
+    // the window grew to hold the offsets in flight
+    assertTrue(maxCapacity > 64);
+  }
+
+  @Test
+  public void testWindowShrink() {
+    OffsetWindow window = new OffsetWindow(64);
+    // a stuck offset holds the window open
+    window.received(0);
+    for (int i = 1;i < 10000;i++) {
+      assertEquals(i >= 64, window.full());
+      window.received(i);
+      window.completed(i);
+    }
+    assertEquals(0, window.watermark());
+    assertTrue(window.capacity() >= 10000);
+    assertTrue(window.completed(0));
+    assertEquals(10000, window.watermark());
+    assertEquals(64, window.capacity());
+    assertFalse(window.full());
+    // the window shrinks as the span drops
+    for (int i = 10000;i < 20000;i++) {
+      window.received(i);
+    }
+    for (int i = 10000;i < 19000;i++) {
+      window.completed(i);
+    }
+    assertEquals(19000, window.watermark());
+    assertEquals(1000, window.pending());
+    assertTrue(window.capacity() >= 1000 && window.capacity() <= 4096);
+    for (int i = 19000;i < 20000;i++) {
+      window.completed(i);
+      assertEquals(i + 1, window.watermark());
+    }
+    assertEquals(64, window.capacity());
+  }
+
+  @Test
+  public void testWindowRestart() {
+    OffsetWindow window = new OffsetWindow(10);
+    assertEquals(-1, window.watermark());
+    window.received(5);
+    window.received(6);
+    assertTrue(window.completed(5));
+    assertFalse(window.completed(5));
+    assertEquals(6, window.watermark());
+    // a duplicate is ignored
+    assertFalse(window.received(5));
+    assertFalse(window.received(2));
+    assertEquals(1, window.pending());
+    assertEquals(6, window.watermark());
+    // a seek back
+    window.reset();
+    assertTrue(window.received(2));
+    assertEquals(1, window.pending());
+    assertTrue(window.completed(2));
+    assertEquals(3, window.watermark());
+  }
+
+  @Test
+  public void testTracker() throws Exception {
+    KafkaOffsetTracker tracker = KafkaOffsetTracker.create(16);
+    TopicPartition partition0 = new TopicPartition("the_topic", 0);
+    TopicPartition partition1 = new TopicPartition("the_topic", 1);
+    List<ConsumerRecord<String, String>> records = new ArrayList<>();
+    for (int i = 0;i < 5;i++) {
+      records.add(new ConsumerRecord<>("the_topic", 0, i, "key", "value"));
+      records.add(new ConsumerRecord<>("the_topic", 1, i, "key", "value"));
+    }
+    records.forEach(tracker::received);
+    records.forEach(tracker::received);
+    assertEquals(10, tracker.pending());
+    tracker.completed(records.get(2));
+    tracker.completed(records.get(0));
+    tracker.completed(records.get(8));
+    assertEquals(2, tracker.watermark(partition0));
+    assertEquals(0, tracker.watermark(partition1));
+    assertEquals(Collections.singletonMap(partition0, new OffsetAndMetadata(2)), tracker.committable());
+    // not committed yet
+    assertEquals(Collections.singletonMap(partition0, new OffsetAndMetadata(2)), tracker.committable());
+    Vertx vertx = Vertx.vertx();
+    try {
+      MockConsumer<String, String> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+      KafkaReadStream<String, String> stream = KafkaReadStream.create(vertx, consumer);
+      CompletableFuture<Map<TopicPartition, OffsetAndMetadata>> committed = new CompletableFuture<>();
+      stream.assign(new HashSet<>(Arrays.asList(partition0, partition1)), v -> tracker.commit(stream, ar -> {
+        if (ar.succeeded()) {
+          committed.complete(ar.result());
+        } else {
+          committed.completeExceptionally(ar.cause());
+        }
+      }));
+      assertEquals(Collections.singletonMap(partition0, new OffsetAndMetadata(2)), committed.get(10, TimeUnit.SECONDS));
+      assertEquals(new OffsetAndMetadata(2), consumer.committed(partition0));
+    } finally {
+      vertx.close();
+    }
+    // nothing advanced since the commit
+    assertEquals(Collections.emptyMap(), tracker.committable());
+    tracker.completed(records.get(1));
+    assertEquals(Collections.singletonMap(partition1, new OffsetAndMetadata(1)), tracker.committable());
+    tracker.evict(Collections.singleton(partition0));
+    assertEquals(-1, tracker.watermark(partition0));
+    assertEquals(4, tracker.pending());
+  }
+}
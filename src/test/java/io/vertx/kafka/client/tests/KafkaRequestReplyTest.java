@@ -0,0 +1,122 @@
+/*
+ * Copyright 2018 Red Hat Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.kafka.client.tests;
+
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import io.vertx.kafka.client.consumer.KafkaReadStream;
+import io.vertx.kafka.client.producer.KafkaWriteStream;
+import io.vertx.kafka.client.rpc.KafkaRequestReply;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.record.TimestampType;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Collections;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Tests of the request/reply client using mock consumer and producer
+ */
+@RunWith(VertxUnitRunner.class)
+public class KafkaRequestReplyTest {
+
+  private static final TopicPartition REPLY_PARTITION = new TopicPartition("the_replies", 0);
+
+  private Vertx vertx;
+  private MockConsumer<String, String> consumer;
+  private MockProducer<String, String> producer;
+  private KafkaRequestReply<String, String, String> client;
+
+  @Before
+  public void beforeTest(TestContext ctx) {
+    vertx = Vertx.vertx();
+    consumer = new MockConsumer<>(OffsetResetStrategy.LATEST);
+    consumer.updatePartitions("the_replies", Collections.singletonList(new PartitionInfo("the_replies", 0, null, null, null)));
+    consumer.updateEndOffsets(Collections.singletonMap(REPLY_PARTITION, 0L));
+    producer = new MockProducer<>(true, new StringSerializer(), new StringSerializer());
+    client = KafkaRequestReply.create(vertx, KafkaWriteStream.create(vertx, producer), KafkaReadStream.create(vertx, consumer), "the_replies");
+    client.start(ctx.asyncAssertSuccess());
+  }
+
+  @After
+  public void afterTest(TestContext ctx) {
+    vertx.close(ctx.asyncAssertSuccess());
+  }
+
+  private void replyTo(ProducerRecord<String, String> request, long offset, String value) {
+    // the request as received by the replying side
+    ConsumerRecord<String, String> received = new ConsumerRecord<>(request.topic(), 0, 0, 0L, TimestampType.CREATE_TIME,
+      0L, 0, 0, request.key(), request.value(), new RecordHeaders(request.headers().toArray()));
+    ProducerRecord<String, String> reply = KafkaRequestReply.reply(received, request.key(), value);
+    consumer.schedulePollTask(() -> consumer.addRecord(new ConsumerRecord<>(reply.topic(), 0, offset, 0L,
+      TimestampType.CREATE_TIME, 0L, 0, 0, reply.key(), reply.value(), reply.headers())));
+  }
+
+  @Test
+  public void testRequestReply(TestContext ctx) {
+    Async done = ctx.async(2);
+    client.request(new ProducerRecord<>("the_requests", "k1", "ping-1"), ctx.asyncAssertSuccess(reply -> {
+      ctx.assertEquals("pong-1", reply.value());
+      done.countDown();
+    }));
+    client.request(new ProducerRecord<>("the_requests", "k2", "ping-2"), ctx.asyncAssertSuccess(reply -> {
+      ctx.assertEquals("pong-2", reply.value());
+      done.countDown();
+    }));
+    ctx.assertEquals(2, client.inFlight());
+    vertx.setTimer(50, id -> {
+      ctx.assertEquals(2, producer.history().size());
+      ctx.assertEquals("the_replies", new String(producer.history().get(0).headers().lastHeader(KafkaRequestReply.REPLY_TOPIC_HEADER).value()));
+      // replies in reverse order, plus a reply to another client
+      replyTo(producer.history().get(1), 0, "pong-2");
+      ProducerRecord<String, String> foreign = new ProducerRecord<>("the_requests", "k3", "ping-3");
+      foreign.headers().add(KafkaRequestReply.CORRELATION_ID_HEADER, "another-client-1".getBytes());
+      foreign.headers().add(KafkaRequestReply.REPLY_TOPIC_HEADER, "the_replies".getBytes());
+      replyTo(foreign, 1, "pong-3");
+      replyTo(producer.history().get(0), 2, "pong-1");
+    });
+    done.handler(ar -> ctx.assertEquals(0, client.inFlight()));
+  }
+
+  @Test
+  public void testTimeoutAndBound(TestContext ctx) {
+    client.timeout(100).maxInFlight(1);
+    Async done = ctx.async(2);
+    client.request(new ProducerRecord<>("the_requests", "k1", "ping-1"), ctx.asyncAssertFailure(err -> {
+      ctx.assertTrue(err instanceof TimeoutException);
+      ctx.assertEquals(0, client.inFlight());
+      done.countDown();
+    }));
+    client.request(new ProducerRecord<>("the_requests", "k2", "ping-2"), ctx.asyncAssertFailure(err -> {
+      ctx.assertTrue(err instanceof IllegalStateException);
+      done.countDown();
+    }));
+  }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2018 Red Hat Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.kafka.client.tests;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import io.vertx.kafka.client.consumer.KafkaReadStream;
+import io.vertx.kafka.client.producer.KafkaWriteStream;
+import io.vertx.kafka.client.retry.KafkaRetryProcessor;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Tests of the retry processor using mock consumer and producer
+ */
+@RunWith(VertxUnitRunner.class)
+public class KafkaRetryProcessorTest {
+
+  private static final TopicPartition SOURCE_PARTITION = new TopicPartition("the_topic", 0);
+
+  private Vertx vertx;
+  private MockConsumer<String, String> consumer;
+  private MockProducer<String, String> producer;
+  private KafkaRetryProcessor<String, String> processor;
+  private volatile ConsumerRebalanceListener rebalanceListener;
+
+  @Before
+  public void beforeTest() {
+    vertx = Vertx.vertx();
+    consumer = new MockConsumer<String, String>(OffsetResetStrategy.EARLIEST) {
+      @Override
+      public synchronized void subscribe(Collection<String> topics, ConsumerRebalanceListener listener) {
+        rebalanceListener = listener;
+        super.subscribe(topics, listener);
+      }
+    };
+    producer = new MockProducer<>(false, new StringSerializer(), new StringSerializer());
+    KafkaReadStream<String, String> source = KafkaReadStream.create(vertx, consumer);
+    KafkaWriteStream<String, String> deadLetters = KafkaWriteStream.create(vertx, producer);
+    processor = KafkaRetryProcessor.create(vertx, source, deadLetters).backoff(10, 100).commitInterval(20);
+    source.subscribe(Collections.singleton("the_topic"), v -> {
+      consumer.schedulePollTask(() -> {
+        consumer.rebalance(Collections.singletonList(SOURCE_PARTITION));
+        consumer.seek(SOURCE_PARTITION, 0);
+        for (int i = 0;i < 3;i++) {
+          consumer.addRecord(new ConsumerRecord<>("the_topic", 0, i, "key-" + i, "value-" + i));
+        }
+      });
+    });
+  }
+
+  @After
+  public void afterTest(TestContext ctx) {
+    vertx.close(ctx.asyncAssertSuccess());
+  }
+
+  private static void waitUntil(BooleanSupplier condition) throws Exception {
+    long deadline = System.currentTimeMillis() + 10000;
+    while (!condition.getAsBoolean()) {
+      if (System.currentTimeMillis() > deadline) {
+        throw new AssertionError("Timed out");
+      }
+      Thread.sleep(10);
+    }
+  }
+
+  private Long committed() {
+    return consumer.committed(SOURCE_PARTITION) != null ? consumer.committed(SOURCE_PARTITION).offset() : null;
+  }
+
+  @Test
+  public void testRetryAndDeadLetter(TestContext ctx) throws Exception {
+    Map<Long, Integer> attempts = new ConcurrentHashMap<>();
+    processor.exceptionHandler(ctx::fail).processor((record, handler) -> {
+      int attempt = attempts.merge(record.offset(), 1, Integer::sum);
+      if (record.offset() == 1 || (record.offset() == 2 && attempt == 1)) {
+        handler.handle(Future.failedFuture(new IllegalStateException("failure-" + record.offset())));
+      } else {
+        handler.handle(Future.succeededFuture());
+      }
+    }).start();
+
+    waitUntil(() -> producer.history().size() == 1);
+    ProducerRecord<String, String> deadLetter = producer.history().get(0);
+    ctx.assertEquals("the_topic.DLQ", deadLetter.topic());
+    ctx.assertEquals("key-1", deadLetter.key());
+    ctx.assertEquals("value-1", deadLetter.value());
+    ctx.assertEquals("3", new String(deadLetter.headers().lastHeader(KafkaRetryProcessor.ATTEMPTS_HEADER).value()));
+    ctx.assertEquals("1", new String(deadLetter.headers().lastHeader(KafkaRetryProcessor.ORIGINAL_OFFSET_HEADER).value()));
+    ctx.assertTrue(new String(deadLetter.headers().lastHeader(KafkaRetryProcessor.EXCEPTION_HEADER).value()).contains("failure-1"));
+    ctx.assertEquals(3, attempts.get(1L));
+    // the record following the failing one is retried and handled without waiting for it
+    ctx.assertEquals(2, attempts.get(2L));
+
+    // nothing is committed past the record being dead lettered
+    Thread.sleep(100);
+    ctx.assertEquals(1L, committed());
+    ctx.assertEquals(1, processor.pendingRecords());
+
+    producer.completeNext();
+    waitUntil(() -> Long.valueOf(3).equals(committed()));
+    ctx.assertEquals(0, processor.pendingRecords());
+    processor.stop(ctx.asyncAssertSuccess());
+  }
+
+  @Test
+  public void testAbandonOnRevoke(TestContext ctx) throws Exception {
+    AtomicInteger handled = new AtomicInteger();
+    processor.exceptionHandler(ctx::fail).commitInterval(60000).processor((record, handler) -> {
+      if (record.offset() < 2) {
+        handler.handle(Future.succeededFuture());
+      }
+      handled.incrementAndGet();
+    }).start();
+    waitUntil(() -> handled.get() == 3);
+    ctx.assertEquals(1, processor.pendingRecords());
+
+    // the pending records of a revoked partition are abandoned, the revoked partition is not committed anymore
+    consumer.schedulePollTask(() -> rebalanceListener.onPartitionsRevoked(Collections.singleton(SOURCE_PARTITION)));
+    waitUntil(() -> processor.pendingRecords() == 0);
+    Thread.sleep(100);
+    ctx.assertNull(committed());
+    processor.stop(ctx.asyncAssertSuccess());
+  }
+
+  @Test
+  public void testEvictOnSeek(TestContext ctx) throws Exception {
+    AtomicInteger handled = new AtomicInteger();
+    processor.exceptionHandler(ctx::fail).processor((record, handler) -> {
+      handler.handle(Future.succeededFuture());
+      handled.incrementAndGet();
+    }).start();
+    waitUntil(() -> handled.get() == 3);
+
+    // the records older than the received ones are ignored until the partition is evicted
+    processor.evict(Collections.singleton(SOURCE_PARTITION));
+    consumer.schedulePollTask(() -> {
+      consumer.seek(SOURCE_PARTITION, 1);
+      for (int i = 1;i < 3;i++) {
+        consumer.addRecord(new ConsumerRecord<>("the_topic", 0, i, "key-" + i, "value-" + i));
+      }
+    });
+    waitUntil(() -> handled.get() == 5);
+    processor.stop(ctx.asyncAssertSuccess());
+  }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2018 Red Hat Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.kafka.client.tests;
+
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import io.vertx.kafka.client.producer.KafkaSpoolingWriteStream;
+import io.vertx.kafka.client.producer.KafkaWriteStream;
+import io.vertx.kafka.client.producer.impl.SpoolJournal;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Tests of the spooling write stream and of its journal
+ */
+@RunWith(VertxUnitRunner.class)
+public class KafkaSpoolingWriteStreamTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private Vertx vertx;
+
+  @Before
+  public void beforeTest() {
+    vertx = Vertx.vertx();
+  }
+
+  @After
+  public void afterTest(TestContext ctx) {
+    vertx.close(ctx.asyncAssertSuccess());
+  }
+
+  private static void waitUntil(BooleanSupplier condition) throws Exception {
+    long deadline = System.currentTimeMillis() + 10000;
+    while (!condition.getAsBoolean()) {
+      if (System.currentTimeMillis() > deadline) {
+        throw new AssertionError("Timed out");
+      }
+      Thread.sleep(10);
+    }
+  }
+
+  @Test
+  public void testJournal(TestContext ctx) throws Exception {
+    File directory = folder.newFolder();
+    // small segments holding two entries each
+    SpoolJournal journal = new SpoolJournal(directory, 30);
+    for (int i = 0;i < 5;i++) {
+      journal.append(("entry-" + i).getBytes());
+    }
+    ctx.assertEquals(5L, journal.size());
+    ctx.assertEquals(3, journal.segments());
+    ctx.assertEquals("entry-0", new String(journal.read()));
+    ctx.assertEquals("entry-1", new String(journal.read()));
+    ctx.assertEquals("entry-2", new String(journal.read()));
+    journal.rewind();
+    ctx.assertEquals("entry-0", new String(journal.read()));
+    ctx.assertEquals("entry-1", new String(journal.read()));
+    ctx.assertEquals("entry-2", new String(journal.read()));
+    journal.ack(3);
+    ctx.assertEquals(2, journal.segments());
+    ctx.assertEquals(2, directory.listFiles().length);
+    journal.force();
+
+    // a new journal restarts after the acknowledged entries
+    SpoolJournal recovered = new SpoolJournal(directory, 30);
+    ctx.assertEquals(2L, recovered.size());
+    ctx.assertEquals("entry-3", new String(recovered.read()));
+    ctx.assertEquals("entry-4", new String(recovered.read()));
+    ctx.assertNull(recovered.read());
+    recovered.append("entry-5".getBytes());
+    ctx.assertEquals("entry-5", new String(recovered.read()));
+    recovered.ack(3);
+    ctx.assertEquals(0L, recovered.size());
+    ctx.assertEquals(1, recovered.segments());
+  }
+
+  @Test
+  public void testSpoolAndReplay(TestContext ctx) throws Exception {
+    MockProducer<String, String> producer = new MockProducer<>(false, new StringSerializer(), new StringSerializer());
+    KafkaSpoolingWriteStream<String, String> stream = KafkaSpoolingWriteStream.create(vertx,
+      KafkaWriteStream.create(vertx, producer), folder.newFolder().getAbsolutePath(), 1024, Serdes.String(), Serdes.String());
+    stream.retryInterval(50);
+
+    stream.write(new ProducerRecord<>("the_topic", "key-0", "value-0"), ctx.asyncAssertSuccess(metadata -> ctx.assertNotNull(metadata)));
+    waitUntil(() -> producer.history().size() == 1);
+    producer.completeNext();
+
+    // the cluster is unreachable
+    stream.write(new ProducerRecord<>("the_topic", "key-1", "value-1"), ctx.asyncAssertSuccess(ctx::assertNull));
+    waitUntil(() -> producer.history().size() == 2);
+    producer.errorNext(new TimeoutException());
+    waitUntil(stream::isSpooling);
+    stream.write(new ProducerRecord<>("the_topic", "key-2", "value-2"), ctx.asyncAssertSuccess(ctx::assertNull));
+    ctx.assertEquals(2L, stream.spooledRecords());
+
+    // the first replay attempt fails and is retried
+    waitUntil(() -> producer.history().size() == 3);
+    ctx.assertEquals("value-1", producer.history().get(2).value());
+    producer.errorNext(new TimeoutException());
+    waitUntil(() -> producer.history().size() == 4);
+    ctx.assertEquals("value-1", producer.history().get(3).value());
+    producer.completeNext();
+
+    waitUntil(() -> producer.history().size() == 5);
+    ctx.assertEquals("value-2", producer.history().get(4).value());
+    producer.completeNext();
+    waitUntil(() -> !stream.isSpooling());
+    ctx.assertEquals(0L, stream.spooledRecords());
+
+    stream.write(new ProducerRecord<>("the_topic", "key-3", "value-3"));
+    waitUntil(() -> producer.history().size() == 6);
+    producer.completeNext();
+  }
+}
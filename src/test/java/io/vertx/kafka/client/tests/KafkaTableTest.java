@@ -0,0 +1,146 @@
+/*
+ * Copyright 2018 Red Hat Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.kafka.client.tests;
+
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import io.vertx.kafka.client.consumer.KafkaReadStream;
+import io.vertx.kafka.client.table.KafkaTable;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.Serdes;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.Collections;
+
+/**
+ * Tests of the table using a mock consumer
+ */
+@RunWith(VertxUnitRunner.class)
+public class KafkaTableTest {
+
+  private static final TopicPartition PARTITION = new TopicPartition("the_topic", 0);
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private Vertx vertx;
+
+  @Before
+  public void beforeTest() {
+    vertx = Vertx.vertx();
+  }
+
+  @After
+  public void afterTest(TestContext ctx) {
+    vertx.close(ctx.asyncAssertSuccess());
+  }
+
+  private MockConsumer<String, String> createConsumer(long endOffset) {
+    MockConsumer<String, String> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+    consumer.updatePartitions("the_topic", Collections.singletonList(new PartitionInfo("the_topic", 0, null, null, null)));
+    consumer.updateBeginningOffsets(Collections.singletonMap(PARTITION, 0L));
+    consumer.updateEndOffsets(Collections.singletonMap(PARTITION, endOffset));
+    return consumer;
+  }
+
+  private KafkaTable<String, String> createTable(MockConsumer<String, String> consumer, File snapshot) {
+    return KafkaTable.create(vertx, KafkaReadStream.create(vertx, consumer), "the_topic")
+      .snapshot(snapshot.getAbsolutePath(), 60000, Serdes.String(), Serdes.String());
+  }
+
+  @Test
+  public void testSnapshotRestart(TestContext ctx) throws Exception {
+    File snapshot = new File(folder.getRoot(), "the_topic.snapshot");
+
+    MockConsumer<String, String> consumer = createConsumer(3);
+    consumer.schedulePollTask(() -> {
+      consumer.addRecord(new ConsumerRecord<>("the_topic", 0, 0, "k1", "v1"));
+      consumer.addRecord(new ConsumerRecord<>("the_topic", 0, 1, "k2", "v2"));
+      consumer.addRecord(new ConsumerRecord<>("the_topic", 0, 2, "k1", null));
+    });
+    KafkaTable<String, String> table = createTable(consumer, snapshot);
+    Async ready = ctx.async();
+    table.exceptionHandler(ctx::fail).start(ctx.asyncAssertSuccess(v -> {
+      ctx.assertTrue(table.isReady());
+      ctx.assertEquals(Collections.singletonMap("k2", "v2"), table.asMap());
+      ready.complete();
+    }));
+    ready.awaitSuccess(10000);
+    Async stopped = ctx.async();
+    table.stop(ctx.asyncAssertSuccess(v -> stopped.complete()));
+    stopped.awaitSuccess(10000);
+    ctx.assertTrue(snapshot.exists());
+
+    // the restarted table loads the snapshot and only reads the records following it
+    MockConsumer<String, String> restarted = createConsumer(5);
+    restarted.schedulePollTask(() -> {
+      restarted.addRecord(new ConsumerRecord<>("the_topic", 0, 1, "k9", "v9"));
+      restarted.addRecord(new ConsumerRecord<>("the_topic", 0, 3, "k3", "v3"));
+      restarted.addRecord(new ConsumerRecord<>("the_topic", 0, 4, "k2", "v2b"));
+    });
+    KafkaTable<String, String> restartedTable = createTable(restarted, snapshot);
+    Async restartedReady = ctx.async();
+    restartedTable.exceptionHandler(ctx::fail).start(ctx.asyncAssertSuccess(v -> {
+      ctx.assertEquals(2, restartedTable.asMap().size());
+      ctx.assertEquals("v2b", restartedTable.get("k2"));
+      ctx.assertEquals("v3", restartedTable.get("k3"));
+      ctx.assertNull(restartedTable.get("k9"));
+      restartedReady.complete();
+    }));
+    restartedReady.awaitSuccess(10000);
+    restartedTable.stop(ctx.asyncAssertSuccess());
+  }
+
+  @Test
+  public void testCorruptSnapshot(TestContext ctx) throws Exception {
+    File snapshot = new File(folder.getRoot(), "the_topic.snapshot");
+    try (OutputStream out = new FileOutputStream(snapshot)) {
+      // a valid header followed by truncated offsets
+      out.write(new byte[] { 0x4b, 0x54, 0x42, 0x31, 0, 0, 0, 1, 0 });
+    }
+
+    // the snapshot is ignored and the topic read from the beginning
+    MockConsumer<String, String> consumer = createConsumer(2);
+    consumer.schedulePollTask(() -> {
+      consumer.addRecord(new ConsumerRecord<>("the_topic", 0, 0, "k1", "v1"));
+      consumer.addRecord(new ConsumerRecord<>("the_topic", 0, 1, "k2", "v2"));
+    });
+    KafkaTable<String, String> table = createTable(consumer, snapshot);
+    Async ready = ctx.async();
+    table.exceptionHandler(ctx::fail).start(ctx.asyncAssertSuccess(v -> {
+      ctx.assertEquals(2, table.asMap().size());
+      ctx.assertEquals("v1", table.get("k1"));
+      ready.complete();
+    }));
+    ready.awaitSuccess(10000);
+    table.stop(ctx.asyncAssertSuccess());
+  }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2018 Red Hat Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.kafka.client.tests;
+
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import io.vertx.kafka.client.consumer.KafkaReadStream;
+import io.vertx.kafka.client.window.KafkaWindow;
+import io.vertx.kafka.client.window.KafkaWindowAggregator;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.record.TimestampType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Tests of the window aggregator using a mock consumer
+ */
+@RunWith(VertxUnitRunner.class)
+public class KafkaWindowAggregatorTest {
+
+  private static final TopicPartition PARTITION = new TopicPartition("the_topic", 0);
+
+  private Vertx vertx;
+  private MockConsumer<String, String> consumer;
+  private KafkaReadStream<String, String> stream;
+
+  @Before
+  public void beforeTest() {
+    vertx = Vertx.vertx();
+    consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+    stream = KafkaReadStream.create(vertx, consumer);
+  }
+
+  @After
+  public void afterTest(TestContext ctx) {
+    vertx.close(ctx.asyncAssertSuccess());
+  }
+
+  private void send(long... timestampsAndValues) {
+    stream.subscribe(Collections.singleton("the_topic"), v -> {
+      consumer.schedulePollTask(() -> {
+        consumer.rebalance(Collections.singletonList(PARTITION));
+        consumer.seek(PARTITION, 0);
+        for (int i = 0;i < timestampsAndValues.length;i += 2) {
+          String key = timestampsAndValues[i + 1] < 0 ? "b" : "a";
+          consumer.addRecord(new ConsumerRecord<>("the_topic", 0, i / 2, timestampsAndValues[i],
+            TimestampType.CREATE_TIME, 0L, 1, 1, key, String.valueOf(Math.abs(timestampsAndValues[i + 1]))));
+        }
+      });
+    });
+  }
+
+  private static void assertWindow(TestContext ctx, KafkaWindow<String> window, String key, long start, long count, long sum, long min, long max) {
+    ctx.assertEquals(key, window.key());
+    ctx.assertEquals(start, window.start());
+    ctx.assertEquals(count, window.count());
+    ctx.assertEquals(sum, window.sum());
+    ctx.assertEquals(min, window.min());
+    ctx.assertEquals(max, window.max());
+  }
+
+  @Test
+  public void testTumbling(TestContext ctx) {
+    List<KafkaWindow<String>> windows = new ArrayList<>();
+    Async done = ctx.async();
+    KafkaWindowAggregator<String, String> aggregator = KafkaWindowAggregator.tumbling(stream, 10);
+    aggregator.value(record -> Long.parseLong(record.value())).grace(5).handler(window -> {
+      windows.add(window);
+      if (windows.size() == 2) {
+        // the key b has a negative value in send
+        windows.sort((w1, w2) -> w1.key().compareTo(w2.key()));
+        assertWindow(ctx, windows.get(0), "a", 0, 3, 13, 2, 7);
+        assertWindow(ctx, windows.get(1), "b", 0, 1, 3, 3, 3);
+        ctx.assertEquals(10L, windows.get(0).end());
+      }
+    }).start();
+    // 9 is out of order within the grace period, 2 arrives after the window is closed
+    send(1, 2, 3, -3, 7, 7, 12, 1, 9, 4, 16, 1, 2, 100, 40, 1);
+    vertx.setPeriodic(10, id -> {
+      if (aggregator.lateRecords() == 1 && windows.size() == 3) {
+        // the window [10, 20) is closed by the record at 40
+        assertWindow(ctx, windows.get(2), "a", 10, 2, 2, 1, 1);
+        vertx.cancelTimer(id);
+        done.complete();
+      }
+    });
+  }
+
+  @Test
+  public void testSliding(TestContext ctx) {
+    List<KafkaWindow<String>> windows = new ArrayList<>();
+    Async done = ctx.async();
+    KafkaWindowAggregator.<String, String>sliding(stream, 10, 5).handler(window -> {
+      windows.add(window);
+      if (windows.size() == 3) {
+        // the record at 7 belongs to the windows [0, 10) and [5, 15)
+        assertWindow(ctx, windows.get(0), "a", -5, 1, 1, 1, 1);
+        assertWindow(ctx, windows.get(1), "a", 0, 2, 2, 1, 1);
+        assertWindow(ctx, windows.get(2), "a", 5, 2, 2, 1, 1);
+        done.complete();
+      }
+    }).start();
+    send(2, 1, 7, 1, 12, 1, 30, 1);
+  }
+
+  @Test
+  public void testRebalanceHandlersChained(TestContext ctx) {
+    List<Set<TopicPartition>> revoked = new ArrayList<>();
+    List<Set<TopicPartition>> assigned = new ArrayList<>();
+    Handler<Set<TopicPartition>> revokedHandler = revoked::add;
+    Handler<Set<TopicPartition>> assignedHandler = assigned::add;
+    stream.partitionsRevokedHandler(revokedHandler).partitionsAssignedHandler(assignedHandler);
+    KafkaWindowAggregator<String, String> aggregator = KafkaWindowAggregator.<String, String>tumbling(stream, 10).start();
+    Set<TopicPartition> partitions = Collections.singleton(PARTITION);
+    stream.partitionsRevokedHandler().handle(partitions);
+    stream.partitionsAssignedHandler().handle(partitions);
+    ctx.assertEquals(Collections.singletonList(partitions), revoked);
+    ctx.assertEquals(Collections.singletonList(partitions), assigned);
+    aggregator.stop();
+    ctx.assertTrue(stream.partitionsRevokedHandler() == revokedHandler);
+    ctx.assertTrue(stream.partitionsAssignedHandler() == assignedHandler);
+  }
+}
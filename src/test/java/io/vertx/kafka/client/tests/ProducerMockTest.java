@@ -21,27 +21,41 @@ import io.vertx.core.Vertx;
 import io.vertx.ext.unit.Async;
 import io.vertx.ext.unit.TestContext;
 import io.vertx.ext.unit.junit.VertxUnitRunner;
+import io.vertx.kafka.client.common.KafkaHistogram;
+import io.vertx.kafka.client.common.KafkaRateLimiter;
 import io.vertx.kafka.client.consumer.KafkaReadStream;
+import io.vertx.kafka.client.producer.KafkaBatchingController;
 import io.vertx.kafka.client.producer.KafkaProducer;
 import io.vertx.kafka.client.producer.KafkaProducerRecord;
 import io.vertx.kafka.client.producer.KafkaWriteStream;
+import io.vertx.kafka.client.producer.KafkaWriteStreamMetrics;
+import io.vertx.kafka.client.producer.impl.StickyPartitioner;
 
 import org.apache.kafka.clients.producer.Callback;
 import org.apache.kafka.clients.producer.MockProducer;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.clients.producer.ProducerRecord;
 import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.clients.producer.internals.DefaultPartitioner;
+import org.apache.kafka.common.Cluster;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.SerializationException;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.assertFalse;
@@ -89,6 +103,23 @@ public class ProducerMockTest {
   }
 
 
+  /*
+    Counts the partitionsFor calls hitting the native producer
+  */
+  private static class TestProducerMetadata extends MockProducer<String, String> {
+
+    final AtomicInteger partitionsForCount = new AtomicInteger();
+
+    public TestProducerMetadata(Cluster cluster) {
+      super(cluster, true, null, new StringSerializer(), new StringSerializer());
+    }
+
+    @Override
+    public synchronized List<PartitionInfo> partitionsFor(String topic) {
+      partitionsForCount.incrementAndGet();
+      return super.partitionsFor(topic);
+    }
+  }
 
   private Vertx vertx;
 
@@ -141,6 +172,161 @@ public class ProducerMockTest {
     assertFalse(producer.writeQueueFull());
   }
 
+  @Test
+  public void testProducerRateLimiter(TestContext ctx) throws Exception {
+    TestProducer mock = new TestProducer();
+    KafkaWriteStream<String, String> producer = ProducerTest.producer(Vertx.vertx(), mock);
+    producer.rateLimiter(KafkaRateLimiter.create(5, 0));
+    int sent = 0;
+    while (!producer.writeQueueFull()) {
+      producer.write(new ProducerRecord<>("the_topic", 0, 0L, "abc", "def"));
+      sent++;
+    }
+    // the write queue is full once the bucket is in debt, without any acknowledgement
+    ctx.assertEquals(6, sent);
+    Async async = ctx.async();
+    long start = System.currentTimeMillis();
+    producer.drainHandler(v -> {
+      ctx.assertTrue(System.currentTimeMillis() - start >= 100);
+      ctx.assertFalse(producer.writeQueueFull());
+      async.complete();
+    });
+  }
+
+  @Test
+  public void testProducerBatching(TestContext ctx) throws Exception {
+    MockProducer<String, String> mock = new MockProducer<>(true, new StringSerializer(), new StringSerializer());
+    KafkaWriteStream<String, String> producer = ProducerTest.producer(Vertx.vertx(), mock);
+    KafkaBatchingController controller = KafkaBatchingController.create(1000);
+    producer.batchingController(controller);
+    int numMsg = 1000;
+    Async async = ctx.async(numMsg);
+    for (int i = 0;i < numMsg;i++) {
+      producer.write(new ProducerRecord<>("the_topic", 0, 0L, "key-" + i, "value-" + i), ctx.asyncAssertSuccess(v -> async.countDown()));
+    }
+    async.awaitSuccess(10000);
+    // the batches grow while the latency is below the target
+    ctx.assertTrue(controller.batches() < numMsg);
+    ctx.assertTrue(controller.batchSize() > 1);
+    ctx.assertTrue(controller.latency() < 1000);
+    for (int i = 0;i < numMsg;i++) {
+      ctx.assertEquals("value-" + i, mock.history().get(i).value());
+    }
+  }
+
+  @Test
+  public void testProducerBatchingSendFailure(TestContext ctx) throws Exception {
+    MockProducer<String, String> mock = new MockProducer<String, String>(true, new StringSerializer(), new StringSerializer()) {
+      @Override
+      public synchronized Future<RecordMetadata> send(ProducerRecord<String, String> record, Callback callback) {
+        if ("bad".equals(record.value())) {
+          throw new SerializationException("bad");
+        }
+        return super.send(record, callback);
+      }
+    };
+    KafkaWriteStream<String, String> producer = ProducerTest.producer(Vertx.vertx(), mock);
+    producer.batchingController(KafkaBatchingController.create(1000));
+    producer.setWriteQueueMaxSize(3);
+    KafkaWriteStreamMetrics metrics = producer.metrics();
+    Async async = ctx.async(3);
+    producer.write(new ProducerRecord<>("the_topic", 0, 0L, "key-0", "value-0"), ctx.asyncAssertSuccess(v -> async.countDown()));
+    producer.write(new ProducerRecord<>("the_topic", 0, 0L, "key-1", "bad"), ctx.asyncAssertFailure(err -> {
+      ctx.assertTrue(err instanceof SerializationException);
+      async.countDown();
+    }));
+    producer.write(new ProducerRecord<>("the_topic", 0, 0L, "key-2", "value-2"), ctx.asyncAssertSuccess(v -> async.countDown()));
+    async.awaitSuccess(10000);
+    // the failed record does not stop its batch nor hold the write queue
+    ctx.assertEquals(2, mock.history().size());
+    ctx.assertFalse(producer.writeQueueFull());
+    ctx.assertEquals(1L, metrics.failures().get("the_topic"));
+  }
+
+  @Test
+  public void testBatchingControllerDecrease(TestContext ctx) {
+    KafkaBatchingController controller = KafkaBatchingController.create(60000);
+    for (int i = 0;i < 16;i++) {
+      controller.batchSent(controller.batchSize());
+    }
+    ctx.assertEquals(17, controller.batchSize());
+    // a latency spike halves the batch size once until the records sent before are acknowledged
+    controller.acknowledged(TimeUnit.SECONDS.toNanos(120));
+    controller.batchSent(17);
+    ctx.assertEquals(8, controller.batchSize());
+    controller.batchSent(8);
+    controller.batchSent(8);
+    ctx.assertEquals(8, controller.batchSize());
+    // 153 records were sent up to the decrease, one is acknowledged already
+    for (int i = 0;i < 151;i++) {
+      controller.acknowledged(TimeUnit.SECONDS.toNanos(120));
+    }
+    controller.batchSent(8);
+    ctx.assertEquals(8, controller.batchSize());
+    controller.acknowledged(TimeUnit.SECONDS.toNanos(120));
+    controller.batchSent(8);
+    ctx.assertEquals(4, controller.batchSize());
+  }
+
+  @Test
+  public void testProducerMetrics(TestContext ctx) throws Exception {
+    TestProducer mock = new TestProducer();
+    KafkaWriteStream<String, String> producer = ProducerTest.producer(Vertx.vertx(), mock);
+    KafkaWriteStreamMetrics metrics = producer.metrics();
+    Async async = ctx.async(3);
+    producer.write(new ProducerRecord<>("the_topic", 0, 0L, "abc", "def"), ctx.asyncAssertSuccess(v -> async.countDown()));
+    producer.write(new ProducerRecord<>("the_topic", 0, 0L, "abc", "def"), ctx.asyncAssertSuccess(v -> async.countDown()));
+    producer.write(new ProducerRecord<>("the_topic", 0, 0L, "abc", "def"), ctx.asyncAssertFailure(v -> async.countDown()));
+    mock.assertCompleteNext();
+    mock.assertCompleteNext();
+    mock.assertErrorNext(new RuntimeException());
+    async.awaitSuccess(10000);
+    ctx.assertEquals(3L, metrics.queueLatency().get("the_topic").count());
+    ctx.assertEquals(3L, metrics.sendLatency().get("the_topic").count());
+    ctx.assertEquals(2L, metrics.ackLatency().get(new TopicPartition("the_topic", 0)).count());
+    ctx.assertEquals(1L, metrics.failures().get("the_topic"));
+    // the last handler is timed once it returns
+    ctx.assertTrue(metrics.handlerTime().get("the_topic").count() >= 2L);
+    ctx.assertEquals(3L, metrics.pendingSize().count());
+    // the keys and values of the three records
+    ctx.assertEquals(18L, metrics.pendingSize().max());
+    metrics.reset();
+    ctx.assertTrue(metrics.ackLatency().isEmpty());
+
+    KafkaHistogram histogram = new KafkaHistogram();
+    for (int i = 1;i <= 1000;i++) {
+      histogram.record(i);
+    }
+    ctx.assertEquals(1000L, histogram.count());
+    ctx.assertEquals(500.5, histogram.mean());
+    ctx.assertEquals(1000L, histogram.max());
+    ctx.assertTrue(histogram.percentile(50) > 500 * 0.875 && histogram.percentile(50) <= 500);
+    ctx.assertTrue(histogram.percentile(99) > 990 * 0.875 && histogram.percentile(99) <= 990);
+    ctx.assertEquals(1L, histogram.percentile(0));
+  }
+
+  @Test
+  public void testSlowWriteHandler(TestContext ctx) throws Exception {
+    TestProducer mock = new TestProducer();
+    KafkaWriteStream<String, String> producer = ProducerTest.producer(Vertx.vertx(), mock);
+    Async async = ctx.async();
+    producer.slowHandlerDetection(20, event -> {
+      ctx.assertEquals("the_topic", event.topic());
+      ctx.assertEquals(0, event.partition());
+      ctx.assertTrue(event.duration() >= TimeUnit.MILLISECONDS.toNanos(20));
+      ctx.assertFalse(event.offloaded());
+      async.complete();
+    });
+    producer.write(new ProducerRecord<>("the_topic", 0, 0L, "abc", "def"), ar -> {
+      try {
+        Thread.sleep(50);
+      } catch (InterruptedException e) {
+        ctx.fail(e);
+      }
+    });
+    mock.assertCompleteNext();
+  }
+
   @Test
   public void testProducerError(TestContext ctx) throws Exception {
     TestProducer mock = new TestProducer();
@@ -191,6 +377,105 @@ public class ProducerMockTest {
     });
   }
 
+  @Test
+  public void testPartitionsForCached(TestContext ctx) {
+    Node node = new Node(0, "localhost", 9092);
+    Node[] nodes = new Node[] { node };
+    Cluster cluster = new Cluster("cluster", Collections.singletonList(node), Arrays.asList(
+      new PartitionInfo("the_topic", 0, node, nodes, nodes),
+      new PartitionInfo("the_topic", 1, node, nodes, nodes)),
+      Collections.emptySet(), Collections.emptySet());
+    TestProducerMetadata mock = new TestProducerMetadata(cluster);
+    KafkaProducer<String, String> prod = KafkaProducer.create(vertx, mock);
+    Async async = ctx.async();
+    prod.partitionsFor("the_topic", ctx.asyncAssertSuccess(partitions1 -> {
+      ctx.assertEquals(2, partitions1.size());
+      ctx.assertEquals(0, partitions1.get(0).getLeader().getId());
+      prod.partitionsFor("the_topic", ctx.asyncAssertSuccess(partitions2 -> {
+        ctx.assertEquals(2, partitions2.size());
+        ctx.assertEquals(1, mock.partitionsForCount.get());
+        // each caller gets its own copy
+        partitions1.get(0).setPartition(5);
+        ctx.assertEquals(0, partitions2.get(0).getPartition());
+        async.complete();
+      }));
+    }));
+  }
+
+  @Test
+  public void testPartitionsForCacheDisabled(TestContext ctx) {
+    Node node = new Node(0, "localhost", 9092);
+    Node[] nodes = new Node[] { node };
+    Cluster cluster = new Cluster("cluster", Collections.singletonList(node), Collections.singletonList(
+      new PartitionInfo("the_topic", 0, node, nodes, nodes)),
+      Collections.emptySet(), Collections.emptySet());
+    TestProducerMetadata mock = new TestProducerMetadata(cluster);
+    KafkaProducer<String, String> prod = KafkaProducer.create(vertx, mock).metadataCacheTtl(0);
+    Async async = ctx.async();
+    prod.partitionsFor("the_topic", ctx.asyncAssertSuccess(partitions1 -> {
+      prod.partitionsFor("the_topic", ctx.asyncAssertSuccess(partitions2 -> {
+        ctx.assertEquals(1, partitions2.size());
+        ctx.assertEquals(2, mock.partitionsForCount.get());
+        async.complete();
+      }));
+    }));
+  }
+
+  @Test
+  public void testStickyPartitioning(TestContext ctx) {
+    Node node = new Node(0, "localhost", 9092);
+    Node[] nodes = new Node[] { node };
+    Cluster cluster = new Cluster("cluster", Collections.singletonList(node), Arrays.asList(
+      new PartitionInfo("the_topic", 0, node, nodes, nodes),
+      new PartitionInfo("the_topic", 1, node, nodes, nodes),
+      new PartitionInfo("the_topic", 2, node, nodes, nodes)),
+      Collections.emptySet(), Collections.emptySet());
+    MockProducer<String, String> mock = new MockProducer<>(cluster, true, new DefaultPartitioner(), new StringSerializer(), new StringSerializer());
+    KafkaProducer<String, String> prod = KafkaProducer.create(vertx, mock).stickyPartitioning(5, 60000);
+    Async async = ctx.async();
+    prod.partitionsFor("the_topic", ctx.asyncAssertSuccess(partitions -> {
+      int numMsg = 20;
+      Async written = ctx.async(numMsg + 1);
+      for (int i = 0;i < numMsg;i++) {
+        prod.write(KafkaProducerRecord.create("the_topic", "value-" + i), ctx.asyncAssertSuccess(v -> written.countDown()));
+      }
+      // records with a key are left to the native partitioner
+      prod.write(KafkaProducerRecord.create("the_topic", "key", "value"), ctx.asyncAssertSuccess(v -> written.countDown()));
+      written.handler(ar -> {
+        for (int i = 0;i < numMsg;i++) {
+          Integer partition = mock.history().get(i).partition();
+          ctx.assertNotNull(partition);
+          if (i % 5 == 0) {
+            if (i > 0) {
+              ctx.assertNotEquals(mock.history().get(i - 1).partition(), partition);
+            }
+          } else {
+            ctx.assertEquals(mock.history().get(i - 1).partition(), partition);
+          }
+        }
+        ctx.assertNull(mock.history().get(numMsg).partition());
+        async.complete();
+      });
+    }));
+  }
+
+  @Test
+  public void testStickyPartitionerIds(TestContext ctx) {
+    Node node = new Node(0, "localhost", 9092);
+    Node[] nodes = new Node[] { node };
+    // the partition ids are not the positions in the metadata
+    List<PartitionInfo> partitions = Arrays.asList(
+      new PartitionInfo("the_topic", 7, node, nodes, nodes),
+      new PartitionInfo("the_topic", 3, null, nodes, nodes));
+    StickyPartitioner partitioner = new StickyPartitioner(1, 60000);
+    for (int i = 0;i < 5;i++) {
+      ctx.assertEquals(7, partitioner.partition("the_topic", partitions));
+    }
+    // a partition without leader is left, none is chosen when no partition has a leader
+    ctx.assertEquals(-1, partitioner.partition("the_topic", Collections.singletonList(
+      new PartitionInfo("the_topic", 7, null, nodes, nodes))));
+  }
+
   @Test
   public void testWriteWithSimulatedError(TestContext ctx) {
     TestProducerWriteError mock = new TestProducerWriteError();